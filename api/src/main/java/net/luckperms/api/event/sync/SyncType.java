@@ -40,6 +40,11 @@ public enum SyncType {
     /**
      * Only a specific user will be synced
      */
-    SPECIFIC_USER
+    SPECIFIC_USER,
+
+    /**
+     * Only specific groups, tracks and users will be synced
+     */
+    PARTIAL
 
 }
@@ -0,0 +1,63 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package net.luckperms.api.platform;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.Map;
+
+/**
+ * Provides access to performance metrics recorded by the LuckPerms implementation.
+ *
+ * <p>Metrics include permission and meta check throughput, cache usage, the time
+ * taken to calculate cached data, storage operation latencies and messaging
+ * activity.</p>
+ *
+ * @since 5.5
+ */
+public interface Metrics {
+
+    /**
+     * Gets a snapshot of the current value of each metric.
+     *
+     * <p>The keys are sample names following Prometheus conventions, including
+     * any labels, e.g. {@code luckperms_permission_checks_total} or
+     * {@code luckperms_storage_operation_seconds_sum{operation="loadUser"}}.</p>
+     *
+     * @return a snapshot of the current metric values
+     */
+    @NonNull @Unmodifiable Map<String, Double> getValues();
+
+    /**
+     * Exports the current value of each metric in the Prometheus text
+     * exposition format.
+     *
+     * @return the exported metrics
+     */
+    @NonNull String exportPrometheusText();
+
+}
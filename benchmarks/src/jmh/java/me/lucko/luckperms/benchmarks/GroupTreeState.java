@@ -0,0 +1,176 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.calculator.CalculatorFactory;
+import me.lucko.luckperms.common.calculator.PermissionCalculatorBase;
+import me.lucko.luckperms.common.calculator.processor.DirectProcessor;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
+import me.lucko.luckperms.common.node.factory.NodeBuilders;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.QueryOptions;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A synthetic group inheritance tree used as the input for the benchmarks.
+ *
+ * <p>The tree consists of {@link #depth} levels, each containing {@link #width} groups.
+ * Every group inherits from all of the groups in the level below it, and the {@link #root}
+ * group inherits from all groups in the top level. Each group holds {@link #permissions}
+ * regular permissions with deep dotted paths, plus one wildcard and one regex permission.</p>
+ *
+ * <p>The plugin and configuration are stub-only mocks. Calls to them have a small fixed
+ * cost, which is the same for every benchmark variant.</p>
+ */
+@State(Scope.Benchmark)
+public class GroupTreeState {
+
+    /** The number of levels in the inheritance tree */
+    @Param({"4", "20"})
+    public int depth;
+
+    /** The number of groups in each level of the tree */
+    @Param({"1", "4"})
+    public int width;
+
+    /** The number of regular permissions held by each group */
+    @Param({"50"})
+    public int permissions;
+
+    public LuckPermsPlugin plugin;
+    public StandardGroupManager groupManager;
+    public Group root;
+
+    /** The resolved (flattened, lowercase) permissions of the root group */
+    public Map<String, Node> sourceMap;
+
+    /** Permissions to check, a mix of direct hits, wildcard hits, regex hits and misses */
+    public String[] checks;
+
+    public final QueryOptions queryOptions = QueryOptionsImpl.DEFAULT_CONTEXTUAL;
+
+    @Setup
+    public void setup() {
+        LuckPermsConfiguration configuration = mock(LuckPermsConfiguration.class, withSettings().stubOnly());
+        doReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER).when(configuration).get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM);
+        doReturn(false).when(configuration).get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT);
+        doReturn(ContextSatisfyMode.AT_LEAST_ONE_VALUE_PER_KEY).when(configuration).get(ConfigKeys.CONTEXT_SATISFY_MODE);
+        doReturn(Collections.emptyMap()).when(configuration).get(ConfigKeys.GROUP_WEIGHTS);
+        doReturn(true).when(configuration).get(ConfigKeys.APPLYING_SHORTHAND);
+
+        this.plugin = mock(LuckPermsPlugin.class, withSettings().stubOnly());
+        this.groupManager = new StandardGroupManager(this.plugin);
+        doReturn(configuration).when(this.plugin).getConfiguration();
+        doReturn(mock(EventDispatcher.class, withSettings().stubOnly())).when(this.plugin).getEventDispatcher();
+        doReturn(this.groupManager).when(this.plugin).getGroupManager();
+        doReturn(new InheritanceGraphFactory(this.plugin)).when(this.plugin).getInheritanceGraphFactory();
+        doReturn(calculatorFactory()).when(this.plugin).getCalculatorFactory();
+
+        List<String> checkList = new ArrayList<>();
+
+        List<Group> below = Collections.emptyList();
+        for (int level = this.depth - 1; level >= 0; level--) {
+            List<Group> current = new ArrayList<>(this.width);
+            for (int i = 0; i < this.width; i++) {
+                Group group = this.groupManager.getOrMake("level" + level + "-" + i);
+                String prefix = "plugin" + level + ".feature" + i;
+
+                for (int p = 0; p < this.permissions; p++) {
+                    group.normalData().add(NodeBuilders.determineMostApplicable(prefix + ".sub" + p + ".action.target").build());
+                }
+                group.normalData().add(NodeBuilders.determineMostApplicable(prefix + ".wild.*").build());
+                group.normalData().add(NodeBuilders.determineMostApplicable("r=" + prefix.replace(".", "\\.") + "\\.dynamic\\d+").build());
+
+                for (Group parent : below) {
+                    group.normalData().add(Inheritance.builder(parent.getName()).build());
+                }
+
+                checkList.add(prefix + ".sub0.action.target");
+                checkList.add(prefix + ".wild.something.else");
+                checkList.add(prefix + ".dynamic" + level);
+                checkList.add(prefix + ".missing.node");
+                current.add(group);
+            }
+            below = current;
+        }
+
+        this.root = this.groupManager.getOrMake("root");
+        for (Group parent : below) {
+            this.root.normalData().add(Inheritance.builder(parent.getName()).build());
+        }
+
+        this.sourceMap = this.root.exportPermissions(HashMap::new, this.queryOptions, true, true);
+
+        Collections.shuffle(checkList, new Random(0));
+        this.checks = checkList.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the next permission to check, cycling through {@link #checks}.
+     *
+     * @param index the callers (thread-local) check counter
+     * @return the permission
+     */
+    public String check(int index) {
+        return this.checks[Math.floorMod(index, this.checks.length)];
+    }
+
+    private static CalculatorFactory calculatorFactory() {
+        return (queryOptions, sourceMap, metadata) -> new PermissionCalculatorBase(ImmutableList.of(
+                new DirectProcessor(sourceMap),
+                new RegexProcessor(sourceMap),
+                new WildcardProcessor(sourceMap)
+        ));
+    }
+
+}
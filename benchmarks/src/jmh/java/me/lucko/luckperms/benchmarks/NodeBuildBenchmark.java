@@ -0,0 +1,98 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.model.InheritanceOrigin;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import me.lucko.luckperms.common.node.factory.NodeBuilders;
+import net.luckperms.api.model.PermissionHolder.Identifier;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building nodes the way they are built when a holder is loaded from storage.
+ *
+ * <p>The builders intern the components of each node, so the gc profiler's allocation rate
+ * shows how much of each node is shared with equal nodes held by other holders.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeBuildBenchmark {
+    private static final String[] KEYS = {
+            "group.default",
+            "group.vip",
+            "essentials.home",
+            "essentials.warp.spawn",
+            "prefix.100.&7[Member]",
+            "meta.rank.member",
+            "worldedit.*",
+            "luckperms.user.info"
+    };
+
+    private InheritanceOriginMetadata origin;
+    private int index;
+
+    @Setup
+    public void setup() {
+        this.origin = new InheritanceOrigin(new PermissionHolderIdentifier(Identifier.USER_TYPE, "c1d60c50-70b5-4722-8057-87767557e50d"), DataType.NORMAL);
+    }
+
+    private String nextKey() {
+        return KEYS[this.index++ & (KEYS.length - 1)];
+    }
+
+    @Benchmark
+    public Node buildNode() {
+        return NodeBuilders.determineMostApplicable(nextKey())
+                .withContext("server", "survival")
+                .build();
+    }
+
+    @Benchmark
+    public Node buildNodeWithOrigin() {
+        return NodeBuilders.determineMostApplicable(nextKey())
+                .withContext("server", "survival")
+                .withMetadata(InheritanceOriginMetadata.KEY, this.origin)
+                .build();
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.benchmarks;
+
+import me.lucko.luckperms.common.cacheddata.result.TristateResult;
+import me.lucko.luckperms.common.calculator.processor.RegexProcessor;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the individual wildcard and regex {@link me.lucko.luckperms.common.calculator.processor.PermissionProcessor}s.
+ *
+ * <p>Processors are not cached, so every check here is equivalent to a calculator cache miss.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorBenchmark {
+    private WildcardProcessor wildcardProcessor;
+    private RegexProcessor regexProcessor;
+    private int index;
+
+    @Setup
+    public void setup(GroupTreeState tree) {
+        this.wildcardProcessor = new WildcardProcessor(tree.sourceMap);
+        this.regexProcessor = new RegexProcessor(tree.sourceMap);
+    }
+
+    @Benchmark
+    public TristateResult wildcardCheck(GroupTreeState tree) {
+        return this.wildcardProcessor.hasPermission(TristateResult.UNDEFINED, tree.check(this.index++));
+    }
+
+    @Benchmark
+    public TristateResult regexCheck(GroupTreeState tree) {
+        return this.regexProcessor.hasPermission(TristateResult.UNDEFINED, tree.check(this.index++));
+    }
+
+    @Benchmark
+    public WildcardProcessor wildcardBuild(GroupTreeState tree) {
+        return new WildcardProcessor(tree.sourceMap);
+    }
+
+    @Benchmark
+    public RegexProcessor regexBuild(GroupTreeState tree) {
+        return new RegexProcessor(tree.sourceMap);
+    }
+
+}
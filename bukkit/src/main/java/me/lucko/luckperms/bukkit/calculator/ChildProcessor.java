@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.bukkit.calculator;
 
+import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.bukkit.LPBukkitPlugin;
 import me.lucko.luckperms.bukkit.inject.server.LuckPermsPermissionMap;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
@@ -33,12 +34,16 @@ import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.util.Tristate;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Permission Processor for Bukkits "child" permission system.
+ *
+ * <p>The child permission closures are resolved and cached server-wide by the
+ * {@link LuckPermsPermissionMap} - this processor only holds references to the
+ * closures of the nodes in its source map.</p>
  */
 public class ChildProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(ChildProcessor.class);
@@ -47,7 +52,8 @@ public class ChildProcessor extends AbstractPermissionProcessor implements Permi
     private final Map<String, Node> sourceMap;
 
     private final AtomicBoolean needsRefresh = new AtomicBoolean(false);
-    private Map<String, TristateResult> childPermissions;
+    private List<ChildPermissions> childPermissions;
+    private int version;
 
     public ChildProcessor(LPBukkitPlugin plugin, Map<String, Node> sourceMap) {
         this.plugin = plugin;
@@ -56,15 +62,26 @@ public class ChildProcessor extends AbstractPermissionProcessor implements Permi
     }
 
     private void refresh() {
-        this.childPermissions = processChildPermissions(this.sourceMap, this.plugin.getPermissionMap());
+        LuckPermsPermissionMap permissionMap = this.plugin.getPermissionMap();
+
+        // read the version before resolving, so a concurrent change causes another refresh
+        this.version = permissionMap.getVersion();
+        this.childPermissions = processChildPermissions(this.sourceMap, permissionMap);
     }
 
     @Override
     public TristateResult hasPermission(String permission) {
-        if (this.needsRefresh.compareAndSet(true, false)) {
+        if (this.needsRefresh.compareAndSet(true, false) || this.version != this.plugin.getPermissionMap().getVersion()) {
             refresh();
         }
-        return this.childPermissions.getOrDefault(permission, TristateResult.UNDEFINED);
+
+        for (ChildPermissions entry : this.childPermissions) {
+            Boolean value = entry.children.get(permission);
+            if (value != null) {
+                return RESULT_FACTORY.resultWithOverride(entry.node, Tristate.of(value));
+            }
+        }
+        return TristateResult.UNDEFINED;
     }
 
     @Override
@@ -72,14 +89,29 @@ public class ChildProcessor extends AbstractPermissionProcessor implements Permi
         this.needsRefresh.set(true);
     }
 
-    private static Map<String, TristateResult> processChildPermissions(Map<String, Node> sourceMap, LuckPermsPermissionMap permissionMap) {
-        Map<String, TristateResult> childPermissions = new HashMap<>();
+    private static List<ChildPermissions> processChildPermissions(Map<String, Node> sourceMap, LuckPermsPermissionMap permissionMap) {
+        ImmutableList.Builder<ChildPermissions> childPermissions = ImmutableList.builder();
         sourceMap.forEach((key, node) -> {
             Map<String, Boolean> children = permissionMap.getChildPermissions(key, node.getValue());
-            children.forEach((childKey, childValue) -> {
-                childPermissions.put(childKey, RESULT_FACTORY.resultWithOverride(node, Tristate.of(childValue)));
-            });
+            if (!children.isEmpty()) {
+                childPermissions.add(new ChildPermissions(node, children));
+            }
         });
-        return childPermissions;
+
+        // when several nodes define the same child, the last one in the source map takes precedence
+        return childPermissions.build().reverse();
+    }
+
+    /**
+     * A node from the source map, and a reference to its (shared) child permission closure.
+     */
+    private static final class ChildPermissions {
+        private final Node node;
+        private final Map<String, Boolean> children;
+
+        ChildPermissions(Node node, Map<String, Boolean> children) {
+            this.node = node;
+            this.children = children;
+        }
     }
 }
@@ -42,6 +42,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -76,6 +77,9 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
     private final Map<String, Map<String, Boolean>> trueChildPermissions = LoadingMap.of(new ChildPermissionResolver(true));
     private final Map<String, Map<String, Boolean>> falseChildPermissions = LoadingMap.of(new ChildPermissionResolver(false));
 
+    // incremented each time the permission tree changes & the caches above are cleared
+    private final AtomicInteger version = new AtomicInteger();
+
     /**
      * The plugin instance
      */
@@ -86,11 +90,31 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
         putAll(existingData);
     }
 
+    /**
+     * Gets the (immutable) closure of child permissions for the given permission.
+     *
+     * <p>The returned maps are cached and shared until the permission tree next changes.</p>
+     *
+     * @param permission the permission
+     * @param value the value of the permission
+     * @return the child permissions
+     */
     public Map<String, Boolean> getChildPermissions(String permission, boolean value) {
         return value ? this.trueChildPermissions.get(permission) : this.falseChildPermissions.get(permission);
     }
 
+    /**
+     * Gets the current version of the permission tree, incremented each time
+     * a change invalidates the cached child permission closures.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return this.version.get();
+    }
+
     private void update() {
+        this.version.incrementAndGet();
         this.trueChildPermissions.clear();
         this.falseChildPermissions.clear();
         this.plugin.getUserManager().invalidateAllPermissionCalculators();
@@ -0,0 +1,77 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.bukkit.calculator;
+
+import com.google.common.collect.ImmutableMap;
+import me.lucko.luckperms.bukkit.LPBukkitPlugin;
+import me.lucko.luckperms.bukkit.inject.server.LuckPermsPermissionMap;
+import me.lucko.luckperms.common.cacheddata.result.TristateResult;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.PermissionNode;
+import net.luckperms.api.util.Tristate;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChildProcessorTest {
+
+    @Test
+    public void testConflictingChildren() {
+        Node first = PermissionNode.builder("test.first").build();
+        Node second = PermissionNode.builder("test.second").build();
+
+        LuckPermsPermissionMap permissionMap = mock(LuckPermsPermissionMap.class);
+        when(permissionMap.getChildPermissions("test.first", true)).thenReturn(ImmutableMap.of("test.child", true, "test.other", true));
+        when(permissionMap.getChildPermissions("test.second", true)).thenReturn(ImmutableMap.of("test.child", false));
+
+        LPBukkitPlugin plugin = mock(LPBukkitPlugin.class);
+        when(plugin.getPermissionMap()).thenReturn(permissionMap);
+
+        Map<String, Node> sourceMap = new LinkedHashMap<>();
+        sourceMap.put(first.getKey(), first);
+        sourceMap.put(second.getKey(), second);
+
+        ChildProcessor processor = new ChildProcessor(plugin, sourceMap);
+
+        // the node which comes last in the source map takes precedence
+        TristateResult child = processor.hasPermission("test.child");
+        assertEquals(Tristate.FALSE, child.result());
+        assertSame(second, child.node());
+
+        TristateResult other = processor.hasPermission("test.other");
+        assertEquals(Tristate.TRUE, other.result());
+        assertSame(first, other.node());
+
+        assertEquals(Tristate.UNDEFINED, processor.hasPermission("test.unknown").result());
+    }
+
+}
@@ -25,9 +25,12 @@
 
 package me.lucko.luckperms.common.actionlog.filter;
 
+import com.mongodb.client.model.Filters;
 import me.lucko.luckperms.common.filter.FilterField;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.mongo.FilterMongoBuilder;
 import net.luckperms.api.actionlog.Action;
+import org.bson.conversions.Bson;
 
 import java.util.UUID;
 
@@ -56,6 +59,25 @@ public final class ActionFilterMongoBuilder extends FilterMongoBuilder<Action> {
         throw new AssertionError(field);
     }
 
+    /**
+     * Creates a filter matching the given filters, restricted to entries which come
+     * after the given position when sorted by {@code timestamp} and {@code _id} descending.
+     *
+     * <p>Used to seek to the start of a page instead of skipping documents.</p>
+     *
+     * @param filters the filters
+     * @param timestamp the timestamp of the last entry on the previous page
+     * @param id the id of the last entry on the previous page
+     * @return the filter
+     */
+    public Bson makeAfter(FilterList<Action> filters, long timestamp, Object id) {
+        Bson after = Filters.or(
+                Filters.lt("timestamp", timestamp),
+                Filters.and(Filters.eq("timestamp", timestamp), Filters.lt("_id", id))
+        );
+        return filters.isEmpty() ? after : Filters.and(make(filters), after);
+    }
+
     @Override
     public Object mapConstraintValue(Object value) {
         if (value instanceof String | value instanceof UUID) {
@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.actionlog.filter;
 
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.filter.FilterField;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.sql.FilterSqlBuilder;
 import net.luckperms.api.actionlog.Action;
 
@@ -53,6 +54,32 @@ public class ActionFilterSqlBuilder extends FilterSqlBuilder<Action> {
         }
     }
 
+    /**
+     * Appends a where clause matching the given filters, restricted to entries
+     * which come after the given position when ordered by {@code time DESC, id DESC}.
+     *
+     * <p>Used to seek to the start of a page instead of using an offset.</p>
+     *
+     * @param filters the filters
+     * @param time the time of the last entry on the previous page
+     * @param id the id of the last entry on the previous page
+     */
+    public void visitAfter(FilterList<Action> filters, long time, long id) {
+        // ' WHERE (time < ? OR (time = ? AND id < ?))'
+        // ' WHERE (time < ? OR (time = ? AND id < ?)) AND (filters)'
+
+        this.builder.append(" WHERE (time < ").variable(time)
+                .append(" OR (time = ").variable(time)
+                .append(" AND id < ").variable(id)
+                .append("))");
+
+        if (!filters.isEmpty()) {
+            this.builder.append(" AND (");
+            visitConditions(filters.operator(), filters);
+            this.builder.append(')');
+        }
+    }
+
     @Override
     public void visitConstraintValue(Object value) {
         if (value instanceof String) {
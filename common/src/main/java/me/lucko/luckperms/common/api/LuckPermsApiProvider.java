@@ -31,6 +31,7 @@ import me.lucko.luckperms.common.api.implementation.ApiContextManager;
 import me.lucko.luckperms.common.api.implementation.ApiGroupManager;
 import me.lucko.luckperms.common.api.implementation.ApiMessagingService;
 import me.lucko.luckperms.common.api.implementation.ApiMetaStackFactory;
+import me.lucko.luckperms.common.api.implementation.ApiMetrics;
 import me.lucko.luckperms.common.api.implementation.ApiNodeBuilderRegistry;
 import me.lucko.luckperms.common.api.implementation.ApiNodeMatcherFactory;
 import me.lucko.luckperms.common.api.implementation.ApiPlatform;
@@ -58,6 +59,7 @@ import net.luckperms.api.model.user.UserManager;
 import net.luckperms.api.node.NodeBuilderRegistry;
 import net.luckperms.api.node.matcher.NodeMatcherFactory;
 import net.luckperms.api.platform.Health;
+import net.luckperms.api.platform.Metrics;
 import net.luckperms.api.platform.Platform;
 import net.luckperms.api.platform.PlayerAdapter;
 import net.luckperms.api.platform.PluginMetadata;
@@ -84,6 +86,7 @@ public class LuckPermsApiProvider implements LuckPerms {
     private final ActionLogger actionLogger;
     private final ContextManager contextManager;
     private final MetaStackFactory metaStackFactory;
+    private final Metrics metrics;
 
     public LuckPermsApiProvider(LuckPermsPlugin plugin) {
         this.plugin = plugin;
@@ -96,6 +99,7 @@ public class LuckPermsApiProvider implements LuckPerms {
         this.actionLogger = new ApiActionLogger(plugin);
         this.contextManager = new ApiContextManager(plugin, plugin.getContextManager());
         this.metaStackFactory = new ApiMetaStackFactory(plugin);
+        this.metrics = new ApiMetrics(plugin.getMetrics());
     }
 
     public void ensureApiWasLoadedByPlugin() {
@@ -180,6 +184,11 @@ public class LuckPermsApiProvider implements LuckPerms {
         return this.plugin.runHealthCheck();
     }
 
+    @Override
+    public @NonNull Metrics getMetrics() {
+        return this.metrics;
+    }
+
     @Override
     public @NonNull AbstractEventBus<?> getEventBus() {
         return this.plugin.getEventDispatcher().getEventBus();
@@ -83,8 +83,8 @@ public class ApiGroup extends ApiPermissionHolder implements net.luckperms.api.m
     protected void onNodeChange() {
         // invalidate caches - they have potentially been affected by
         // this change.
-        this.handle.getPlugin().getGroupManager().invalidateAllGroupCaches();
-        this.handle.getPlugin().getUserManager().invalidateAllUserCaches();
+        this.handle.getPlugin().getGroupManager().invalidateDependentGroupCaches(this.handle.getName());
+        this.handle.getPlugin().getUserManager().invalidateDependentUserCaches(this.handle.getName());
     }
 
     @Override
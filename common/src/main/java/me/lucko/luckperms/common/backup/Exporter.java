@@ -26,34 +26,34 @@
 package me.lucko.luckperms.common.backup;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import me.lucko.luckperms.common.http.AbstractHttpClient;
 import me.lucko.luckperms.common.http.UnsuccessfulRequestException;
 import me.lucko.luckperms.common.locale.Message;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
-import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
-import me.lucko.luckperms.common.storage.Storage;
-import me.lucko.luckperms.common.util.CompletableFutures;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JArray;
 import me.lucko.luckperms.common.util.gson.JObject;
 import net.kyori.adventure.text.Component;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
@@ -62,13 +62,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -77,6 +74,7 @@ import java.util.zip.GZIPOutputStream;
  */
 public abstract class Exporter implements Runnable {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(5);
 
     protected final LuckPermsPlugin plugin;
     private final Sender executor;
@@ -97,32 +95,49 @@ public abstract class Exporter implements Runnable {
 
     @Override
     public void run() {
-        JsonObject json = new JsonObject();
-        json.add("metadata", new JObject()
-                .add("generatedBy", this.executor.getNameWithLocation())
-                .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
-                .toJson());
-
-        if (this.includeGroups) {
-            this.log.log("Gathering group data...");
-            json.add("groups", exportGroups());
-
-            this.log.log("Gathering track data...");
-            json.add("tracks", exportTracks());
-        }
+        try {
+            write("metadata", null, new JObject()
+                    .add("generatedBy", this.executor.getNameWithLocation())
+                    .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
+                    .toJson());
+
+            if (this.includeGroups) {
+                this.log.log("Gathering group data...");
+                exportGroups();
 
-        if (this.includeUsers) {
-            this.log.log("Gathering user data...");
-            json.add("users", exportUsers());
+                this.log.log("Gathering track data...");
+                exportTracks();
+            }
+
+            if (this.includeUsers) {
+                this.log.log("Gathering user data...");
+                exportUsers();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            this.plugin.getLogger().severe("Error whilst exporting data", e);
+            this.log.getListeners().forEach(Message.EXPORT_FILE_FAILURE::send);
+            return;
         }
 
-        processOutput(json);
+        complete();
     }
 
-    protected abstract void processOutput(JsonObject json);
-
-    private JsonObject exportGroups() {
-        JsonObject out = new JsonObject();
+    /**
+     * Writes an exported entry.
+     *
+     * @param section the section the entry belongs to, either "metadata", "groups", "tracks" or "users"
+     * @param key the key of the entry within the section, or null for the metadata section
+     * @param data the entry data
+     * @throws IOException if an error occurs
+     */
+    protected abstract void write(String section, @Nullable String key, JsonObject data) throws IOException;
+
+    /**
+     * Called once all entries have been written.
+     */
+    protected abstract void complete();
+
+    private void exportGroups() throws IOException {
         List<Group> groups = this.plugin.getGroupManager().getAll().values().stream()
                 .sorted(Comparator.<Group>comparingInt(o -> o.getWeight().orElse(0)).reversed()
                         .thenComparing(Group::getName)
@@ -130,97 +145,116 @@ public abstract class Exporter implements Runnable {
                 .collect(Collectors.toList());
 
         for (Group group : groups) {
-            out.add(group.getName(), new JObject()
+            write("groups", group.getName(), new JObject()
                     .add("nodes", NodeJsonSerializer.serializeNodes(group.normalData().asSet()))
                     .toJson());
         }
-        return out;
     }
 
-    private JsonObject exportTracks() {
-        JsonObject out = new JsonObject();
+    private void exportTracks() throws IOException {
         Collection<Track> tracks = this.plugin.getTrackManager().getAll().values().stream()
                 .sorted(Comparator.comparing(Track::getName))
                 .collect(Collectors.toList());
 
         for (Track track : tracks) {
-            out.add(track.getName(), new JObject()
+            write("tracks", track.getName(), new JObject()
                     .add("groups", new JArray().consume(arr -> track.getGroups().forEach(arr::add)))
                     .toJson());
         }
-        return out;
     }
 
-    private JsonObject exportUsers() {
-        // Users are migrated in separate threads.
-        // This is because there are likely to be a lot of them, and because we can.
-        // It's a big speed improvement, since the database/files are split up and can handle concurrent reads.
+    private void exportUsers() {
+        // Users are read from storage one page at a time and written out as they arrive,
+        // so only a single page needs to be held in memory at once.
+        AtomicInteger userCount = new AtomicInteger(0);
+        AtomicLong lastProgress = new AtomicLong(System.currentTimeMillis());
+
+        try {
+            this.plugin.getStorage().iterateUsers(user -> {
+                try {
+                    write("users", user.getUniqueId().toString(), serializeUser(user));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                int count = userCount.incrementAndGet();
+                long now = System.currentTimeMillis();
+                if (now - lastProgress.get() >= PROGRESS_INTERVAL) {
+                    lastProgress.set(now);
+                    this.log.logProgress("Exported " + count + " users so far.");
+                }
+            }).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw e;
+        }
 
-        this.log.log("Finding a list of unique users to export.");
+        this.log.log("Exported " + userCount.get() + " users.");
+    }
 
-        // Find all of the unique users we need to export
-        Storage ds = this.plugin.getStorage();
-        Set<UUID> users = ds.getUniqueUsers().join();
-        this.log.log("Found " + users.size() + " unique users to export.");
+    private static JsonObject serializeUser(StoredUser user) {
+        return new JObject()
+                .consume(obj -> {
+                    if (user.getUsername() != null) {
+                        obj.add("username", user.getUsername());
+                    }
+                    if (user.getPrimaryGroup() != null && !user.getPrimaryGroup().equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
+                        obj.add("primaryGroup", user.getPrimaryGroup());
+                    }
+                })
+                .add("nodes", NodeJsonSerializer.serializeNodes(user.getNodes()))
+                .toJson();
+    }
 
-        // create a threadpool to process the users concurrently
-        ExecutorService executor = Executors.newFixedThreadPool(32);
+    /**
+     * An exporter which collects all entries into a single json object.
+     */
+    private abstract static class JsonExporter extends Exporter {
+        private final JsonObject json = new JsonObject();
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
+        // users arrive in storage iteration order, so collect them here to write them out sorted
+        private final Map<UUID, JsonObject> users = new TreeMap<>();
 
-        AtomicInteger userCount = new AtomicInteger(0);
-        Map<UUID, JsonObject> out = Collections.synchronizedMap(new TreeMap<>());
-
-        // iterate through each user.
-        for (UUID uuid : users) {
-            // register a task for the user, and schedule it's execution with the pool
-            futures.add(CompletableFuture.runAsync(() -> {
-                User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                out.put(user.getUniqueId(), new JObject()
-                        .consume(obj -> {
-                            user.getUsername().ifPresent(username -> obj.add("username", username));
-                            if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
-                                obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
-                            }
-                        })
-                        .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
-                        .toJson());
-                this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
-                userCount.incrementAndGet();
-            }, executor));
+        JsonExporter(LuckPermsPlugin plugin, Sender executor, boolean includeUsers, boolean includeGroups) {
+            super(plugin, executor, includeUsers, includeGroups);
         }
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFutures.allOf(futures);
+        @Override
+        protected void write(String section, @Nullable String key, JsonObject data) {
+            if (key == null) {
+                this.json.add(section, data);
+                return;
+            }
 
-        while (true) {
-            try {
-                overallFuture.get(5, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
-                // abnormal error - just break
-                e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                this.log.logProgress("Exported " + userCount.get() + " users so far.");
-                continue;
+            if (section.equals("users")) {
+                this.users.put(UUID.fromString(key), data);
+                return;
             }
 
-            // process is complete
-            break;
+            JsonObject sectionObject = this.json.getAsJsonObject(section);
+            if (sectionObject == null) {
+                sectionObject = new JsonObject();
+                this.json.add(section, sectionObject);
+            }
+            sectionObject.add(key, data);
         }
 
-        executor.shutdown();
-
-        JsonObject outJson = new JsonObject();
-        for (Map.Entry<UUID, JsonObject> entry : out.entrySet()) {
-            outJson.add(entry.getKey().toString(), entry.getValue());
+        @Override
+        protected void complete() {
+            if (!this.users.isEmpty()) {
+                JsonObject usersObject = new JsonObject();
+                this.users.forEach((uuid, data) -> usersObject.add(uuid.toString(), data));
+                this.json.add("users", usersObject);
+            }
+            processOutput(this.json);
         }
-        return outJson;
+
+        protected abstract void processOutput(JsonObject json);
     }
 
-    public static final class SaveFile extends Exporter {
+    public static final class SaveFile extends JsonExporter {
         private final Path filePath;
 
         public SaveFile(LuckPermsPlugin plugin, Sender executor, Path filePath, boolean includeUsers, boolean includeGroups) {
@@ -242,7 +276,56 @@ public abstract class Exporter implements Runnable {
         }
     }
 
-    public static final class WebUpload extends Exporter {
+    /**
+     * Writes entries to a gzipped file as they are exported, one json object per line.
+     *
+     * <p>Each line has the form {@code {"section": ..., "key": ..., "data": ...}},
+     * matching the structure of the regular json export.</p>
+     */
+    public static final class SaveStreamingFile extends Exporter {
+        private final Path filePath;
+        private Writer out;
+        private JsonWriter writer;
+
+        public SaveStreamingFile(LuckPermsPlugin plugin, Sender executor, Path filePath, boolean includeUsers, boolean includeGroups) {
+            super(plugin, executor, includeUsers, includeGroups);
+            this.filePath = filePath;
+        }
+
+        @Override
+        public void run() {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8))) {
+                this.out = out;
+                this.writer = new JsonWriter(out);
+                this.writer.setLenient(true); // allow multiple top-level values
+
+                super.run();
+            } catch (IOException e) {
+                this.plugin.getLogger().severe("Error whilst writing to the export file", e);
+                this.log.getListeners().forEach(Message.EXPORT_FILE_FAILURE::send);
+            }
+        }
+
+        @Override
+        protected void write(String section, @Nullable String key, JsonObject data) throws IOException {
+            this.writer.beginObject();
+            this.writer.name("section").value(section);
+            if (key != null) {
+                this.writer.name("key").value(key);
+            }
+            this.writer.name("data");
+            GsonProvider.normal().toJson(data, this.writer);
+            this.writer.endObject();
+            this.out.write('\n');
+        }
+
+        @Override
+        protected void complete() {
+            this.log.getListeners().forEach(l -> Message.EXPORT_FILE_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
+        }
+    }
+
+    public static final class WebUpload extends JsonExporter {
         private final String label;
 
         public WebUpload(LuckPermsPlugin plugin, Sender executor, boolean includeUsers, boolean includeGroups, String label) {
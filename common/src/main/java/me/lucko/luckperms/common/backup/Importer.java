@@ -38,15 +38,22 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
 import me.lucko.luckperms.common.util.CompletableFutures;
 import me.lucko.luckperms.common.util.Uuids;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -57,21 +64,26 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Handles import operations
  */
 public class Importer implements Runnable {
+    private static final int THREADS = 16;
+    private static final int USER_BATCH_SIZE = 500;
 
     private final LuckPermsPlugin plugin;
     private final Set<Sender> notify;
-    private final JsonObject data;
+    private final DataSource source;
     private final boolean merge;
 
-    public Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data, boolean merge) {
+    private Importer(LuckPermsPlugin plugin, Sender executor, DataSource source, boolean merge) {
         this.plugin = plugin;
 
         if (executor.isConsole()) {
@@ -79,16 +91,62 @@ public class Importer implements Runnable {
         } else {
             this.notify = ImmutableSet.of(executor, plugin.getConsoleSender());
         }
-        this.data = data;
+        this.source = source;
         this.merge = merge;
     }
 
+    public Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data, boolean merge) {
+        this(plugin, executor, consumer -> {
+            if (data.has("knownPermissions")) {
+                consumer.info("The data appears to be from a web editor upload - attempting to recover from it");
+                readWebEditorData(data, consumer);
+            } else {
+                readExportData(data, consumer);
+            }
+        }, merge);
+    }
+
+    /**
+     * Creates an importer which reads the output of a
+     * {@link Exporter.SaveStreamingFile streaming export} incrementally.
+     *
+     * @param plugin the plugin
+     * @param executor the sender who started the import
+     * @param file the file to read from
+     * @param merge if the data should be merged with the existing data
+     * @return the importer
+     */
+    public static Importer streaming(LuckPermsPlugin plugin, Sender executor, Path file, boolean merge) {
+        return new Importer(plugin, executor, consumer -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                readStreamingExportData(reader, consumer);
+            }
+        }, merge);
+    }
+
+    @FunctionalInterface
+    private interface DataSource {
+        void read(EntryConsumer consumer) throws IOException;
+    }
+
+    private interface EntryConsumer {
+        void info(String message);
+
+        void group(String name, Set<Node> nodes);
+
+        void track(String name, List<String> groups);
+
+        void user(UserData user);
+    }
+
     private static final class UserData {
+        private final UUID uniqueId;
         private final String username;
         private final String primaryGroup;
         private final Set<Node> nodes;
 
-        UserData(String username, String primaryGroup, Set<Node> nodes) {
+        UserData(UUID uniqueId, String username, String primaryGroup, Set<Node> nodes) {
+            this.uniqueId = uniqueId;
             this.username = username;
             this.primaryGroup = primaryGroup;
             this.nodes = nodes;
@@ -111,59 +169,121 @@ public class Importer implements Runnable {
         this.plugin.getStorage().saveTrack(track).join();
     }
 
-    private void processUser(UUID uuid, UserData userData) {
-        User user = this.plugin.getStorage().loadUser(uuid, userData.username).join();
-        if (userData.primaryGroup != null) {
-            user.getPrimaryGroup().setStoredValue(userData.primaryGroup);
-        }
+    private void processUsers(List<UserData> batch) {
+        Map<UUID, User> existing = Collections.emptyMap();
         if (this.merge) {
-            user.mergeNodes(DataType.NORMAL, userData.nodes);
-        } else {
-            user.setNodes(DataType.NORMAL, userData.nodes, false);
+            Set<UUID> uniqueIds = batch.stream().map(u -> u.uniqueId).collect(Collectors.toSet());
+            existing = this.plugin.getStorage().loadUsers(uniqueIds).join();
+        }
+
+        List<StoredUser> users = new ArrayList<>(batch.size());
+        for (UserData userData : batch) {
+            User user = existing.get(userData.uniqueId);
+
+            StoredUser storedUser;
+            if (user != null) {
+                if (userData.username != null) {
+                    user.setUsername(userData.username, false);
+                }
+                if (userData.primaryGroup != null) {
+                    user.getPrimaryGroup().setStoredValue(userData.primaryGroup);
+                }
+                user.mergeNodes(DataType.NORMAL, userData.nodes);
+                storedUser = StoredUser.of(user);
+            } else {
+                storedUser = StoredUser.of(userData.uniqueId, userData.username, userData.primaryGroup, userData.nodes);
+            }
+
+            // if the user only has the default group, their data is removed - the same as when saving normally
+            if (storedUser.getNodes().stream().allMatch(this.plugin.getUserManager()::isDefaultNode)) {
+                storedUser = StoredUser.of(storedUser.getUniqueId(), storedUser.getUsername(), null, Collections.emptySet());
+            }
+            users.add(storedUser);
+        }
+
+        this.plugin.getStorage().saveUsers(users).join();
+
+        for (UUID uniqueId : existing.keySet()) {
+            this.plugin.getUserManager().getHouseKeeper().cleanup(uniqueId);
         }
-        this.plugin.getStorage().saveUser(user).join();
-        this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
     }
 
-    private Set<Map.Entry<String, JsonElement>> getDataSection(String id) {
-        if (this.data.has(id)) {
-            return this.data.get(id).getAsJsonObject().entrySet();
+    private static Set<Map.Entry<String, JsonElement>> getDataSection(JsonObject data, String id) {
+        if (data.has(id)) {
+            return data.get(id).getAsJsonObject().entrySet();
         } else {
             return Collections.emptySet();
         }
     }
 
-    private void parseExportData(Map<String, Set<Node>> groups, Map<String, List<String>> tracks, Map<UUID, UserData> users) {
-        for (Map.Entry<String, JsonElement> group : getDataSection("groups")) {
-            groups.put(group.getKey(), NodeJsonSerializer.deserializeNodes(group.getValue().getAsJsonObject().get("nodes").getAsJsonArray()));
+    private static void readExportData(JsonObject data, EntryConsumer consumer) {
+        for (Map.Entry<String, JsonElement> group : getDataSection(data, "groups")) {
+            consumer.group(group.getKey(), parseGroup(group.getValue().getAsJsonObject()));
         }
-        for (Map.Entry<String, JsonElement> track : getDataSection("tracks")) {
-            JsonArray trackGroups = track.getValue().getAsJsonObject().get("groups").getAsJsonArray();
-            List<String> trackGroupsList = new ArrayList<>();
-            trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
-            tracks.put(track.getKey(), trackGroupsList);
+        for (Map.Entry<String, JsonElement> track : getDataSection(data, "tracks")) {
+            consumer.track(track.getKey(), parseTrack(track.getValue().getAsJsonObject()));
         }
-        for (Map.Entry<String, JsonElement> user : getDataSection("users")) {
-            JsonObject jsonData = user.getValue().getAsJsonObject();
-
-            UUID uuid = UUID.fromString(user.getKey());
-            String username = null;
-            String primaryGroup = null;
-            Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+        for (Map.Entry<String, JsonElement> user : getDataSection(data, "users")) {
+            consumer.user(parseUser(user.getKey(), user.getValue().getAsJsonObject()));
+        }
+    }
 
-            if (jsonData.has("username")) {
-                username = jsonData.get("username").getAsString();
+    private static void readStreamingExportData(BufferedReader reader, EntryConsumer consumer) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
             }
-            if (jsonData.has("primaryGroup")) {
-                primaryGroup = jsonData.get("primaryGroup").getAsString();
+
+            JsonObject entry = GsonProvider.normal().fromJson(line, JsonObject.class);
+            String section = entry.get("section").getAsString();
+            JsonObject data = entry.getAsJsonObject("data");
+
+            switch (section) {
+                case "groups":
+                    consumer.group(entry.get("key").getAsString(), parseGroup(data));
+                    break;
+                case "tracks":
+                    consumer.track(entry.get("key").getAsString(), parseTrack(data));
+                    break;
+                case "users":
+                    consumer.user(parseUser(entry.get("key").getAsString(), data));
+                    break;
+                default:
+                    break;
             }
+        }
+    }
+
+    private static Set<Node> parseGroup(JsonObject jsonData) {
+        return NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+    }
+
+    private static List<String> parseTrack(JsonObject jsonData) {
+        JsonArray trackGroups = jsonData.get("groups").getAsJsonArray();
+        List<String> trackGroupsList = new ArrayList<>();
+        trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
+        return trackGroupsList;
+    }
+
+    private static UserData parseUser(String key, JsonObject jsonData) {
+        UUID uuid = UUID.fromString(key);
+        String username = null;
+        String primaryGroup = null;
+        Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
 
-            users.put(uuid, new UserData(username, primaryGroup, nodes));
+        if (jsonData.has("username")) {
+            username = jsonData.get("username").getAsString();
         }
+        if (jsonData.has("primaryGroup")) {
+            primaryGroup = jsonData.get("primaryGroup").getAsString();
+        }
+
+        return new UserData(uuid, username, primaryGroup, nodes);
     }
 
-    private void parseWebEditorData(Map<String, Set<Node>> groups, Map<String, List<String>> tracks, Map<UUID, UserData> users) {
-        JsonArray holdersArray = this.data.get("permissionHolders").getAsJsonArray();
+    private static void readWebEditorData(JsonObject data, EntryConsumer consumer) {
+        JsonArray holdersArray = data.get("permissionHolders").getAsJsonArray();
         for (JsonElement holderElement : holdersArray) {
             JsonObject jsonData = holderElement.getAsJsonObject();
 
@@ -171,7 +291,7 @@ public class Importer implements Runnable {
             String id = jsonData.get("id").getAsString();
 
             if (type == HolderType.GROUP) {
-                groups.put(id, NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray()));
+                consumer.group(id, NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray()));
             } else {
                 UUID uuid = UUID.fromString(id);
                 String username = null;
@@ -182,20 +302,16 @@ public class Importer implements Runnable {
                 }
 
                 Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
-                users.put(uuid, new UserData(username, null, nodes));
+                consumer.user(new UserData(uuid, username, null, nodes));
             }
         }
 
-        JsonArray tracksArray = this.data.get("tracks").getAsJsonArray();
+        JsonArray tracksArray = data.get("tracks").getAsJsonArray();
         for (JsonElement trackElement : tracksArray) {
             JsonObject jsonData = trackElement.getAsJsonObject();
 
             String name = jsonData.get("id").getAsString();
-            JsonArray trackGroups = jsonData.get("groups").getAsJsonArray();
-
-            List<String> trackGroupsList = new ArrayList<>();
-            trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
-            tracks.put(name, trackGroupsList);
+            consumer.track(name, parseTrack(jsonData));
         }
     }
 
@@ -204,62 +320,25 @@ public class Importer implements Runnable {
         long startTime = System.currentTimeMillis();
         this.notify.forEach(Message.IMPORT_START::send);
 
-        // start an update task in the background - we'll #join this later
-        CompletableFuture<Void> updateTask = CompletableFuture.runAsync(() -> this.plugin.getSyncTaskBuffer().requestDirectly());
-
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
-
-        Map<String, Set<Node>> groups = new HashMap<>();
-        Map<String, List<String>> tracks = new HashMap<>();
-        Map<UUID, UserData> users = new HashMap<>();
-
-        if (this.data.has("knownPermissions")) {
-            this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "The data appears to be from a web editor upload - attempting to recover from it"));
-            parseWebEditorData(groups, tracks, users);
-        } else {
-            parseExportData(groups, tracks, users);
-        }
-
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Waiting for initial update task to complete..."));
 
-        // join the update task future before scheduling command executions
-        updateTask.join();
+        // ensure the latest data is loaded before anything is imported
+        this.plugin.getSyncTaskBuffer().requestDirectly();
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Setting up data processor..."));
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data and scheduling it for import..."));
 
-        // create a threadpool for the processing
-        ExecutorService executor = Executors.newFixedThreadPool(16, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
-
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
-
-        int total = 0;
-        AtomicInteger processedCount = new AtomicInteger(0);
-
-        for (Map.Entry<String, Set<Node>> group : groups.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(group).thenAcceptAsync(ent -> {
-                processGroup(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<String, List<String>> track : tracks.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(track).thenAcceptAsync(ent -> {
-                processTrack(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<UUID, UserData> user : users.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(user).thenAcceptAsync(ent -> {
-                processUser(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+        Processor processor = new Processor();
+        boolean readFailed = false;
+        try {
+            this.source.read(processor);
+        } catch (Exception e) {
+            readFailed = true;
+            this.plugin.getLogger().severe("Exception whilst reading the import data", e);
+            this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Unable to read all of the data - only the entries read so far will be imported."));
         }
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFutures.allOf(futures);
+        // all of the entries have been scheduled now. we just need to wait for them all to complete
+        CompletableFuture<Void> overallFuture = processor.complete();
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been processed and scheduled for import - now waiting for the execution to complete."));
 
@@ -272,7 +351,7 @@ public class Importer implements Runnable {
                 break;
             } catch (TimeoutException e) {
                 // still executing - send a progress report and continue waiting
-                sendProgress(processedCount.get(), total);
+                sendProgress(processor.processedCount.get(), processor.total);
                 continue;
             }
 
@@ -280,7 +359,17 @@ public class Importer implements Runnable {
             break;
         }
 
-        executor.shutdown();
+        processor.executor.shutdown();
+
+        // users are written to storage directly, so reload anything which is currently loaded
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Refreshing loaded data..."));
+        this.plugin.getSyncTaskBuffer().requestDirectly();
+
+        // the data was only partially imported, so don't report success
+        if (readFailed) {
+            this.notify.forEach(Message.IMPORT_FILE_READ_FAILURE::send);
+            return;
+        }
 
         long endTime = System.currentTimeMillis();
         double seconds = (endTime - startTime) / 1000.0;
@@ -289,8 +378,88 @@ public class Importer implements Runnable {
     }
 
     private void sendProgress(int processedCount, int total) {
-        int percent = processedCount * 100 / total;
+        int percent = total == 0 ? 100 : processedCount * 100 / total;
         this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total));
     }
 
+    /**
+     * Schedules entries for import as they are read.
+     *
+     * <p>Groups and tracks are imported individually, and users are written in batches.</p>
+     */
+    private final class Processor implements EntryConsumer {
+        private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
+
+        // limit the number of user batches waiting to be written, so the data
+        // is only read as fast as it can be saved
+        private final Semaphore pendingBatches = new Semaphore(THREADS * 2);
+
+        // A set of futures, which are really just the processes we need to wait for.
+        private final Set<CompletableFuture<Void>> futures = new HashSet<>();
+        private final AtomicInteger processedCount = new AtomicInteger(0);
+        private int total = 0;
+
+        private List<UserData> batch = new ArrayList<>(USER_BATCH_SIZE);
+
+        @Override
+        public void info(String message) {
+            Importer.this.notify.forEach(s -> Message.IMPORT_INFO.send(s, message));
+        }
+
+        @Override
+        public void group(String name, Set<Node> nodes) {
+            this.futures.add(CompletableFuture.runAsync(() -> {
+                processGroup(name, nodes);
+                this.processedCount.incrementAndGet();
+            }, this.executor));
+            this.total++;
+        }
+
+        @Override
+        public void track(String name, List<String> groups) {
+            this.futures.add(CompletableFuture.runAsync(() -> {
+                processTrack(name, groups);
+                this.processedCount.incrementAndGet();
+            }, this.executor));
+            this.total++;
+        }
+
+        @Override
+        public void user(UserData user) {
+            this.batch.add(user);
+            this.total++;
+
+            if (this.batch.size() >= USER_BATCH_SIZE) {
+                flushUsers();
+            }
+        }
+
+        private void flushUsers() {
+            if (this.batch.isEmpty()) {
+                return;
+            }
+
+            List<UserData> users = this.batch;
+            this.batch = new ArrayList<>(USER_BATCH_SIZE);
+
+            this.pendingBatches.acquireUninterruptibly();
+            this.futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    processUsers(users);
+                    // only count the users once they have actually been saved
+                    this.processedCount.addAndGet(users.size());
+                } catch (Exception e) {
+                    Importer.this.plugin.getLogger().severe("Exception whilst importing a batch of " + users.size() + " users", e);
+                } finally {
+                    this.pendingBatches.release();
+                }
+            }, this.executor));
+        }
+
+        CompletableFuture<Void> complete() {
+            flushUsers();
+            return CompletableFutures.allOf(this.futures);
+        }
+    }
+
 }
@@ -0,0 +1,249 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.bulkupdate;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import me.lucko.luckperms.common.bulkupdate.action.BulkUpdateAction;
+import me.lucko.luckperms.common.bulkupdate.action.DeleteAction;
+import me.lucko.luckperms.common.bulkupdate.action.UpdateAction;
+import me.lucko.luckperms.common.filter.Comparison;
+import me.lucko.luckperms.common.filter.Constraint;
+import me.lucko.luckperms.common.filter.Filter;
+import me.lucko.luckperms.common.filter.FilterField;
+import me.lucko.luckperms.common.filter.FilterList;
+import me.lucko.luckperms.common.filter.mongo.FilterMongoBuilder;
+import net.luckperms.api.context.DefaultContextKeys;
+import net.luckperms.api.node.Node;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Translates a {@link BulkUpdate} into an update which can be executed by MongoDB,
+ * against documents that store their nodes in a "permissions" array.
+ *
+ * <p>String comparisons are made case-insensitively, to match the behaviour of
+ * {@link BulkUpdate#apply(java.util.Set, me.lucko.luckperms.common.model.HolderType)}.</p>
+ */
+public class BulkUpdateMongoBuilder extends FilterMongoBuilder<Node> {
+
+    // the identifier used to refer to matching nodes in array filters
+    private static final String NODE_IDENTIFIER = "node";
+
+    /**
+     * Returns if the given bulk update can be translated into a server-side update.
+     *
+     * <p>Updates to the server or world of a node can't be expressed as a simple
+     * update of the node document, so must be applied in memory instead.</p>
+     *
+     * @param update the update
+     * @return true if the update can be translated
+     */
+    public static boolean canTranslate(BulkUpdate update) {
+        BulkUpdateAction action = update.getAction();
+        if (action instanceof DeleteAction) {
+            return true;
+        }
+        return action instanceof UpdateAction && ((UpdateAction) action).getField() == BulkUpdateField.PERMISSION;
+    }
+
+    /**
+     * Creates a filter matching the documents which contain at least one node
+     * affected by the update.
+     *
+     * @param update the update
+     * @return the document filter
+     */
+    public static Bson makeDocumentFilter(BulkUpdate update) {
+        FilterList<Node> filters = update.getFilters();
+        if (filters.isEmpty()) {
+            return Filters.exists("permissions.0");
+        }
+        return Filters.elemMatch("permissions", new BulkUpdateMongoBuilder("").make(filters));
+    }
+
+    /**
+     * Creates a filter matching the nodes affected by the update, once the
+     * "permissions" array has been unwound.
+     *
+     * @param update the update
+     * @return the node filter
+     */
+    public static Bson makeUnwoundNodeFilter(BulkUpdate update) {
+        return new BulkUpdateMongoBuilder("permissions.").make(update.getFilters());
+    }
+
+    /**
+     * Creates the update to apply to each document matched by {@link #makeDocumentFilter(BulkUpdate)}.
+     *
+     * @param update the update
+     * @return the update
+     */
+    public static Bson makeUpdate(BulkUpdate update) {
+        BulkUpdateAction action = update.getAction();
+        FilterList<Node> filters = update.getFilters();
+
+        if (action instanceof DeleteAction) {
+            if (filters.isEmpty()) {
+                return Updates.set("permissions", Collections.emptyList());
+            }
+            return Updates.pullByFilter(new Document("permissions", new BulkUpdateMongoBuilder("").make(filters)));
+        }
+
+        if (action instanceof UpdateAction && ((UpdateAction) action).getField() == BulkUpdateField.PERMISSION) {
+            String positional = filters.isEmpty() ? "$[]" : "$[" + NODE_IDENTIFIER + "]";
+            return Updates.set("permissions." + positional + ".key", ((UpdateAction) action).getNewValue());
+        }
+
+        throw new AssertionError(action);
+    }
+
+    /**
+     * Creates the array filters to pass alongside the {@link #makeUpdate(BulkUpdate) update}.
+     *
+     * @param update the update
+     * @return the array filters, or null if none are needed
+     */
+    public static @Nullable List<Bson> makeArrayFilters(BulkUpdate update) {
+        FilterList<Node> filters = update.getFilters();
+        if (!(update.getAction() instanceof UpdateAction) || filters.isEmpty()) {
+            return null;
+        }
+        return Collections.singletonList(new BulkUpdateMongoBuilder(NODE_IDENTIFIER + ".").make(filters));
+    }
+
+    /**
+     * Creates a filter matching the documents which may contain duplicate nodes
+     * after the {@link #makeUpdate(BulkUpdate) update} has been applied.
+     *
+     * <p>Renaming a node can make it identical to another node already held by the
+     * same document. Applying the update in memory merges these, as nodes are held
+     * in a set, so the server-side update needs a second pass to do the same.</p>
+     *
+     * @param update the update
+     * @return the document filter, or null if the update can't produce duplicates
+     */
+    public static @Nullable Bson makeDeduplicateFilter(BulkUpdate update) {
+        BulkUpdateAction action = update.getAction();
+        if (!(action instanceof UpdateAction)) {
+            return null;
+        }
+        return Filters.elemMatch("permissions", Filters.eq("key", ((UpdateAction) action).getNewValue()));
+    }
+
+    /**
+     * Creates an update pipeline which removes duplicate nodes from the "permissions" array.
+     *
+     * @return the update pipeline
+     */
+    public static List<Bson> makeDeduplicateUpdate() {
+        // $setUnion with an empty array returns the distinct elements of the array
+        return Collections.singletonList(new Document("$set", new Document("permissions",
+                new Document("$setUnion", Arrays.asList("$permissions", Collections.emptyList()))
+        )));
+    }
+
+    // the prefix to apply to node field names
+    private final String fieldPrefix;
+
+    public BulkUpdateMongoBuilder(String fieldPrefix) {
+        this.fieldPrefix = fieldPrefix;
+    }
+
+    @Override
+    public String mapFieldName(FilterField<Node, ?> field) {
+        if (field == BulkUpdateField.PERMISSION) {
+            return this.fieldPrefix + "key";
+        } else if (field == BulkUpdateField.SERVER || field == BulkUpdateField.WORLD) {
+            return this.fieldPrefix + "context";
+        } else {
+            throw new AssertionError(field);
+        }
+    }
+
+    @Override
+    public Bson make(Filter<Node, ?> filter) {
+        FilterField<Node, ?> field = filter.field();
+        if (field == BulkUpdateField.PERMISSION) {
+            return make(filter.constraint(), mapFieldName(field));
+        }
+
+        String contextKey = field == BulkUpdateField.SERVER ? DefaultContextKeys.SERVER_KEY : DefaultContextKeys.WORLD_KEY;
+        String fieldName = mapFieldName(field);
+
+        Bson matchingContext = Filters.elemMatch(fieldName, Filters.and(
+                Filters.eq("key", contextKey),
+                make(filter.constraint(), "value")
+        ));
+
+        // nodes without the context are treated as having the value "global"
+        @SuppressWarnings("unchecked")
+        Constraint<String> constraint = (Constraint<String>) filter.constraint();
+        if (constraint.evaluate("global")) {
+            return Filters.or(matchingContext, Filters.not(Filters.elemMatch(fieldName, Filters.eq("key", contextKey))));
+        }
+        return matchingContext;
+    }
+
+    @Override
+    public Bson make(Constraint<?> constraint, String fieldName) {
+        Comparison comparison = constraint.comparison();
+        Object value = constraint.value();
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Unable to create comparison for non-string type: " + value.getClass().getName());
+        }
+
+        switch (comparison) {
+            case EQUAL:
+                return Filters.regex(fieldName, exactPattern((String) value));
+            case NOT_EQUAL:
+                return Filters.not(Filters.regex(fieldName, exactPattern((String) value)));
+            case SIMILAR:
+                return Filters.regex(fieldName, similarPattern((String) value));
+            case NOT_SIMILAR:
+                return Filters.not(Filters.regex(fieldName, similarPattern((String) value)));
+            default:
+                throw new AssertionError(comparison);
+        }
+    }
+
+    private static Pattern exactPattern(String value) {
+        return Pattern.compile("^" + Pattern.quote(value) + "$", Pattern.CASE_INSENSITIVE);
+    }
+
+    private static Pattern similarPattern(String value) {
+        // patterns are matched against the whole value in memory, so anchor them here too
+        String pattern = Comparison.compilePatternForLikeSyntax(value).pattern();
+        return Pattern.compile("^(?:" + pattern + ")$", Pattern.CASE_INSENSITIVE);
+    }
+
+}
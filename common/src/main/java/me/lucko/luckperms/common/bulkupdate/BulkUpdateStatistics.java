@@ -27,34 +27,39 @@ package me.lucko.luckperms.common.bulkupdate;
 
 import me.lucko.luckperms.common.model.HolderType;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Keeps track of the number of nodes, users and groups that were affected in a BulkUpdate operation.
+ *
+ * <p>The counters may be incremented concurrently, as some storage implementations
+ * apply the operation to multiple holders in parallel.</p>
  */
 public final class BulkUpdateStatistics {
 
     // the number of users that had their nodes updated/deleted due to the bulk update
-    private int affectedUsers = 0;
+    private final AtomicInteger affectedUsers = new AtomicInteger();
 
     // the number of groups that had their nodes updated/deleted
-    private int affectedGroups = 0;
+    private final AtomicInteger affectedGroups = new AtomicInteger();
 
     // the total number of affected nodes
-    private int affectedNodes = 0;
+    private final AtomicInteger affectedNodes = new AtomicInteger();
 
     public BulkUpdateStatistics() {
 
     }
 
     public int getAffectedNodes() {
-        return this.affectedNodes;
+        return this.affectedNodes.get();
     }
 
     public int getAffectedUsers() {
-        return this.affectedUsers;
+        return this.affectedUsers.get();
     }
 
     public int getAffectedGroups() {
-        return this.affectedGroups;
+        return this.affectedGroups.get();
     }
 
     public void incrementAffectedNodes() {
@@ -74,15 +79,15 @@ public final class BulkUpdateStatistics {
     }
 
     public void incrementAffectedNodes(int delta) {
-        this.affectedNodes += delta;
+        this.affectedNodes.addAndGet(delta);
     }
 
     public void incrementAffectedUsers(int delta) {
-        this.affectedUsers += delta;
+        this.affectedUsers.addAndGet(delta);
     }
 
     public void incrementAffectedGroups(int delta) {
-        this.affectedGroups += delta;
+        this.affectedGroups.addAndGet(delta);
     }
 
     public void incrementAffected(HolderType type, int delta) {
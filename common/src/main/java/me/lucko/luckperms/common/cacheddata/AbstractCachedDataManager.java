@@ -25,12 +25,15 @@
 
 package me.lucko.luckperms.common.cacheddata;
 
+import com.google.common.annotations.VisibleForTesting;
 import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.cacheddata.type.MonitoredMetaCache;
 import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.metrics.PluginMetrics;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.util.CompletableFutures;
@@ -43,6 +46,7 @@ import net.luckperms.api.node.ChatMetaType;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Map;
 import java.util.Objects;
@@ -50,8 +54,10 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * Abstract implementation of {@link CachedDataManager}.
@@ -63,8 +69,8 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
 
     protected AbstractCachedDataManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
-        this.permission = new AbstractContainer<>(this::calculatePermissions);
-        this.meta = new AbstractContainer<>(this::calculateMeta);
+        this.permission = new AbstractContainer<>(this::calculatePermissions, this::calculateDependencies, () -> this.plugin.getMetrics().permissionData());
+        this.meta = new AbstractContainer<>(this::calculateMeta, this::calculateDependencies, () -> this.plugin.getMetrics().metaData());
     }
 
     public LuckPermsPlugin getPlugin() {
@@ -148,6 +154,23 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
      * @param queryOptions the query options
      */
     protected abstract void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions);
+
+    /**
+     * Resolves the names of the groups which the owners data for the given {@link QueryOptions} depends on.
+     *
+     * @param queryOptions the query options
+     * @return the group names, or null if the dependencies are unknown
+     */
+    protected @Nullable Set<String> resolveDependencies(QueryOptions queryOptions) {
+        return null;
+    }
+
+    private @Nullable Set<String> calculateDependencies(QueryOptions queryOptions) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.INCREMENTAL_CACHE_INVALIDATION)) {
+            return null;
+        }
+        return resolveDependencies(queryOptions);
+    }
     
     private PermissionCache calculatePermissions(QueryOptions queryOptions) {
         Objects.requireNonNull(queryOptions, "queryOptions");
@@ -173,6 +196,18 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.meta.invalidate();
     }
 
+    /**
+     * Invalidates the cached data which depends on the given group.
+     *
+     * <p>Cached data with unknown dependencies is always invalidated.</p>
+     *
+     * @param groupName the name of the group
+     */
+    public final void invalidateDependents(String groupName) {
+        this.permission.invalidateDependents(groupName);
+        this.meta.invalidateDependents(groupName);
+    }
+
     @Override
     public final void invalidatePermissionCalculators() {
         this.permission.cache.values().forEach(PermissionCache::invalidateCache);
@@ -183,24 +218,85 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.meta.cleanup();
     }
 
-    private static final class AbstractContainer<C extends I, I extends CachedData> implements Container<I> {
+    @VisibleForTesting
+    static final class AbstractContainer<C extends I, I extends CachedData> implements Container<I> {
         private final Function<QueryOptions, C> cacheLoader;
+        private final Function<QueryOptions, Set<String>> dependencyResolver;
+        private final Supplier<PluginMetrics.CachedDataMetrics> metrics;
         private final LoadingMap<QueryOptions, C> cache;
 
-        public AbstractContainer(Function<QueryOptions, C> cacheLoader) {
+        /** The groups each cached value depends on, if known */
+        private final Map<QueryOptions, Set<String>> dependencies = new ConcurrentHashMap<>();
+
+        /** Incremented when values are invalidated without removing them individually */
+        private final AtomicLong invalidations = new AtomicLong();
+
+        public AbstractContainer(Function<QueryOptions, C> cacheLoader, Function<QueryOptions, Set<String>> dependencyResolver, Supplier<PluginMetrics.CachedDataMetrics> metrics) {
             this.cacheLoader = cacheLoader;
-            this.cache = LoadingMap.of(this.cacheLoader);
+            this.dependencyResolver = dependencyResolver;
+            this.metrics = metrics;
+            this.cache = LoadingMap.of(this::load);
+        }
+
+        private C load(QueryOptions queryOptions) {
+            long start = System.nanoTime();
+            try {
+                Set<String> dependencies = this.dependencyResolver.apply(queryOptions);
+                C value = this.cacheLoader.apply(queryOptions);
+                if (dependencies != null) {
+                    this.dependencies.put(queryOptions, dependencies);
+                } else {
+                    this.dependencies.remove(queryOptions);
+                }
+                return value;
+            } finally {
+                this.metrics.get().loads().recordSince(start);
+            }
+        }
+
+        private C getOrLoad(QueryOptions queryOptions) {
+            C data = this.cache.getIfPresent(queryOptions);
+            if (data != null) {
+                return data;
+            }
+
+            long invalidations = this.invalidations.get();
+            data = this.cache.get(queryOptions);
+            discardIfInvalidated(queryOptions, data, invalidations);
+            return data;
+        }
+
+        private void discardIfInvalidated(QueryOptions queryOptions, C value, long invalidations) {
+            // values aren't visible when iterating over the cache until they have been
+            // inserted, so an invalidation which ran during the load may have missed it
+            if (this.invalidations.get() != invalidations && this.cache.remove(queryOptions, value)) {
+                this.dependencies.remove(queryOptions);
+            }
         }
 
         public void cleanup() {
             this.cache.values().removeIf(value -> !((UsageTracked) value).usedInTheLast(2, TimeUnit.MINUTES));
+            this.dependencies.keySet().retainAll(this.cache.keySet());
+        }
+
+        public void invalidateDependents(String groupName) {
+            // values which are being loaded right now are discarded once inserted
+            this.invalidations.incrementAndGet();
+
+            for (QueryOptions queryOptions : this.cache.keySet()) {
+                Set<String> dependencies = this.dependencies.get(queryOptions);
+                if (dependencies == null || dependencies.contains(groupName)) {
+                    invalidate(queryOptions);
+                }
+            }
         }
 
         @Override
         public @NonNull C get(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
+            this.metrics.get().requests().increment();
 
-            C data = this.cache.get(queryOptions);
+            C data = getOrLoad(queryOptions);
             ((UsageTracked) data).recordUsage();
             return data;
         }
@@ -215,8 +311,10 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public void recalculate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
             CompletableFuture.runAsync(() -> {
-                final C value = this.cacheLoader.apply(queryOptions);
+                long invalidations = this.invalidations.get();
+                final C value = load(queryOptions);
                 this.cache.put(queryOptions, value);
+                discardIfInvalidated(queryOptions, value, invalidations);
             }, CaffeineFactory.executor());
         }
 
@@ -228,7 +326,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             this.cache.remove(queryOptions);
 
             // request recalculation from the cache
-            return CompletableFuture.supplyAsync(() -> this.cache.get(queryOptions), CaffeineFactory.executor());
+            return CompletableFuture.supplyAsync(() -> getOrLoad(queryOptions), CaffeineFactory.executor());
         }
 
         @Override
@@ -247,11 +345,14 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
             this.cache.remove(queryOptions);
+            this.dependencies.remove(queryOptions);
         }
 
         @Override
         public void invalidate() {
+            this.invalidations.incrementAndGet();
             this.cache.clear();
+            this.dependencies.clear();
         }
     }
     
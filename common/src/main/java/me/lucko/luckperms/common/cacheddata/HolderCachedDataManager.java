@@ -35,6 +35,7 @@ import net.luckperms.api.node.Node;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.function.IntFunction;
 
 /**
@@ -83,4 +84,9 @@ public abstract class HolderCachedDataManager<T extends PermissionHolder> extend
     protected void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
         this.holder.accumulateMeta(accumulator, queryOptions);
     }
+
+    @Override
+    protected Set<String> resolveDependencies(QueryOptions queryOptions) {
+        return this.holder.resolveInheritanceDependencies(queryOptions);
+    }
 }
@@ -66,21 +66,21 @@ public class MonitoredMetaCache extends MetaCache implements CachedMetaData {
     @Override
     public @NonNull StringResult<MetaNode> getMetaValue(String key, CheckOrigin origin) {
         StringResult<MetaNode> value = super.getMetaValue(key, origin);
-        this.plugin.getVerboseHandler().offerMetaCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), key, value);
+        offerMetaCheck(origin, key, value);
         return value;
     }
 
     @Override
     public @NonNull StringResult<PrefixNode> getPrefix(CheckOrigin origin) {
         StringResult<PrefixNode> value = super.getPrefix(origin);
-        this.plugin.getVerboseHandler().offerMetaCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), Prefix.NODE_KEY, value);
+        offerMetaCheck(origin, Prefix.NODE_KEY, value);
         return value;
     }
 
     @Override
     public @NonNull StringResult<SuffixNode> getSuffix(CheckOrigin origin) {
         StringResult<SuffixNode> value = super.getSuffix(origin);
-        this.plugin.getVerboseHandler().offerMetaCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), Suffix.NODE_KEY, value);
+        offerMetaCheck(origin, Suffix.NODE_KEY, value);
         return value;
     }
 
@@ -92,17 +92,22 @@ public class MonitoredMetaCache extends MetaCache implements CachedMetaData {
     @Override
     public @NonNull IntegerResult<WeightNode> getWeight(CheckOrigin origin) {
         IntegerResult<WeightNode> value = super.getWeight(origin);
-        this.plugin.getVerboseHandler().offerMetaCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), "weight", value.asStringResult());
+        offerMetaCheck(origin, "weight", value.asStringResult());
         return value;
     }
 
     @Override
     public @Nullable String getPrimaryGroup(CheckOrigin origin) {
         String value = super.getPrimaryGroup(origin);
-        this.plugin.getVerboseHandler().offerMetaCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), "primarygroup", StringResult.of(value));
+        offerMetaCheck(origin, "primarygroup", StringResult.of(value));
         return value;
     }
 
+    private void offerMetaCheck(CheckOrigin origin, String key, StringResult<?> result) {
+        this.plugin.getMetrics().metaChecks().increment();
+        this.plugin.getVerboseHandler().offerMetaCheckEvent(origin, this.metadata.getVerboseCheckInfo(), this.metadata.getQueryOptions(), key, result);
+    }
+
     private final class MonitoredMetaMap extends ForwardingMap<String, List<StringResult<MetaNode>>> {
         private final Map<String, List<StringResult<MetaNode>>> delegate;
         private final CheckOrigin origin;
@@ -127,7 +132,7 @@ public class MonitoredMetaCache extends MetaCache implements CachedMetaData {
             List<StringResult<MetaNode>> values = super.get(key);
 
             if (values == null || values.isEmpty()) {
-                MonitoredMetaCache.this.plugin.getVerboseHandler().offerMetaCheckEvent(this.origin, MonitoredMetaCache.this.metadata.getVerboseCheckInfo(), MonitoredMetaCache.this.metadata.getQueryOptions(), key, StringResult.nullResult());
+                offerMetaCheck(this.origin, key, StringResult.nullResult());
             } else {
                 Iterator<StringResult<MetaNode>> it = values.iterator();
                 StringResult<MetaNode> result = it.next().copy();
@@ -139,7 +144,7 @@ public class MonitoredMetaCache extends MetaCache implements CachedMetaData {
                     root = nested;
                 }
 
-                MonitoredMetaCache.this.plugin.getVerboseHandler().offerMetaCheckEvent(this.origin, MonitoredMetaCache.this.metadata.getVerboseCheckInfo(), MonitoredMetaCache.this.metadata.getQueryOptions(), key, result);
+                offerMetaCheck(this.origin, key, result);
             }
 
             return values;
@@ -25,14 +25,20 @@
 
 package me.lucko.luckperms.common.calculator;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.google.common.annotations.VisibleForTesting;
 import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Collection;
 import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Calculates and caches permissions
@@ -43,14 +49,48 @@ public class PermissionCalculatorBase implements PermissionCalculator {
     private final PermissionProcessor[] processors;
 
     /** Loading cache for permission checks */
-    private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this::resolve);
+    private final LoadingMap<String, TristateResult> lookupCache;
+
+    /** The lookup cache, if it has a maximum size */
+    private final @Nullable Cache<String, TristateResult> boundedLookupCache;
+
+    /** Counters for lookup cache usage */
+    private final LookupCounters counters = new LookupCounters();
 
     public PermissionCalculatorBase(Collection<PermissionProcessor> processors) {
+        this(processors, 0);
+    }
+
+    /**
+     * Creates a new calculator.
+     *
+     * @param processors the processors which back this calculator
+     * @param maximumCacheSize the maximum number of lookups to cache, or a value <= 0 for no limit
+     */
+    public PermissionCalculatorBase(Collection<PermissionProcessor> processors, int maximumCacheSize) {
         this.processors = processors.toArray(new PermissionProcessor[0]);
+
+        if (maximumCacheSize > 0) {
+            this.boundedLookupCache = CaffeineFactory.newBuilder()
+                    .maximumSize(maximumCacheSize)
+                    .evictionListener((String permission, TristateResult result, RemovalCause cause) -> this.counters.evictions.increment())
+                    .build();
+            this.lookupCache = LoadingMap.of(this.boundedLookupCache.asMap(), this::resolve);
+        } else {
+            this.boundedLookupCache = null;
+            this.lookupCache = LoadingMap.of(this::resolve);
+        }
     }
 
     @Override
     public TristateResult checkPermission(String permission, CheckOrigin origin) {
+        TristateResult result = this.lookupCache.getIfPresent(permission);
+        if (result != null) {
+            this.counters.hits.increment();
+            return result;
+        }
+
+        this.counters.misses.increment();
         return this.lookupCache.get(permission);
     }
 
@@ -79,4 +119,82 @@ public class PermissionCalculatorBase implements PermissionCalculator {
         }
         this.lookupCache.clear();
     }
+
+    /**
+     * Gets the counters for the lookup cache usage of this calculator.
+     *
+     * @return the counters
+     */
+    public LookupCounters getLookupCounters() {
+        return this.counters;
+    }
+
+    /**
+     * Gets the number of permission checks which were served by the lookup cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return this.counters.getHits();
+    }
+
+    /**
+     * Gets the number of permission checks which had to be resolved by the processors.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return this.counters.getMisses();
+    }
+
+    /**
+     * Gets the number of entries which have been evicted from the lookup cache
+     * because it reached its maximum size.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return this.counters.getEvictions();
+    }
+
+    /**
+     * Gets the number of entries currently held in the lookup cache.
+     *
+     * @return the cache size
+     */
+    public int getCacheSize() {
+        return this.lookupCache.size();
+    }
+
+    /**
+     * Performs any pending maintenance on the lookup cache, such as evicting
+     * entries above the maximum size, on the calling thread.
+     */
+    @VisibleForTesting
+    void cleanUp() {
+        if (this.boundedLookupCache != null) {
+            this.boundedLookupCache.cleanUp();
+        }
+    }
+
+    /**
+     * Counters for the lookup cache usage of a single calculator.
+     */
+    public static final class LookupCounters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return this.hits.sum();
+        }
+
+        public long getMisses() {
+            return this.misses.sum();
+        }
+
+        public long getEvictions() {
+            return this.evictions.sum();
+        }
+    }
 }
\ No newline at end of file
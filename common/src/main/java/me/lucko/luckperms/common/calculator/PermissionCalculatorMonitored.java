@@ -28,6 +28,7 @@ package me.lucko.luckperms.common.calculator;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 
@@ -45,9 +46,10 @@ public class PermissionCalculatorMonitored extends PermissionCalculatorBase {
     private final CacheMetadata metadata;
 
     public PermissionCalculatorMonitored(LuckPermsPlugin plugin, CacheMetadata metadata, Collection<PermissionProcessor> processors) {
-        super(processors);
+        super(processors, plugin.getConfiguration().get(ConfigKeys.PERMISSION_LOOKUP_CACHE_SIZE));
         this.plugin = plugin;
         this.metadata = metadata;
+        plugin.getMetrics().permissionLookups().register(this);
     }
 
     @Override
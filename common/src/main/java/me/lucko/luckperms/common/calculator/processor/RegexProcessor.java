@@ -37,6 +37,9 @@ import java.util.regex.Pattern;
 public class RegexProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(RegexProcessor.class);
 
+    private static final String REGEX_META_CHARACTERS = "[](){}.*+?^$|";
+    private static final String REGEX_QUANTIFIERS = "?*+{";
+
     private final List<RegexEntry> regexPermissions;
 
     public RegexProcessor(Map<String, Node> sourceMap) {
@@ -46,6 +49,10 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
     @Override
     public TristateResult hasPermission(String permission) {
         for (RegexEntry e : this.regexPermissions) {
+            // cheap check to rule out most patterns before doing a full match
+            if (!permission.startsWith(e.literalPrefix())) {
+                continue;
+            }
             if (e.pattern().matcher(permission).matches()) {
                 return e.result();
             }
@@ -67,17 +74,69 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
             }
 
             TristateResult value = RESULT_FACTORY.result(e.getValue());
-            builder.add(new RegexEntry(pattern, value));
+            builder.add(new RegexEntry(pattern, literalPrefix(pattern.pattern()), value));
         }
         return builder.build();
     }
 
+    /**
+     * Gets the literal string that any input must start with in order to match the given regex.
+     *
+     * <p>This is a conservative approximation - it returns an empty string if the regex
+     * contains anything which isn't trivial to reason about.</p>
+     *
+     * @param regex the regex
+     * @return the literal prefix
+     */
+    private static String literalPrefix(String regex) {
+        if (regex.indexOf('|') != -1) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal;
+            int next;
+
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) {
+                    break;
+                }
+                // escaped letters & digits have a special meaning (\d, \Q, \1, etc)
+                char escaped = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped) || Character.isHighSurrogate(escaped)) {
+                    break;
+                }
+                literal = escaped;
+                next = i + 2;
+            } else if (REGEX_META_CHARACTERS.indexOf(c) != -1 || Character.isHighSurrogate(c)) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+
+            // the character can't be included if it is followed by a quantifier
+            if (next < regex.length() && REGEX_QUANTIFIERS.indexOf(regex.charAt(next)) != -1) {
+                break;
+            }
+
+            sb.append(literal);
+            i = next;
+        }
+        return sb.toString();
+    }
+
     private static final class RegexEntry {
         private final Pattern pattern;
+        private final String literalPrefix;
         private final TristateResult result;
 
-        RegexEntry(Pattern pattern, TristateResult result) {
+        RegexEntry(Pattern pattern, String literalPrefix, TristateResult result) {
             this.pattern = pattern;
+            this.literalPrefix = literalPrefix;
             this.result = result;
         }
 
@@ -85,6 +144,10 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
             return this.pattern;
         }
 
+        public String literalPrefix() {
+            return this.literalPrefix;
+        }
+
         public TristateResult result() {
             return this.result;
         }
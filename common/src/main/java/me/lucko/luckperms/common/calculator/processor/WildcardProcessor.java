@@ -25,13 +25,12 @@
 
 package me.lucko.luckperms.common.calculator.processor;
 
-import com.google.common.collect.ImmutableMap;
 import me.lucko.luckperms.common.cacheddata.result.TristateResult;
 import me.lucko.luckperms.common.node.AbstractNode;
 import net.luckperms.api.node.Node;
-import net.luckperms.api.util.Tristate;
 
 import java.util.Map;
+import java.util.TreeMap;
 
 public class WildcardProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(WildcardProcessor.class);
@@ -40,7 +39,7 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
     private static final String ROOT_WILDCARD = "*";
     private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
 
-    private final Map<String, TristateResult> wildcardPermissions;
+    private final TrieNode wildcardPermissions;
     private final TristateResult rootWildcardState;
 
     public WildcardProcessor(Map<String, Node> sourceMap) {
@@ -50,24 +49,31 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
 
     @Override
     public TristateResult hasPermission(String permission) {
-        String node = permission;
+        // walk down the trie one segment at a time - the deepest match is the most specific
+        // wildcard, so it takes priority over any matches found further up.
+        TristateResult result = this.rootWildcardState;
+        TrieNode node = this.wildcardPermissions;
 
+        int start = 0;
         while (true) {
-            int endIndex = node.lastIndexOf(AbstractNode.NODE_SEPARATOR);
-            if (endIndex == -1) {
+            // the final segment of the permission is never matched by a wildcard
+            int end = permission.indexOf(AbstractNode.NODE_SEPARATOR, start);
+            if (end == -1) {
                 break;
             }
 
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                TristateResult match = this.wildcardPermissions.get(node);
-                if (match != null && match.result() != Tristate.UNDEFINED) {
-                    return match;
-                }
+            node = node.child(permission, start, end);
+            if (node == null) {
+                break;
+            }
+
+            if (node.result != null) {
+                result = node.result;
             }
+            start = end + 1;
         }
 
-        return this.rootWildcardState;
+        return result;
     }
 
     public static boolean isRootWildcard(String permission) {
@@ -78,8 +84,8 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
         return isRootWildcard(permission) || permission.endsWith(WILDCARD_SUFFIX) && permission.length() > 2;
     }
 
-    private static Map<String, TristateResult> processWildcardPermissions(Map<String, Node> sourceMap) {
-        ImmutableMap.Builder<String, TristateResult> builder = ImmutableMap.builder();
+    private static TrieNode processWildcardPermissions(Map<String, Node> sourceMap) {
+        TrieNode.Builder root = new TrieNode.Builder();
         for (Map.Entry<String, Node> e : sourceMap.entrySet()) {
             String key = e.getKey();
             if (!key.endsWith(WILDCARD_SUFFIX) || key.length() <= 2) {
@@ -87,10 +93,20 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
             }
             key = key.substring(0, key.length() - 2);
 
-            TristateResult value = RESULT_FACTORY.result(e.getValue());
-            builder.put(key, value);
+            TrieNode.Builder node = root;
+            int start = 0;
+            while (true) {
+                int end = key.indexOf(AbstractNode.NODE_SEPARATOR, start);
+                if (end == -1) {
+                    node = node.child(key.substring(start));
+                    break;
+                }
+                node = node.child(key.substring(start, end));
+                start = end + 1;
+            }
+            node.result = RESULT_FACTORY.result(e.getValue());
         }
-        return builder.build();
+        return root.build();
     }
 
     private static TristateResult rootWildcardState(Map<String, Node> sourceMap) {
@@ -100,4 +116,92 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
         }
         return rootWildcard == null ? TristateResult.UNDEFINED : RESULT_FACTORY.result(rootWildcard);
     }
+
+    /**
+     * An immutable node in a trie of wildcard permissions. Each level of the trie
+     * corresponds to one segment of a permission.
+     *
+     * <p>Children are stored in arrays sorted by segment, so they can be found using
+     * a binary search over a region of the queried permission string, without having
+     * to allocate a substring for each segment.</p>
+     */
+    private static final class TrieNode {
+        private static final String[] EMPTY_SEGMENTS = new String[0];
+        private static final TrieNode[] EMPTY_CHILDREN = new TrieNode[0];
+
+        private final String[] segments;
+        private final TrieNode[] children;
+        private final TristateResult result;
+
+        TrieNode(String[] segments, TrieNode[] children, TristateResult result) {
+            this.segments = segments;
+            this.children = children;
+            this.result = result;
+        }
+
+        /**
+         * Gets the child node for the segment between {@code start} and {@code end} in the given string.
+         *
+         * @param permission the permission string
+         * @param start the start index of the segment (inclusive)
+         * @param end the end index of the segment (exclusive)
+         * @return the child, or null if there is no child for the segment
+         */
+        TrieNode child(String permission, int start, int end) {
+            int low = 0;
+            int high = this.segments.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(this.segments[mid], permission, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return this.children[mid];
+                }
+            }
+            return null;
+        }
+
+        // equivalent to segment.compareTo(permission.substring(start, end))
+        private static int compare(String segment, String permission, int start, int end) {
+            int segmentLength = segment.length();
+            int regionLength = end - start;
+            int len = Math.min(segmentLength, regionLength);
+            for (int i = 0; i < len; i++) {
+                char c1 = segment.charAt(i);
+                char c2 = permission.charAt(start + i);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return segmentLength - regionLength;
+        }
+
+        static final class Builder {
+            private final Map<String, Builder> children = new TreeMap<>();
+            TristateResult result = null;
+
+            Builder child(String segment) {
+                return this.children.computeIfAbsent(segment, s -> new Builder());
+            }
+
+            TrieNode build() {
+                if (this.children.isEmpty()) {
+                    return new TrieNode(EMPTY_SEGMENTS, EMPTY_CHILDREN, this.result);
+                }
+
+                String[] segments = new String[this.children.size()];
+                TrieNode[] children = new TrieNode[this.children.size()];
+                int i = 0;
+                for (Map.Entry<String, Builder> e : this.children.entrySet()) {
+                    segments[i] = e.getKey();
+                    children[i] = e.getValue().build();
+                    i++;
+                }
+                return new TrieNode(segments, children, this.result);
+            }
+        }
+    }
 }
@@ -45,6 +45,7 @@ import me.lucko.luckperms.common.commands.misc.EditorCommand;
 import me.lucko.luckperms.common.commands.misc.ExportCommand;
 import me.lucko.luckperms.common.commands.misc.ImportCommand;
 import me.lucko.luckperms.common.commands.misc.InfoCommand;
+import me.lucko.luckperms.common.commands.misc.MetricsCommand;
 import me.lucko.luckperms.common.commands.misc.NetworkSyncCommand;
 import me.lucko.luckperms.common.commands.misc.ReloadConfigCommand;
 import me.lucko.luckperms.common.commands.misc.SearchCommand;
@@ -117,6 +118,7 @@ public class CommandManager {
                 .add(new LogParentCommand())
                 .add(new SyncCommand())
                 .add(new InfoCommand())
+                .add(new MetricsCommand())
                 .add(new EditorCommand())
                 .add(new VerboseCommand())
                 .add(new TreeCommand())
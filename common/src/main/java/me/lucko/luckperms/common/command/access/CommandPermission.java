@@ -34,6 +34,7 @@ public enum CommandPermission {
 
     SYNC("sync", Type.NONE, true),
     INFO("info", Type.NONE, true),
+    METRICS("metrics", Type.NONE, true),
     EDITOR("editor", Type.NONE, true),
     VERBOSE("verbose", Type.NONE, true),
     VERBOSE_COMMAND_OTHERS("verbose.command.others", Type.NONE, false),
@@ -46,6 +46,7 @@ public enum CommandSpec {
 
     SYNC("/%s sync"),
     INFO("/%s info"),
+    METRICS("/%s metrics"),
     EDITOR("/%s editor [type]",
             arg("type", false),
             arg("filter", false)
@@ -73,7 +74,8 @@ public enum CommandSpec {
             arg("file", true),
             arg("without-users", "--without-users", false),
             arg("without-groups", "--without-groups", false),
-            arg("upload", "--upload", false)
+            arg("upload", "--upload", false),
+            arg("stream", "--stream", false)
     ),
     RELOAD_CONFIG("/%s reloadconfig"),
     BULK_UPDATE("/%s bulkupdate",
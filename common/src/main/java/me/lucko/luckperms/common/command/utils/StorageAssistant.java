@@ -38,6 +38,8 @@ import me.lucko.luckperms.common.sender.Sender;
 
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Utility methods for saving users, groups and tracks.
@@ -74,31 +76,30 @@ public final class StorageAssistant {
         return track;
     }
 
-    public static void save(User user, Sender sender, LuckPermsPlugin plugin) {
-        try {
-            plugin.getStorage().saveUser(user).get();
-        } catch (Exception e) {
-            plugin.getLogger().warn("Error whilst saving user", e);
-            Message.USER_SAVE_ERROR.send(sender, user);
-            return;
-        }
-
-        Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
-        if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            messagingService.get().pushUserUpdate(user);
-        }
+    public static CompletableFuture<Void> save(User user, Sender sender, LuckPermsPlugin plugin) {
+        CompletableFuture<Throwable> saved = plugin.getStorage().saveUser(user).handle((v, e) -> {
+            if (e != null) {
+                plugin.getLogger().warn("Error whilst saving user", e);
+                Message.USER_SAVE_ERROR.send(sender, user);
+            }
+            return e;
+        });
+        return afterSave(plugin, saved, () -> pushUpdates(plugin, service -> service.pushUserUpdate(user)));
     }
 
     public static CompletableFuture<Void> save(Group group, Sender sender, LuckPermsPlugin plugin) {
-        try {
-            plugin.getStorage().saveGroup(group).get();
-        } catch (Exception e) {
-            plugin.getLogger().warn("Error whilst saving group", e);
-            Message.GROUP_SAVE_ERROR.send(sender, group);
-            return failedFuture(e);
-        }
-
-        return invalidateCachesAndPushUpdates(plugin);
+        CompletableFuture<Throwable> saved = plugin.getStorage().saveGroup(group).handle((v, e) -> {
+            if (e != null) {
+                plugin.getLogger().warn("Error whilst saving group", e);
+                Message.GROUP_SAVE_ERROR.send(sender, group);
+            }
+            return e;
+        });
+
+        // the group has already changed in memory, so dependents don't need to wait for the write
+        plugin.getGroupManager().invalidateDependentGroupCaches(group.getName());
+        plugin.getUserManager().invalidateDependentUserCaches(group.getName());
+        return afterSave(plugin, saved, () -> pushUpdates(plugin, service -> service.pushGroupUpdate(group)));
     }
 
     public static CompletableFuture<Void> save(Track track, Sender sender, LuckPermsPlugin plugin) {
@@ -110,16 +111,18 @@ public final class StorageAssistant {
             return failedFuture(e);
         }
 
-        return invalidateCachesAndPushUpdates(plugin);
+        plugin.getGroupManager().invalidateAllGroupCaches();
+        plugin.getUserManager().invalidateAllUserCaches();
+        return pushUpdates(plugin, service -> service.pushTrackUpdate(track));
     }
 
-    public static void save(PermissionHolder holder, Sender sender, LuckPermsPlugin plugin) {
+    public static CompletableFuture<Void> save(PermissionHolder holder, Sender sender, LuckPermsPlugin plugin) {
         if (holder.getType() == HolderType.USER) {
             User user = (User) holder;
-            save(user, sender, plugin);
+            return save(user, sender, plugin);
         } else if (holder.getType() == HolderType.GROUP) {
             Group group = (Group) holder;
-            save(group, sender, plugin);
+            return save(group, sender, plugin);
         } else {
             throw new IllegalArgumentException();
         }
@@ -128,10 +131,38 @@ public final class StorageAssistant {
     public static CompletableFuture<Void> invalidateCachesAndPushUpdates(LuckPermsPlugin plugin) {
         plugin.getGroupManager().invalidateAllGroupCaches();
         plugin.getUserManager().invalidateAllUserCaches();
+        return pushUpdates(plugin, service -> service.getUpdateBuffer().request());
+    }
+
+    public static CompletableFuture<Void> invalidateCachesAndPushUpdates(LuckPermsPlugin plugin, Group changedGroup) {
+        plugin.getGroupManager().invalidateDependentGroupCaches(changedGroup.getName());
+        plugin.getUserManager().invalidateDependentUserCaches(changedGroup.getName());
+        return pushUpdates(plugin, service -> service.pushGroupUpdate(changedGroup));
+    }
+
+    /**
+     * Pushes updates once a user or group save has completed.
+     *
+     * <p>When saves are coalesced, the command thread does not wait for the write, so that
+     * several commands in quick succession are combined into a single write. Otherwise the
+     * write is waited for, so that any subsequent loads read the new data.</p>
+     *
+     * @param plugin the plugin
+     * @param saved a future which completes with the error if the save failed, or null
+     * @param push the update to push after a successful save
+     * @return a future which completes once the update has been pushed
+     */
+    private static CompletableFuture<Void> afterSave(LuckPermsPlugin plugin, CompletableFuture<Throwable> saved, Supplier<CompletableFuture<Void>> push) {
+        if (!plugin.getStorage().isCoalescingSaves()) {
+            saved.join();
+        }
+        return saved.thenCompose(error -> error == null ? push.get() : failedFuture(error));
+    }
 
+    private static CompletableFuture<Void> pushUpdates(LuckPermsPlugin plugin, Function<InternalMessagingService, CompletableFuture<Void>> push) {
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
-            return messagingService.get().getUpdateBuffer().request();
+            return push.apply(messagingService.get());
         } else {
             return CompletableFuture.completedFuture(null);
         }
@@ -63,6 +63,7 @@ public class ExportCommand extends SingleCommand {
         boolean includeUsers = !args.remove("--without-users");
         boolean includeGroups = !args.remove("--without-groups");
         boolean upload = args.remove("--upload");
+        boolean stream = args.remove("--stream");
 
         Exporter exporter;
         if (upload) {
@@ -74,11 +75,12 @@ public class ExportCommand extends SingleCommand {
             exporter = new Exporter.WebUpload(plugin, sender, includeUsers, includeGroups, label);
         } else {
             Path dataDirectory = plugin.getBootstrap().getDataDirectory();
+            String extension = stream ? ".ndjson.gz" : ".json.gz";
             Path path;
             if (args.isEmpty()) {
-                path = dataDirectory.resolve("luckperms-" + DATE_FORMAT.format(Instant.now()) + ".json.gz");
+                path = dataDirectory.resolve("luckperms-" + DATE_FORMAT.format(Instant.now()) + extension);
             } else {
-                path = dataDirectory.resolve(args.get(0) + ".json.gz");
+                path = dataDirectory.resolve(args.get(0) + extension);
             }
 
             if (!path.getParent().equals(dataDirectory)) {
@@ -109,7 +111,11 @@ public class ExportCommand extends SingleCommand {
                 return;
             }
 
-            exporter = new Exporter.SaveFile(plugin, sender, path, includeUsers, includeGroups);
+            if (stream) {
+                exporter = new Exporter.SaveStreamingFile(plugin, sender, path, includeUsers, includeGroups);
+            } else {
+                exporter = new Exporter.SaveFile(plugin, sender, path, includeUsers, includeGroups);
+            }
         }
 
         // Run the exporter in its own thread.
@@ -62,8 +62,9 @@ public class ImportCommand extends SingleCommand {
         }
 
         boolean fromFile = !args.remove("--upload");
+        boolean merge = !args.contains("--replace");
 
-        JsonObject data;
+        Importer importer;
         if (fromFile) {
             String fileName = args.get(0);
             Path dataDirectory = plugin.getBootstrap().getDataDirectory();
@@ -74,11 +75,14 @@ public class ImportCommand extends SingleCommand {
                 return;
             }
 
-            // try auto adding the '.json.gz' extension
+            // try auto adding the '.json.gz' or '.ndjson.gz' extension
             if (!Files.exists(path) && !fileName.contains(".")) {
-                Path pathWithDefaultExtension = path.resolveSibling(fileName + ".json.gz");
-                if (Files.exists(pathWithDefaultExtension)) {
-                    path = pathWithDefaultExtension;
+                for (String extension : new String[]{".json.gz", ".ndjson.gz"}) {
+                    Path pathWithDefaultExtension = path.resolveSibling(fileName + extension);
+                    if (Files.exists(pathWithDefaultExtension)) {
+                        path = pathWithDefaultExtension;
+                        break;
+                    }
                 }
             }
 
@@ -97,13 +101,20 @@ public class ImportCommand extends SingleCommand {
                 return;
             }
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
-                data = GsonProvider.normal().fromJson(reader, JsonObject.class);
-            } catch (IOException e) {
-                plugin.getLogger().warn("Error whilst reading from the import file", e);
-                Message.IMPORT_FILE_READ_FAILURE.send(sender);
-                this.running.set(false);
-                return;
+            if (path.getFileName().toString().endsWith(".ndjson.gz")) {
+                // streaming exports are read incrementally by the importer
+                importer = Importer.streaming(plugin, sender, path, merge);
+            } else {
+                JsonObject data;
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+                    data = GsonProvider.normal().fromJson(reader, JsonObject.class);
+                } catch (IOException e) {
+                    plugin.getLogger().warn("Error whilst reading from the import file", e);
+                    Message.IMPORT_FILE_READ_FAILURE.send(sender);
+                    this.running.set(false);
+                    return;
+                }
+                importer = new Importer(plugin, sender, data, merge);
             }
         } else {
             String code = args.get(0);
@@ -113,6 +124,7 @@ public class ImportCommand extends SingleCommand {
                 return;
             }
 
+            JsonObject data;
             try {
                 data = plugin.getBytebin().getJsonContent(code).getAsJsonObject();
             } catch (UnsuccessfulRequestException e) {
@@ -128,9 +140,9 @@ public class ImportCommand extends SingleCommand {
                 Message.IMPORT_UNABLE_TO_READ.send(sender, code);
                 return;
             }
-        }
 
-        Importer importer = new Importer(plugin, sender, data, !args.contains("--replace"));
+            importer = new Importer(plugin, sender, data, merge);
+        }
 
         // Run the importer in its own thread.
         plugin.getBootstrap().getScheduler().executeAsync(() -> {
@@ -129,7 +129,9 @@ public class VerboseCommand extends SingleCommand {
 
             boolean notify = !mode.equals("record");
 
-            verboseHandler.registerListener(sender, compiledFilter, notify);
+            // only sample checks when recording, notifications should be sent for every check
+            int sampleRate = notify ? 1 : plugin.getConfiguration().get(ConfigKeys.VERBOSE_SAMPLE_RATE);
+            verboseHandler.registerListener(sender, compiledFilter, notify, sampleRate);
 
             if (notify) {
                 if (!filter.isEmpty()) {
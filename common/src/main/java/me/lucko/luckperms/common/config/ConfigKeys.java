@@ -172,6 +172,23 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> CANCEL_FAILED_LOGINS = booleanKey("cancel-failed-logins", false);
 
+    /**
+     * The time window in milliseconds over which concurrent logins are grouped so their
+     * data can be loaded in bulk. 0 disables batching.
+     */
+    public static final ConfigKey<Integer> LOGIN_BATCH_WINDOW = notReloadable(key(c -> c.getInteger("login-batch-window", 0)));
+
+    /**
+     * The maximum number of logins grouped into a single batch.
+     */
+    public static final ConfigKey<Integer> LOGIN_BATCH_SIZE = notReloadable(key(c -> Math.max(1, c.getInteger("login-batch-size", 100))));
+
+    /**
+     * The maximum number of login storage operations (or batches) which can be in progress
+     * at the same time. 0 means no limit.
+     */
+    public static final ConfigKey<Integer> LOGIN_MAX_CONCURRENT_LOADS = notReloadable(key(c -> c.getInteger("login-max-concurrent-loads", 0)));
+
     /**
      * If LuckPerms should update the list of commands sent to the client when permissions are changed.
      */
@@ -344,6 +361,18 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> DELEGATE_TO_HYTALE_PERMISSIONS_PROVIDER = notReloadable(booleanKey("delegate-to-hytale-permissions-provider", true));
 
+    /**
+     * The maximum number of permission lookups to cache in each permission calculator.
+     * A value <= 0 means the cache is unbounded.
+     */
+    public static final ConfigKey<Integer> PERMISSION_LOOKUP_CACHE_SIZE = notReloadable(key(c -> c.getInteger("permission-lookup-cache-size", 0)));
+
+    /**
+     * If cached data should track which groups it inherits from, so that a change to a group
+     * only invalidates the cached data which depends on it.
+     */
+    public static final ConfigKey<Boolean> INCREMENTAL_CACHE_INVALIDATION = booleanKey("incremental-cache-invalidation", false);
+
     /**
      * The algorithm LuckPerms should use when traversing the "inheritance tree"
      */
@@ -478,6 +507,12 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> LOG_SYNCHRONOUSLY_IN_COMMANDS = booleanKey("log-synchronously-in-commands", false);
 
+    /**
+     * If the total number of log entries should be estimated (instead of counted exactly)
+     * when the whole action log is queried, where the storage method supports it
+     */
+    public static final ConfigKey<Boolean> LOG_APPROXIMATE_COUNT = booleanKey("log-approximate-count", false);
+
     /**
      * If LuckPerms should automatically install translation bundles and periodically update them.
      */
@@ -558,6 +593,18 @@ public final class ConfigKeys {
                 .collect(ImmutableCollectors.toSet());
     });
 
+    /**
+     * If the contexts of players should only be recalculated when a change is signalled, instead
+     * of roughly every tick
+     */
+    public static final ConfigKey<Boolean> SIGNALLED_CONTEXT_CACHING = notReloadable(booleanKey("signalled-context-caching", false));
+
+    /**
+     * The time in seconds that contexts are cached for (if no change is signalled) when
+     * signalled context caching is enabled
+     */
+    public static final ConfigKey<Integer> SIGNALLED_CONTEXT_CACHE_EXPIRY = notReloadable(key(c -> Math.max(1, c.getInteger("signalled-context-cache-expiry", 30))));
+
     /**
      * The world rewrites map
      */
@@ -655,6 +702,12 @@ public final class ConfigKeys {
         return ImmutableMap.copyOf(map);
     }));
 
+    /**
+     * The time in milliseconds that saves of the same user or group are held back for, so that
+     * repeated changes within the window are written together. 0 saves immediately.
+     */
+    public static final ConfigKey<Integer> SAVE_COALESCE_WINDOW = notReloadable(key(c -> Math.max(0, c.getInteger("save-coalesce-window", 0))));
+
     /**
      * The name of the messaging service in use, or "none" if not enabled
      */
@@ -665,6 +718,12 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> AUTO_PUSH_UPDATES = notReloadable(booleanKey("auto-push-updates", true));
 
+    /**
+     * If updates pushed by the messaging service should name the groups, tracks and users which changed,
+     * so that receiving servers only reload those instead of running a full sync
+     */
+    public static final ConfigKey<Boolean> PUSH_TARGETED_UPDATES = notReloadable(booleanKey("push-targeted-updates", false));
+
     /**
      * If LuckPerms should push logging entries to connected servers via the messaging service
      */
@@ -810,6 +869,12 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<String> WEB_EDITOR_URL_PATTERN = stringKey("web-editor-url", "https://luckperms.net/editor/");
 
+    /**
+     * The rate at which permission/meta checks are sampled when recording verbose output.
+     * 1 in every n checks is recorded.
+     */
+    public static final ConfigKey<Integer> VERBOSE_SAMPLE_RATE = key(c -> Math.max(1, c.getInteger("verbose-sample-rate", 1)));
+
     /**
      * The URL of the verbose viewer
      */
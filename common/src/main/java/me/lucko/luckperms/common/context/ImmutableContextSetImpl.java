@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.context;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimaps;
 import me.lucko.luckperms.common.context.comparator.ContextComparator;
@@ -61,6 +63,26 @@ public final class ImmutableContextSetImpl extends AbstractContextSet implements
         return new ImmutableContextSetImpl(new Context[]{new ContextImpl(key, value)});
     }
 
+    // weakly holds canonical instances of context sets which are commonly shared,
+    // e.g. those calculated for subjects, or the contexts of nodes
+    private static final Interner<ImmutableContextSet> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns a canonical instance equal to the given context set.
+     *
+     * <p>Equal context sets then share a single instance, and lookups in
+     * caches keyed by the context set can short-circuit on reference equality.</p>
+     *
+     * @param contextSet the context set
+     * @return the canonical instance
+     */
+    public static ImmutableContextSet intern(ImmutableContextSet contextSet) {
+        if (contextSet.isEmpty()) {
+            return EMPTY;
+        }
+        return INTERNER.intern(contextSet);
+    }
+
     private final Context[] array;
     private final int size;
     private final int hashCode;
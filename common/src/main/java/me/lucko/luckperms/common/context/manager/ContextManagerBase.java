@@ -30,6 +30,7 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.context.calculator.ForwardingContextCalculator;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
 import net.luckperms.api.context.ContextCalculator;
 import net.luckperms.api.context.ContextConsumer;
 import net.luckperms.api.context.ContextSet;
@@ -61,10 +62,23 @@ public abstract class ContextManagerBase<S, P extends S> implements ContextManag
     // caches static context lookups
     private final StaticLookupCache staticLookupCache = new StaticLookupCache();
 
+    // if contexts are only recalculated when a change is signalled
+    private final boolean signalledCaching;
+
+    // how long calculated query options are cached for
+    protected final long cacheExpiryMillis;
+
     protected ContextManagerBase(LuckPermsPlugin plugin, Class<S> subjectClass, Class<P> playerClass) {
         this.plugin = plugin;
         this.subjectClass = subjectClass;
         this.playerClass = playerClass;
+
+        this.signalledCaching = plugin.getConfiguration().get(ConfigKeys.SIGNALLED_CONTEXT_CACHING);
+        if (this.signalledCaching) {
+            this.cacheExpiryMillis = TimeUnit.SECONDS.toMillis(plugin.getConfiguration().get(ConfigKeys.SIGNALLED_CONTEXT_CACHE_EXPIRY));
+        } else {
+            this.cacheExpiryMillis = 50L; // expire roughly every tick
+        }
     }
 
     @Override
@@ -109,6 +123,12 @@ public abstract class ContextManagerBase<S, P extends S> implements ContextManag
         // invalidate their cache
         invalidateCache(subject);
 
+        if (this.signalledCaching) {
+            // some platforms signal before the change has been applied (e.g. gamemode change events),
+            // so invalidate again once it has taken effect, otherwise the old contexts would stick
+            this.plugin.getBootstrap().getScheduler().asyncLater(() -> invalidateCache(subject), 50L, TimeUnit.MILLISECONDS);
+        }
+
         // call event
         this.plugin.getEventDispatcher().dispatchContextUpdate(subject);
     }
@@ -157,9 +177,9 @@ public abstract class ContextManagerBase<S, P extends S> implements ContextManag
             callContextCalculator(calculator, subject, consumer);
         }
 
-        QueryOptions.Builder builder = this.plugin.getConfiguration().get(ConfigKeys.GLOBAL_QUERY_OPTIONS).toBuilder().context(accumulator.build());
+        QueryOptions.Builder builder = this.plugin.getConfiguration().get(ConfigKeys.GLOBAL_QUERY_OPTIONS).toBuilder().context(ImmutableContextSetImpl.intern(accumulator.build()));
         customizeQueryOptions(subject, builder);
-        return builder.build();
+        return QueryOptionsImpl.intern(builder.build());
     }
 
     private QueryOptions calculateStatic() {
@@ -170,9 +190,9 @@ public abstract class ContextManagerBase<S, P extends S> implements ContextManag
             callStaticContextCalculator(calculator, consumer);
         }
 
-        QueryOptions.Builder builder = this.plugin.getConfiguration().get(ConfigKeys.GLOBAL_QUERY_OPTIONS).toBuilder().context(accumulator.build());
+        QueryOptions.Builder builder = this.plugin.getConfiguration().get(ConfigKeys.GLOBAL_QUERY_OPTIONS).toBuilder().context(ImmutableContextSetImpl.intern(accumulator.build()));
         customizeStaticQueryOptions(builder);
-        return builder.build();
+        return QueryOptionsImpl.intern(builder.build());
     }
 
     @Override
@@ -39,7 +39,7 @@ import java.util.concurrent.TimeUnit;
 public abstract class DetachedContextManager<S, P extends S> extends ContextManagerBase<S, P> {
 
     private final LoadingCache<S, QueryOptions> fallbackContextsCache = CaffeineFactory.newBuilder()
-            .expireAfterWrite(50, TimeUnit.MILLISECONDS)
+            .expireAfterWrite(this.cacheExpiryMillis, TimeUnit.MILLISECONDS)
             .build(this::calculate);
 
     protected DetachedContextManager(LuckPermsPlugin plugin, Class<S> subjectClass, Class<P> playerClass) {
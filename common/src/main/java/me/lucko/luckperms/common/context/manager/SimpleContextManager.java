@@ -35,7 +35,7 @@ import java.util.concurrent.TimeUnit;
 public abstract class SimpleContextManager<S, P extends S> extends ContextManagerBase<S, P> {
 
     private final LoadingCache<S, QueryOptions> contextsCache = CaffeineFactory.newBuilder()
-            .expireAfterWrite(50, TimeUnit.MILLISECONDS)
+            .expireAfterWrite(this.cacheExpiryMillis, TimeUnit.MILLISECONDS)
             .build(this::calculate);
 
     protected SimpleContextManager(LuckPermsPlugin plugin, Class<S> subjectClass, Class<P> playerClass) {
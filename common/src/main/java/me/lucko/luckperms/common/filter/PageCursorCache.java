@@ -0,0 +1,132 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the position at which a page of results ended, so that the
+ * following page can be fetched by seeking past that position (keyset pagination)
+ * instead of skipping over every preceding row with an offset.
+ *
+ * <p>Each cursor is stored together with the newest entry that existed when it
+ * was recorded (the "head"), and is only returned while the head is unchanged.
+ * Cursors are also only kept for a short time - callers should always fall back
+ * to offset pagination when no cursor is available.</p>
+ *
+ * @param <C> the cursor type
+ */
+public class PageCursorCache<C> {
+
+    private final Cache<Key, Entry<C>> cursors = CaffeineFactory.newBuilder()
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .maximumSize(256)
+            .build();
+
+    /**
+     * Gets the cursor marking the end of the page before the given page.
+     *
+     * @param filters the filters applied to the query
+     * @param page the page being requested
+     * @param head the position of the newest entry
+     * @return the cursor, or null if there isn't one or it was recorded against a different head
+     */
+    public @Nullable C getCursor(FilterList<?> filters, @Nullable PageParameters page, @Nullable C head) {
+        if (page == null || page.pageNumber() == 1 || head == null) {
+            return null;
+        }
+        Entry<C> entry = this.cursors.getIfPresent(new Key(filters, page.pageSize(), page.pageNumber()));
+        if (entry == null || !entry.head.equals(head)) {
+            return null;
+        }
+        return entry.cursor;
+    }
+
+    /**
+     * Records the cursor marking the end of the given page.
+     *
+     * @param filters the filters applied to the query
+     * @param page the page that was returned
+     * @param head the position of the newest entry
+     * @param cursor the position of the last entry on the page
+     */
+    public void putCursor(FilterList<?> filters, @Nullable PageParameters page, @Nullable C head, C cursor) {
+        if (page == null || head == null) {
+            return;
+        }
+        this.cursors.put(new Key(filters, page.pageSize(), page.pageNumber() + 1), new Entry<>(head, cursor));
+    }
+
+    /**
+     * Discards all cursors, e.g. after a new entry has been added.
+     */
+    public void invalidateAll() {
+        this.cursors.invalidateAll();
+    }
+
+    private static final class Entry<C> {
+        private final C head;
+        private final C cursor;
+
+        Entry(C head, C cursor) {
+            this.head = head;
+            this.cursor = cursor;
+        }
+    }
+
+    private static final class Key {
+        private final String filters;
+        private final int pageSize;
+        private final int pageNumber;
+
+        Key(FilterList<?> filters, int pageSize, int pageNumber) {
+            this.filters = filters.operator() + ":" + filters;
+            this.pageSize = pageSize;
+            this.pageNumber = pageNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.pageSize == other.pageSize &&
+                    this.pageNumber == other.pageNumber &&
+                    this.filters.equals(other.filters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.filters, this.pageSize, this.pageNumber);
+        }
+    }
+
+}
@@ -81,4 +81,12 @@ public class ConstraintSqlBuilder extends AbstractSqlBuilder {
         this.builder.append(" LIMIT " + pageSize + " OFFSET " + (pageNumber - 1) * pageSize);
     }
 
+    public void visitLimit(@Nullable PageParameters params) {
+        if (params == null) {
+            return;
+        }
+
+        this.builder.append(" LIMIT " + params.pageSize());
+    }
+
 }
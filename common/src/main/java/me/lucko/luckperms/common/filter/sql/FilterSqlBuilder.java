@@ -51,26 +51,32 @@ public abstract class FilterSqlBuilder<T> extends ConstraintSqlBuilder {
             return;
         }
 
+        this.builder.append(" WHERE ");
+        visitConditions(combineOperator, filters);
+    }
+
+    public void visitConditions(FilterList.LogicalOperator combineOperator, List<? extends Filter<T, ?>> filters) {
+        //          'filter'
+        // 'filter AND filter'
+        //  'filter OR filter'
+
         String combineString;
         switch (combineOperator) {
             case AND:
-                combineString = "AND ";
+                combineString = " AND ";
                 break;
             case OR:
-                combineString = "OR ";
+                combineString = " OR ";
                 break;
             default:
                 throw new AssertionError(combineOperator);
         }
 
-        this.builder.append(" WHERE");
         for (int i = 0; i < filters.size(); i++) {
-            Filter<T, ?> filter = filters.get(i);
-            this.builder.append(" ");
             if (i != 0) {
                 this.builder.append(combineString);
             }
-            visit(filter);
+            visit(filters.get(i));
         }
     }
 
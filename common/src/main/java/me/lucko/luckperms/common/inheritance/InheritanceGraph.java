@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.graph.Graph;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
@@ -35,12 +37,19 @@ import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link Graph} which represents an "inheritance tree".
+ *
+ * <p>The successors, traversal order and permission layer of each group are cached
+ * in a snapshot, which is discarded whenever a group is loaded, unloaded or modified.</p>
  */
 public class InheritanceGraph implements Graph<PermissionHolder> {
     private final LuckPermsPlugin plugin;
@@ -50,13 +59,41 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      */
     private final QueryOptions queryOptions;
 
+    /**
+     * The current snapshot
+     */
+    private volatile Snapshot snapshot = new Snapshot(-1);
+
     public InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions) {
         this.plugin = plugin;
         this.queryOptions = queryOptions;
     }
 
+    private Snapshot snapshot() {
+        long version = this.plugin.getGroupManager().getVersion();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot.version != version) {
+            snapshot = this.snapshot = new Snapshot(version);
+        }
+        return snapshot;
+    }
+
     @Override
     public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
+        if (!(holder instanceof Group)) {
+            return resolveSuccessors(holder);
+        }
+
+        Snapshot snapshot = snapshot();
+        List<Group> successors = snapshot.successors.get(holder);
+        if (successors == null) {
+            successors = resolveSuccessors(holder);
+            snapshot.successors.put((Group) holder, successors);
+        }
+        return successors;
+    }
+
+    private List<Group> resolveSuccessors(PermissionHolder holder) {
         Set<Group> successors = new LinkedHashSet<>();
         for (InheritanceNode n : holder.getOwnInheritanceNodes(this.queryOptions)) {
             Group g = this.plugin.getGroupManager().getIfLoaded(n.getGroupName());
@@ -67,7 +104,68 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
 
         List<Group> successorsSorted = new ArrayList<>(successors);
         successorsSorted.sort(holder.getInheritanceComparator());
-        return successorsSorted;
+        return Collections.unmodifiableList(successorsSorted);
+    }
+
+    @Override
+    public Iterable<PermissionHolder> traverse(TraversalAlgorithm algorithm, PermissionHolder startNode) {
+        Snapshot snapshot = snapshot();
+        if (startNode instanceof Group) {
+            return traverseGroup(snapshot, algorithm, (Group) startNode);
+        }
+
+        // breadth first traversals can't be composed from the traversals of each successor
+        if (algorithm == TraversalAlgorithm.BREADTH_FIRST) {
+            return algorithm.traverse(this, startNode);
+        }
+
+        // a depth first traversal visits the whole subgraph reachable from each successor
+        // in turn, so it is equivalent to concatenating the (cached) traversals of each
+        // successor and skipping any nodes which have already been visited.
+        Set<PermissionHolder> traversal = new LinkedHashSet<>();
+        if (algorithm == TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER) {
+            traversal.add(startNode);
+        }
+        for (PermissionHolder successor : successors(startNode)) {
+            Iterables.addAll(traversal, traverseGroup(snapshot, algorithm, (Group) successor));
+        }
+        if (algorithm == TraversalAlgorithm.DEPTH_FIRST_POST_ORDER) {
+            traversal.add(startNode);
+        }
+        return traversal;
+    }
+
+    private List<PermissionHolder> traverseGroup(Snapshot snapshot, TraversalAlgorithm algorithm, Group group) {
+        Map<Group, List<PermissionHolder>> traversals = snapshot.traversals.get(algorithm);
+        List<PermissionHolder> traversal = traversals.get(group);
+        if (traversal == null) {
+            traversal = ImmutableList.copyOf(algorithm.traverse(this, group));
+            traversals.put(group, traversal);
+        }
+        return traversal;
+    }
+
+    /**
+     * Gets the {@link PermissionLayer} for the given holder's own nodes, in the
+     * contexts of this graph.
+     *
+     * <p>Layers for groups are cached, so they can be shared between holders.</p>
+     *
+     * @param holder the holder
+     * @return the permission layer
+     */
+    public PermissionLayer getPermissionLayer(PermissionHolder holder) {
+        if (!(holder instanceof Group)) {
+            return PermissionLayer.create(holder.getOwnNodes(this.queryOptions));
+        }
+
+        Snapshot snapshot = snapshot();
+        PermissionLayer layer = snapshot.layers.get(holder);
+        if (layer == null) {
+            layer = PermissionLayer.create(holder.getOwnNodes(this.queryOptions));
+            snapshot.layers.put((Group) holder, layer);
+        }
+        return layer;
     }
 
     /**
@@ -111,4 +209,21 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
         );
     }
 
+    /**
+     * Cached inheritance data for a given version of the loaded groups.
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final Map<Group, List<Group>> successors = new ConcurrentHashMap<>();
+        private final Map<Group, PermissionLayer> layers = new ConcurrentHashMap<>();
+        private final Map<TraversalAlgorithm, Map<Group, List<PermissionHolder>>> traversals = new EnumMap<>(TraversalAlgorithm.class);
+
+        Snapshot(long version) {
+            this.version = version;
+            for (TraversalAlgorithm algorithm : TraversalAlgorithm.values()) {
+                this.traversals.put(algorithm, new ConcurrentHashMap<>());
+            }
+        }
+    }
+
 }
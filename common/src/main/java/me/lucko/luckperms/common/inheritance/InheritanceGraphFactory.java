@@ -25,23 +25,42 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Provides {@link InheritanceGraph}s.
  */
 public class InheritanceGraphFactory {
+
+    /**
+     * The maximum number of graphs to keep for query options other than the defaults
+     */
+    private static final int MAXIMUM_CACHED_GRAPHS = 512;
+
     private final LuckPermsPlugin plugin;
 
     private final InheritanceGraph nonContextualGraph;
     private final InheritanceGraph defaultContextualGraph;
 
+    /**
+     * Graphs for other query options, kept so their cached snapshots can be reused
+     */
+    private final LoadingCache<QueryOptions, InheritanceGraph> graphs;
+
     public InheritanceGraphFactory(LuckPermsPlugin plugin) {
         this.plugin = plugin;
         this.nonContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL);
         this.defaultContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        this.graphs = CaffeineFactory.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_GRAPHS)
+                .expireAfterAccess(5, TimeUnit.MINUTES)
+                .build(queryOptions -> new InheritanceGraph(this.plugin, queryOptions));
     }
 
     public InheritanceGraph getGraph(QueryOptions queryOptions) {
@@ -50,7 +69,7 @@ public class InheritanceGraphFactory {
         } else if (queryOptions == QueryOptionsImpl.DEFAULT_CONTEXTUAL) {
             return this.defaultContextualGraph;
         } else {
-            return new InheritanceGraph(this.plugin, queryOptions);
+            return this.graphs.get(queryOptions);
         }
     }
 
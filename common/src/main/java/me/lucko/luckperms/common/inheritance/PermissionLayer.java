@@ -0,0 +1,94 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import me.lucko.luckperms.common.model.PermissionHolder;
+import net.luckperms.api.node.Node;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The permissions exported from the own nodes of a single {@link PermissionHolder},
+ * with keys converted to lowercase.
+ *
+ * <p>Layers for groups are cached in the {@link InheritanceGraph}, so that they can
+ * be shared between all holders which inherit from the group.</p>
+ */
+public final class PermissionLayer {
+
+    public static PermissionLayer create(List<Node> nodes) {
+        Map<String, Node> permissions = new HashMap<>(nodes.size());
+        for (Node node : nodes) {
+            permissions.putIfAbsent(node.getKey().toLowerCase(Locale.ROOT), node);
+        }
+        return new PermissionLayer(nodes, Collections.unmodifiableMap(permissions));
+    }
+
+    private final List<Node> nodes;
+    private final Map<String, Node> permissions;
+
+    /** The shorthand permissions, lazily computed */
+    private volatile Map<String, Node> shorthandPermissions = null;
+
+    private PermissionLayer(List<Node> nodes, Map<String, Node> permissions) {
+        this.nodes = nodes;
+        this.permissions = permissions;
+    }
+
+    /**
+     * Gets the permissions in this layer, keyed by the lowercase node key.
+     *
+     * @return the permissions
+     */
+    public Map<String, Node> getPermissions() {
+        return this.permissions;
+    }
+
+    /**
+     * Gets the permissions in this layer which are produced by resolving shorthand,
+     * keyed by the lowercase permission.
+     *
+     * @return the shorthand permissions
+     */
+    public Map<String, Node> getShorthandPermissions() {
+        Map<String, Node> shorthandPermissions = this.shorthandPermissions;
+        if (shorthandPermissions == null) {
+            Map<String, Node> map = new HashMap<>();
+            for (Node node : this.nodes) {
+                for (String s : node.resolveShorthand()) {
+                    map.putIfAbsent(s.toLowerCase(Locale.ROOT), node);
+                }
+            }
+            shorthandPermissions = this.shorthandPermissions = Collections.unmodifiableMap(map);
+        }
+        return shorthandPermissions;
+    }
+
+}
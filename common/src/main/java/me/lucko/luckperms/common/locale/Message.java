@@ -1735,6 +1735,22 @@ public interface Message {
                     ))
     );
 
+    Args0 METRICS_HEADER = () -> prefixed(translatable()
+            // "&bMetrics recorded since startup&3:"
+            .key("luckperms.command.metrics.header")
+            .color(AQUA)
+            .append(text(':', DARK_AQUA))
+    );
+
+    Args2<String, String> METRICS_ENTRY = (name, value) -> prefixed(text()
+            // "&f-  &3{}: &a{}"
+            .color(DARK_AQUA)
+            .append(text("-  ", WHITE))
+            .append(text(name))
+            .append(text(": "))
+            .append(text(value, GREEN))
+    );
+
     Args1<Component> CREATE_ERROR = name -> prefixed(translatable()
             // "&cThere was an error whilst creating &4{}&c."
             .key("luckperms.command.generic.create.error")
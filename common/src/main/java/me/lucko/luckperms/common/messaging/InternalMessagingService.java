@@ -26,6 +26,8 @@
 package me.lucko.luckperms.common.messaging;
 
 import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.messenger.Messenger;
@@ -67,10 +69,33 @@ public interface InternalMessagingService {
     /**
      * Pushes an update for a specific user.
      *
+     * <p>If targeted updates are enabled, the update is sent via the update
+     * buffer, together with any other changes made within the same window.</p>
+     *
      * @param user the user
      */
     CompletableFuture<Void> pushUserUpdate(User user);
 
+    /**
+     * Requests an update for a specific group via the update buffer.
+     *
+     * <p>If targeted updates are disabled, or a general update is requested
+     * within the same buffer window, a general update is sent instead.</p>
+     *
+     * @param group the group
+     */
+    CompletableFuture<Void> pushGroupUpdate(Group group);
+
+    /**
+     * Requests an update for a specific track via the update buffer.
+     *
+     * <p>If targeted updates are disabled, or a general update is requested
+     * within the same buffer window, a general update is sent instead.</p>
+     *
+     * @param track the track
+     */
+    CompletableFuture<Void> pushTrackUpdate(Track track);
+
     /**
      * Pushes a log entry to connected servers.
      *
@@ -32,8 +32,11 @@ import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
 import me.lucko.luckperms.common.messaging.message.CustomMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TargetedUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.util.AsyncInterface;
@@ -46,6 +49,7 @@ import net.luckperms.api.messenger.IncomingMessageConsumer;
 import net.luckperms.api.messenger.Messenger;
 import net.luckperms.api.messenger.MessengerProvider;
 import net.luckperms.api.messenger.message.Message;
+import net.luckperms.api.messenger.message.OutgoingMessage;
 import net.luckperms.api.messenger.message.type.ActionLogMessage;
 import net.luckperms.api.messenger.message.type.CustomMessage;
 import net.luckperms.api.messenger.message.type.UpdateMessage;
@@ -76,7 +80,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         Objects.requireNonNull(this.messenger, "messenger");
 
         this.receivedMessages = ExpiringSet.newExpiringSet(5, TimeUnit.MINUTES);
-        this.updateBuffer = new PushUpdateBuffer(plugin);
+        this.updateBuffer = new PushUpdateBuffer(plugin, this);
     }
 
     @Override
@@ -112,20 +116,43 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
 
     @Override
     public CompletableFuture<Void> pushUpdate() {
-        return future(() -> {
+        // make sure the changes being announced have been written first
+        return this.plugin.getStorage().flushPendingSaves().thenCompose(v -> future(() -> {
             UUID requestId = generatePingId();
             this.plugin.getLogger().info("[Messaging] Sending ping with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new UpdateMessageImpl(requestId));
-        });
+            sendOutgoingMessage(new UpdateMessageImpl(requestId));
+        }));
+    }
+
+    CompletableFuture<Void> pushTargetedUpdate(Set<String> groups, Set<String> tracks, Set<UUID> users) {
+        return this.plugin.getStorage().flushPendingSaves().thenCompose(v -> future(() -> {
+            UUID requestId = generatePingId();
+            this.plugin.getLogger().info("[Messaging] Sending targeted ping for groups " + groups + ", tracks " + tracks + " and users " + users + " with id: " + requestId);
+            sendOutgoingMessage(new TargetedUpdateMessageImpl(requestId, groups, tracks, users));
+        }));
+    }
+
+    @Override
+    public CompletableFuture<Void> pushGroupUpdate(Group group) {
+        return this.updateBuffer.requestGroup(group.getName());
+    }
+
+    @Override
+    public CompletableFuture<Void> pushTrackUpdate(Track track) {
+        return this.updateBuffer.requestTrack(track.getName());
     }
 
     @Override
     public CompletableFuture<Void> pushUserUpdate(User user) {
-        return future(() -> {
+        if (this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            return this.updateBuffer.requestUser(user.getUniqueId());
+        }
+
+        return this.plugin.getStorage().flushPendingSave(user).thenCompose(v -> future(() -> {
             UUID requestId = generatePingId();
             this.plugin.getLogger().info("[Messaging] Sending user ping for '" + user.getPlainDisplayName() + "' with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new UserUpdateMessageImpl(requestId, user.getUniqueId()));
-        });
+            sendOutgoingMessage(new UserUpdateMessageImpl(requestId, user.getUniqueId()));
+        }));
     }
 
     @Override
@@ -138,7 +165,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
             }
 
             this.plugin.getLogger().info("[Messaging] Sending log with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new ActionLogMessageImpl(requestId, logEntry));
+            sendOutgoingMessage(new ActionLogMessageImpl(requestId, logEntry));
         });
     }
 
@@ -146,10 +173,15 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
     public CompletableFuture<Void> pushCustomPayload(String channelId, String payload) {
         return future(() -> {
             UUID requestId = generatePingId();
-            this.messenger.sendOutgoingMessage(new CustomMessageImpl(requestId, channelId, payload));
+            sendOutgoingMessage(new CustomMessageImpl(requestId, channelId, payload));
         });
     }
 
+    private void sendOutgoingMessage(OutgoingMessage message) {
+        this.messenger.sendOutgoingMessage(message);
+        this.plugin.getMetrics().messagesSent().increment();
+    }
+
     @Override
     public boolean consumeIncomingMessage(@NonNull Message message) {
         Objects.requireNonNull(message, "message");
@@ -161,6 +193,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         // determine if the message can be handled by us
         boolean valid = message instanceof UpdateMessage ||
                 message instanceof UserUpdateMessage ||
+                message instanceof TargetedUpdateMessageImpl ||
                 message instanceof ActionLogMessage ||
                 message instanceof CustomMessage;
 
@@ -171,6 +204,7 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
             return false;
         }
 
+        this.plugin.getMetrics().messagesReceived().increment();
         processIncomingMessage(message);
         return true;
     }
@@ -221,6 +255,9 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
             case UserUpdateMessageImpl.TYPE:
                 decoded = UserUpdateMessageImpl.decode(content, id);
                 break;
+            case TargetedUpdateMessageImpl.TYPE:
+                decoded = TargetedUpdateMessageImpl.decode(content, id);
+                break;
             case ActionLogMessageImpl.TYPE:
                 decoded = ActionLogMessageImpl.decode(content, id);
                 break;
@@ -282,7 +319,19 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
             this.plugin.getLogger().info("[Messaging] Received user update ping for '" + user.getPlainDisplayName() + "' with id: " + msgId);
             this.plugin.getStorage().loadUser(user.getUniqueId(), null)
                     .thenRunAsync(() -> this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.SPECIFIC_USER, true, userUniqueId));
-            
+
+        } else if (message instanceof TargetedUpdateMessageImpl) {
+            TargetedUpdateMessageImpl msg = (TargetedUpdateMessageImpl) message;
+            UUID msgId = msg.getId();
+
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msgId, SyncType.PARTIAL, null)) {
+                return;
+            }
+
+            this.plugin.getLogger().info("[Messaging] Received targeted update ping for groups " + msg.getGroups() + ", tracks " + msg.getTracks() + " and users " + msg.getUsers() + " with id: " + msgId);
+            CompletableFuture.runAsync(() -> processTargetedUpdate(msg), this.plugin.getBootstrap().getScheduler().async())
+                    .thenRunAsync(() -> this.plugin.getEventDispatcher().dispatchNetworkPostSync(msgId, SyncType.PARTIAL, true, null));
+
         } else if (message instanceof ActionLogMessage) {
             ActionLogMessage msg = (ActionLogMessage) message;
 
@@ -299,15 +348,28 @@ public class LuckPermsMessagingService extends AsyncInterface implements Interna
         }
     }
 
-    private final class PushUpdateBuffer extends BufferedRequest<Void> {
-        PushUpdateBuffer(LuckPermsPlugin plugin) {
-            super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
+    private void processTargetedUpdate(TargetedUpdateMessageImpl msg) {
+        for (String groupName : msg.getGroups()) {
+            if (!this.plugin.getStorage().loadGroup(groupName).join().isPresent()) {
+                this.plugin.getGroupManager().unload(groupName);
+            }
+        }
+
+        for (String trackName : msg.getTracks()) {
+            if (!this.plugin.getStorage().loadTrack(trackName).join().isPresent()) {
+                this.plugin.getTrackManager().unload(trackName);
+            }
+        }
+
+        for (String groupName : msg.getGroups()) {
+            this.plugin.getGroupManager().invalidateDependentGroupCaches(groupName);
+            this.plugin.getUserManager().invalidateDependentUserCaches(groupName);
         }
 
-        @Override
-        protected Void perform() {
-            pushUpdate();
-            return null;
+        for (UUID userUniqueId : msg.getUsers()) {
+            if (this.plugin.getUserManager().isLoaded(userUniqueId)) {
+                this.plugin.getStorage().loadUser(userUniqueId, null).join();
+            }
         }
     }
 }
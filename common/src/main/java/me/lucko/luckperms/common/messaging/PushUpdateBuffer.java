@@ -0,0 +1,123 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import me.lucko.luckperms.common.cache.BufferedRequest;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers update pushes, so that changes made in quick succession are
+ * announced in a single message.
+ *
+ * <p>If a general update is requested within the buffer window, a full update
+ * is sent. Otherwise a targeted update naming the changed groups, tracks and
+ * users is sent.</p>
+ */
+final class PushUpdateBuffer extends BufferedRequest<Void> {
+    private final LuckPermsPlugin plugin;
+    private final LuckPermsMessagingService service;
+
+    // the changes requested since the buffer last ran, guarded by 'this'
+    private final Set<String> groups = new HashSet<>();
+    private final Set<String> tracks = new HashSet<>();
+    private final Set<UUID> users = new HashSet<>();
+    private boolean fullUpdate = false;
+
+    PushUpdateBuffer(LuckPermsPlugin plugin, LuckPermsMessagingService service) {
+        super(2, TimeUnit.SECONDS, plugin.getBootstrap().getScheduler());
+        this.plugin = plugin;
+        this.service = service;
+    }
+
+    @Override
+    public CompletableFuture<Void> request() {
+        synchronized (this) {
+            this.fullUpdate = true;
+        }
+        return super.request();
+    }
+
+    CompletableFuture<Void> requestGroup(String name) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            return request();
+        }
+        synchronized (this) {
+            this.groups.add(name);
+        }
+        return super.request();
+    }
+
+    CompletableFuture<Void> requestTrack(String name) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.PUSH_TARGETED_UPDATES)) {
+            return request();
+        }
+        synchronized (this) {
+            this.tracks.add(name);
+        }
+        return super.request();
+    }
+
+    CompletableFuture<Void> requestUser(UUID uniqueId) {
+        synchronized (this) {
+            this.users.add(uniqueId);
+        }
+        return super.request();
+    }
+
+    @Override
+    protected Void perform() {
+        Set<String> groups;
+        Set<String> tracks;
+        Set<UUID> users;
+        boolean fullUpdate;
+
+        synchronized (this) {
+            groups = new HashSet<>(this.groups);
+            tracks = new HashSet<>(this.tracks);
+            users = new HashSet<>(this.users);
+            fullUpdate = this.fullUpdate;
+
+            this.groups.clear();
+            this.tracks.clear();
+            this.users.clear();
+            this.fullUpdate = false;
+        }
+
+        if (fullUpdate) {
+            this.service.pushUpdate();
+        } else if (!groups.isEmpty() || !tracks.isEmpty() || !users.isEmpty()) {
+            this.service.pushTargetedUpdate(groups, tracks, users);
+        }
+        return null;
+    }
+}
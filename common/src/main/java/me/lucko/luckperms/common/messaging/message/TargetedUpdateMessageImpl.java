@@ -0,0 +1,118 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.message;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import me.lucko.luckperms.common.messaging.LuckPermsMessagingService;
+import me.lucko.luckperms.common.util.gson.JArray;
+import me.lucko.luckperms.common.util.gson.JObject;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An update message which names the groups, tracks and users that have changed,
+ * so receivers only need to reload those entities instead of performing a full sync.
+ */
+public class TargetedUpdateMessageImpl extends AbstractMessage {
+    public static final String TYPE = "targetedupdate";
+
+    public static TargetedUpdateMessageImpl decode(@Nullable JsonElement content, UUID id) {
+        if (content == null) {
+            throw new IllegalStateException("Missing content");
+        }
+
+        JsonObject obj = content.getAsJsonObject();
+        if (!obj.has("groups")) {
+            throw new IllegalStateException("Incoming message has no 'groups' argument: " + content);
+        }
+        if (!obj.has("tracks")) {
+            throw new IllegalStateException("Incoming message has no 'tracks' argument: " + content);
+        }
+
+        Set<String> groups = decodeNames(obj.get("groups"));
+        Set<String> tracks = decodeNames(obj.get("tracks"));
+
+        ImmutableSet.Builder<UUID> users = ImmutableSet.builder();
+        if (obj.has("users")) {
+            for (JsonElement uniqueId : obj.get("users").getAsJsonArray()) {
+                users.add(UUID.fromString(uniqueId.getAsString()));
+            }
+        }
+
+        return new TargetedUpdateMessageImpl(id, groups, tracks, users.build());
+    }
+
+    private static Set<String> decodeNames(JsonElement element) {
+        ImmutableSet.Builder<String> names = ImmutableSet.builder();
+        for (JsonElement name : element.getAsJsonArray()) {
+            names.add(name.getAsString());
+        }
+        return names.build();
+    }
+
+    private final Set<String> groups;
+    private final Set<String> tracks;
+    private final Set<UUID> users;
+
+    public TargetedUpdateMessageImpl(UUID id, Set<String> groups, Set<String> tracks, Set<UUID> users) {
+        super(id);
+        this.groups = ImmutableSet.copyOf(groups);
+        this.tracks = ImmutableSet.copyOf(tracks);
+        this.users = ImmutableSet.copyOf(users);
+    }
+
+    public @NonNull Set<String> getGroups() {
+        return this.groups;
+    }
+
+    public @NonNull Set<String> getTracks() {
+        return this.tracks;
+    }
+
+    public @NonNull Set<UUID> getUsers() {
+        return this.users;
+    }
+
+    @Override
+    public @NonNull String asEncodedString() {
+        return LuckPermsMessagingService.encodeMessageAsString(
+                TYPE, getId(), new JObject()
+                        .add("groups", new JArray().addAll(this.groups))
+                        .add("tracks", new JArray().addAll(this.tracks))
+                        .consume(o -> {
+                            if (!this.users.isEmpty()) {
+                                o.add("users", new JArray().consume(arr -> this.users.forEach(u -> arr.add(u.toString()))));
+                            }
+                        })
+                        .toJson()
+        );
+    }
+}
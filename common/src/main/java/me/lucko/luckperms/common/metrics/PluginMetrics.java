@@ -0,0 +1,258 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import me.lucko.luckperms.common.calculator.PermissionCalculatorBase;
+import me.lucko.luckperms.common.calculator.PermissionCalculatorBase.LookupCounters;
+
+import java.lang.ref.Cleaner;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Records performance metrics about the plugin - permission/meta check throughput,
+ * cache usage, cached data build times, storage latency and messaging activity.
+ */
+public class PluginMetrics {
+    private static final String PREFIX = "luckperms_";
+
+    /** Usage of the permission calculator lookup caches */
+    private final PermissionLookupMetrics permissionLookups = new PermissionLookupMetrics();
+    /** The number of meta checks */
+    private final Counter metaChecks = new Counter();
+
+    /** Usage of the cached data containers */
+    private final CachedDataMetrics permissionData = new CachedDataMetrics();
+    private final CachedDataMetrics metaData = new CachedDataMetrics();
+
+    /** Storage operation latencies, keyed by operation name */
+    private final Map<String, Timer> storageOperations = new ConcurrentHashMap<>();
+
+    /** Messaging activity */
+    private final Counter messagesSent = new Counter();
+    private final Counter messagesReceived = new Counter();
+
+    public PermissionLookupMetrics permissionLookups() {
+        return this.permissionLookups;
+    }
+
+    public Counter metaChecks() {
+        return this.metaChecks;
+    }
+
+    public CachedDataMetrics permissionData() {
+        return this.permissionData;
+    }
+
+    public CachedDataMetrics metaData() {
+        return this.metaData;
+    }
+
+    public Timer storageOperation(String operation) {
+        return this.storageOperations.computeIfAbsent(operation, x -> new Timer());
+    }
+
+    public Counter messagesSent() {
+        return this.messagesSent;
+    }
+
+    public Counter messagesReceived() {
+        return this.messagesReceived;
+    }
+
+    /**
+     * Gets a snapshot of the current value of each metric.
+     *
+     * <p>The keys are Prometheus style sample names, including labels.</p>
+     *
+     * @return the snapshot
+     */
+    public Map<String, Double> snapshot() {
+        Map<String, Double> snapshot = new LinkedHashMap<>();
+        collect(new Collector() {
+            @Override
+            public void family(String name, String type, String help) {
+
+            }
+
+            @Override
+            public void sample(String name, String labels, double value) {
+                snapshot.put(name + labels, value);
+            }
+        });
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Exports the current value of each metric in the Prometheus text exposition format.
+     *
+     * @return the exported metrics
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+        collect(new Collector() {
+            @Override
+            public void family(String name, String type, String help) {
+                sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+                sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            }
+
+            @Override
+            public void sample(String name, String labels, double value) {
+                sb.append(name).append(labels).append(' ').append(value).append('\n');
+            }
+        });
+        return sb.toString();
+    }
+
+    private void collect(Collector collector) {
+        long lookupMisses = this.permissionLookups.misses();
+        counter(collector, "permission_checks_total", "Number of permission checks", this.permissionLookups.hits() + lookupMisses);
+        counter(collector, "permission_lookup_misses_total", "Number of permission checks not served by the lookup cache", lookupMisses);
+        counter(collector, "permission_lookup_evictions_total", "Number of entries evicted from the lookup cache due to its size limit", this.permissionLookups.evictions());
+        counter(collector, "meta_checks_total", "Number of meta checks", this.metaChecks);
+
+        String cachedDataRequests = PREFIX + "cached_data_requests_total";
+        collector.family(cachedDataRequests, "counter", "Number of requests for cached data");
+        collector.sample(cachedDataRequests, "{type=\"permission\"}", this.permissionData.requests.get());
+        collector.sample(cachedDataRequests, "{type=\"meta\"}", this.metaData.requests.get());
+
+        String cachedDataLoads = PREFIX + "cached_data_load_seconds";
+        collector.family(cachedDataLoads, "summary", "Time spent calculating cached data");
+        summary(collector, cachedDataLoads, "{type=\"permission\"}", this.permissionData.loads);
+        summary(collector, cachedDataLoads, "{type=\"meta\"}", this.metaData.loads);
+
+        String storageOperations = PREFIX + "storage_operation_seconds";
+        collector.family(storageOperations, "summary", "Time spent performing storage operations");
+        new TreeMap<>(this.storageOperations).forEach((operation, timer) -> {
+            summary(collector, storageOperations, "{operation=\"" + operation + "\"}", timer);
+        });
+
+        counter(collector, "messaging_sent_total", "Number of messages sent by the messaging service", this.messagesSent);
+        counter(collector, "messaging_received_total", "Number of messages received by the messaging service", this.messagesReceived);
+    }
+
+    private static void counter(Collector collector, String name, String help, Counter counter) {
+        counter(collector, name, help, counter.get());
+    }
+
+    private static void counter(Collector collector, String name, String help, long value) {
+        collector.family(PREFIX + name, "counter", help);
+        collector.sample(PREFIX + name, "", value);
+    }
+
+    private static void summary(Collector collector, String name, String labels, Timer timer) {
+        collector.sample(name + "_count", labels, timer.getCount());
+        collector.sample(name + "_sum", labels, timer.getTotalSeconds());
+    }
+
+    private interface Collector {
+        void family(String name, String type, String help);
+
+        void sample(String name, String labels, double value);
+    }
+
+    /**
+     * Metrics about the lookup caches of the plugin's permission calculators.
+     *
+     * <p>Each calculator keeps its own counters, which are summed when the metrics
+     * are read. The counts of calculators which have been garbage collected are
+     * kept, so the totals never decrease.</p>
+     */
+    public static final class PermissionLookupMetrics {
+        private static final Cleaner CLEANER = Cleaner.create();
+
+        /** The counters of the calculators which are still in use */
+        private final Set<LookupCounters> active = ConcurrentHashMap.newKeySet();
+
+        /** The totals of calculators which are no longer in use */
+        private long retiredHits;
+        private long retiredMisses;
+        private long retiredEvictions;
+
+        /**
+         * Includes the counts of the given calculator in these metrics.
+         *
+         * @param calculator the calculator
+         */
+        public void register(PermissionCalculatorBase calculator) {
+            LookupCounters counters = calculator.getLookupCounters();
+            this.active.add(counters);
+
+            // the cleanup action must not reference the calculator itself
+            CLEANER.register(calculator, () -> retire(counters));
+        }
+
+        private synchronized void retire(LookupCounters counters) {
+            this.retiredHits += counters.getHits();
+            this.retiredMisses += counters.getMisses();
+            this.retiredEvictions += counters.getEvictions();
+            this.active.remove(counters);
+        }
+
+        public synchronized long hits() {
+            return this.retiredHits + sum(LookupCounters::getHits);
+        }
+
+        public synchronized long misses() {
+            return this.retiredMisses + sum(LookupCounters::getMisses);
+        }
+
+        public synchronized long evictions() {
+            return this.retiredEvictions + sum(LookupCounters::getEvictions);
+        }
+
+        private long sum(ToLongFunction<LookupCounters> function) {
+            long sum = 0;
+            for (LookupCounters counters : this.active) {
+                sum += function.applyAsLong(counters);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Metrics about a cached data container.
+     */
+    public static final class CachedDataMetrics {
+        private final Counter requests = new Counter();
+        private final Timer loads = new Timer();
+
+        public Counter requests() {
+            return this.requests;
+        }
+
+        public Timer loads() {
+            return this.loads;
+        }
+    }
+
+}
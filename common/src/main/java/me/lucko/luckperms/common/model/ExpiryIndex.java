@@ -0,0 +1,198 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * An index of the times at which temporary nodes held by {@link PermissionHolder}s expire.
+ *
+ * <p>Entries are recorded when a temporary node is added to a holder, and allow the
+ * holders with expired nodes to be found without auditing every loaded holder.</p>
+ *
+ * <p>Entries are removed when the corresponding node is removed from the holder, or
+ * when the holder is unloaded.</p>
+ */
+public class ExpiryIndex {
+
+    /** The number of temporary nodes which expire at each time, for each holder */
+    private final NavigableMap<Entry, Integer> entries = new TreeMap<>();
+
+    /** The entries for each holder */
+    private final Map<PermissionHolderIdentifier, Set<Entry>> holders = new HashMap<>();
+
+    /** Called when an entry is added which expires before all of the others */
+    private @Nullable Consumer<Instant> earliestExpiryListener;
+
+    /**
+     * Sets a callback to run when an entry is added which expires before
+     * all of the other entries in the index.
+     *
+     * @param listener the listener, called with the new earliest expiry time
+     */
+    public void setEarliestExpiryListener(@Nullable Consumer<Instant> listener) {
+        this.earliestExpiryListener = listener;
+    }
+
+    /**
+     * Records that the given holder has a node which expires at the given time.
+     *
+     * @param holder the holder
+     * @param expiry the expiry time
+     */
+    public void add(PermissionHolderIdentifier holder, Instant expiry) {
+        Entry entry = new Entry(expiry, holder);
+
+        boolean earliest;
+        synchronized (this) {
+            this.entries.merge(entry, 1, Integer::sum);
+            this.holders.computeIfAbsent(holder, k -> new HashSet<>()).add(entry);
+            earliest = this.entries.firstKey().equals(entry);
+        }
+
+        // call outside of the lock, the listener may read from the index
+        Consumer<Instant> listener = this.earliestExpiryListener;
+        if (earliest && listener != null) {
+            listener.accept(expiry);
+        }
+    }
+
+    /**
+     * Records that a node of the given holder which expires at the given time
+     * has been removed.
+     *
+     * @param holder the holder
+     * @param expiry the expiry time
+     */
+    public synchronized void remove(PermissionHolderIdentifier holder, Instant expiry) {
+        Entry entry = new Entry(expiry, holder);
+        Integer count = this.entries.computeIfPresent(entry, (k, v) -> v == 1 ? null : v - 1);
+        if (count == null) {
+            removeFromHolder(entry);
+        }
+    }
+
+    /**
+     * Removes all of the entries for the given holder.
+     *
+     * @param holder the holder
+     */
+    public synchronized void removeAll(PermissionHolderIdentifier holder) {
+        Set<Entry> entries = this.holders.remove(holder);
+        if (entries != null) {
+            this.entries.keySet().removeAll(entries);
+        }
+    }
+
+    /**
+     * Removes the entries which have expired as of {@code now}, and returns
+     * the holders they belonged to.
+     *
+     * @param now the current time
+     * @return the holders which may have expired nodes
+     */
+    public synchronized Set<PermissionHolderIdentifier> pollExpired(Instant now) {
+        Set<PermissionHolderIdentifier> holders = new LinkedHashSet<>();
+        for (Iterator<Entry> it = this.entries.keySet().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (!entry.expiry.isBefore(now)) {
+                break;
+            }
+            it.remove();
+            removeFromHolder(entry);
+            holders.add(entry.holder);
+        }
+        return holders;
+    }
+
+    /**
+     * Gets the earliest time at which an entry in the index expires.
+     *
+     * @return the earliest expiry time, or null if the index is empty
+     */
+    public synchronized @Nullable Instant getEarliestExpiry() {
+        return this.entries.isEmpty() ? null : this.entries.firstKey().expiry;
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private void removeFromHolder(Entry entry) {
+        Set<Entry> entries = this.holders.get(entry.holder);
+        if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+            this.holders.remove(entry.holder);
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final Instant expiry;
+        private final PermissionHolderIdentifier holder;
+
+        Entry(Instant expiry, PermissionHolderIdentifier holder) {
+            this.expiry = expiry;
+            this.holder = holder;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = this.expiry.compareTo(other.expiry);
+            if (result != 0) {
+                return result;
+            }
+            result = this.holder.getType().compareTo(other.holder.getType());
+            if (result != 0) {
+                return result;
+            }
+            return this.holder.getName().compareTo(other.holder.getName());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            Entry that = (Entry) o;
+            return this.expiry.equals(that.expiry) && this.holder.equals(that.holder);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.expiry.hashCode() + this.holder.hashCode();
+        }
+    }
+
+}
@@ -76,6 +76,9 @@ public class Group extends PermissionHolder {
 
     @Override
     protected void invalidateCache() {
+        // the inheritance graph caches group successors & traversals
+        getPlugin().getGroupManager().incrementVersion();
+
         super.invalidateCache();
 
         // invalidate our caches
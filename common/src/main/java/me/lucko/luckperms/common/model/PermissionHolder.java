@@ -31,6 +31,7 @@ import me.lucko.luckperms.common.cacheddata.result.IntegerResult;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.inheritance.InheritanceComparator;
 import me.lucko.luckperms.common.inheritance.InheritanceGraph;
+import me.lucko.luckperms.common.inheritance.PermissionLayer;
 import me.lucko.luckperms.common.model.nodemap.NodeMap;
 import me.lucko.luckperms.common.model.nodemap.NodeMapMutable;
 import me.lucko.luckperms.common.model.nodemap.RecordedNodeMap;
@@ -60,10 +61,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.function.IntFunction;
@@ -215,6 +218,31 @@ public abstract class PermissionHolder {
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
     }
 
+    /**
+     * Called by this holder's {@link NodeMapMutable}s when a temporary node is added.
+     *
+     * @param expiry the time the node expires
+     */
+    public void indexTemporaryNode(Instant expiry) {
+        getPlugin().getExpiryIndex().add(getIdentifier(), expiry);
+    }
+
+    /**
+     * Called by this holder's {@link NodeMapMutable}s when a temporary node is removed.
+     *
+     * @param expiry the time the node expires
+     */
+    public void unindexTemporaryNode(Instant expiry) {
+        getPlugin().getExpiryIndex().remove(getIdentifier(), expiry);
+    }
+
+    /**
+     * Called when this holder is unloaded, to remove its temporary nodes from the expiry index.
+     */
+    public void unindexTemporaryNodes() {
+        getPlugin().getExpiryIndex().removeAll(getIdentifier());
+    }
+
     public void loadNodesFromStorage(Iterable<? extends Node> set) {
         // TODO: should we attempt to "replay" existing changes on top of the new data?
         normalData().discardChanges();
@@ -352,13 +380,71 @@ public abstract class PermissionHolder {
         return (List) inheritanceTree;
     }
 
+    /**
+     * Resolves the names of all groups which the inherited data of this holder depends on.
+     *
+     * <p>This includes the groups in the inheritance tree, as well as any groups referenced
+     * by inheritance nodes which are not currently loaded.</p>
+     *
+     * @param queryOptions the query options
+     * @return the group names
+     */
+    public Set<String> resolveInheritanceDependencies(QueryOptions queryOptions) {
+        Set<String> groups = new HashSet<>();
+        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
+        for (PermissionHolder holder : graph.traverse(this)) {
+            if (holder.getType() == HolderType.GROUP) {
+                groups.add(holder.getIdentifier().getName());
+            }
+            for (InheritanceNode node : holder.getOwnInheritanceNodes(queryOptions)) {
+                groups.add(node.getGroupName().toLowerCase(Locale.ROOT));
+            }
+        }
+        return groups;
+    }
+
     public <M extends Map<String, Node>> M exportPermissions(IntFunction<M> mapFactory, QueryOptions queryOptions, boolean convertToLowercase, boolean resolveShorthand) {
+        if (convertToLowercase && queryOptions.flag(Flag.RESOLVE_INHERITANCE)) {
+            return exportPermissionLayers(mapFactory, queryOptions, resolveShorthand);
+        }
+
         List<Node> entries = resolveInheritedNodes(queryOptions);
         M map = mapFactory.apply(entries.size());
         processExportedPermissions(map, entries, convertToLowercase, resolveShorthand);
         return map;
     }
 
+    private <M extends Map<String, Node>> M exportPermissionLayers(IntFunction<M> mapFactory, QueryOptions queryOptions, boolean resolveShorthand) {
+        // equivalent to processing the inherited nodes, but using the pre-processed
+        // (and for groups, cached) permissions of each holder in the inheritance tree
+        InheritanceGraph graph = this.plugin.getInheritanceGraphFactory().getGraph(queryOptions);
+
+        List<PermissionLayer> layers = new ArrayList<>();
+        int size = 0;
+        for (PermissionHolder holder : graph.traverse(this)) {
+            PermissionLayer layer = graph.getPermissionLayer(holder);
+            layers.add(layer);
+            size += layer.getPermissions().size();
+        }
+
+        M map = mapFactory.apply(size);
+        for (PermissionLayer layer : layers) {
+            for (Map.Entry<String, Node> entry : layer.getPermissions().entrySet()) {
+                map.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (resolveShorthand) {
+            for (PermissionLayer layer : layers) {
+                for (Map.Entry<String, Node> entry : layer.getShorthandPermissions().entrySet()) {
+                    map.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return map;
+    }
+
     private static void processExportedPermissions(Map<String, Node> accumulator, List<Node> entries, boolean convertToLowercase, boolean resolveShorthand) {
         for (Node node : entries) {
             if (convertToLowercase) {
@@ -65,10 +65,22 @@ public abstract class AbstractManager<I, C, T extends C> implements Manager<I, C
     @Override
     public void unload(I id) {
         if (id != null) {
-            this.objects.remove(sanitizeIdentifier(id));
+            T object = this.objects.remove(sanitizeIdentifier(id));
+            if (object != null) {
+                onUnload(object);
+            }
         }
     }
 
+    /**
+     * Called after an object has been unloaded from this manager.
+     *
+     * @param object the object
+     */
+    protected void onUnload(T object) {
+
+    }
+
     @Override
     public void retainAll(Collection<I> ids) {
         this.objects.keySet().stream()
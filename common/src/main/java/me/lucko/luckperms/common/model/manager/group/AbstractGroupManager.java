@@ -30,9 +30,38 @@ import me.lucko.luckperms.common.model.manager.AbstractManager;
 
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class AbstractGroupManager<T extends Group> extends AbstractManager<String, Group, T> implements GroupManager<T> {
 
+    /**
+     * Incremented each time a group is loaded, unloaded or modified.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    @Override
+    public T getOrMake(String id) {
+        T group = getIfLoaded(id);
+        if (group != null) {
+            return group;
+        }
+
+        group = super.getOrMake(id);
+        incrementVersion();
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        super.unload(id);
+        incrementVersion();
+    }
+
+    @Override
+    protected void onUnload(T group) {
+        group.unindexTemporaryNodes();
+    }
+
     @Override
     public T getByDisplayName(String name) {
         // try to get an exact match first
@@ -70,8 +99,24 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         getAll().values().forEach(g -> g.getCachedData().invalidate());
     }
 
+    @Override
+    public void invalidateDependentGroupCaches(String groupName) {
+        String name = groupName.toLowerCase(Locale.ROOT);
+        getAll().values().forEach(g -> g.getCachedData().invalidateDependents(name));
+    }
+
     @Override
     public void invalidateAllPermissionCalculators() {
         getAll().values().forEach(g -> g.getCachedData().invalidatePermissionCalculators());
     }
+
+    @Override
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    @Override
+    public void incrementVersion() {
+        this.version.incrementAndGet();
+    }
 }
\ No newline at end of file
@@ -49,9 +49,33 @@ public interface GroupManager<T extends Group> extends Manager<String, Group, T>
      */
     void invalidateAllGroupCaches();
 
+    /**
+     * Invalidates the cached data for *loaded* groups which depend on the given group.
+     *
+     * <p>If dependency tracking is disabled, this is the same as {@link #invalidateAllGroupCaches()}.</p>
+     *
+     * @param groupName the name of the group which has changed
+     */
+    void invalidateDependentGroupCaches(String groupName);
+
     /**
      * Invalidates the {@link PermissionCalculator}s for *loaded* groups.
      */
     void invalidateAllPermissionCalculators();
 
+    /**
+     * Gets the current version of the loaded groups.
+     *
+     * <p>The version changes whenever a group is loaded, unloaded or modified,
+     * so it can be used to tell when data derived from the groups is stale.</p>
+     *
+     * @return the version
+     */
+    long getVersion();
+
+    /**
+     * Increments the {@link #getVersion() version} of the loaded groups.
+     */
+    void incrementVersion();
+
 }
@@ -41,6 +41,7 @@ import net.luckperms.api.node.types.InheritanceNode;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -67,6 +68,11 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         return user;
     }
 
+    @Override
+    protected void onUnload(T user) {
+        user.unindexTemporaryNodes();
+    }
+
     @Override
     public T getByUsername(String name) {
         for (T user : getAll().values()) {
@@ -175,6 +181,12 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         getAll().values().forEach(u -> u.getCachedData().invalidate());
     }
 
+    @Override
+    public void invalidateDependentUserCaches(String groupName) {
+        String name = groupName.toLowerCase(Locale.ROOT);
+        getAll().values().forEach(u -> u.getCachedData().invalidateDependents(name));
+    }
+
     @Override
     public void invalidateAllPermissionCalculators() {
         getAll().values().forEach(u -> u.getCachedData().invalidatePermissionCalculators());
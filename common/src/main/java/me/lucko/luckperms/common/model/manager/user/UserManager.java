@@ -85,6 +85,15 @@ public interface UserManager<T extends User> extends Manager<UUID, User, T> {
      */
     void invalidateAllUserCaches();
 
+    /**
+     * Invalidates the cached data for *loaded* users which depend on the given group.
+     *
+     * <p>If dependency tracking is disabled, this is the same as {@link #invalidateAllUserCaches()}.</p>
+     *
+     * @param groupName the name of the group which has changed
+     */
+    void invalidateDependentUserCaches(String groupName);
+
     /**
      * Invalidates the {@link PermissionCalculator}s for *loaded* users.
      */
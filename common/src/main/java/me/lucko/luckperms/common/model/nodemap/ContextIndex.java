@@ -0,0 +1,138 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model.nodemap;
+
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import net.luckperms.api.context.Context;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.query.QueryMode;
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexes the context set keys of a {@link NodeMapMutable} by each of the contexts they contain.
+ *
+ * <p>A non-empty context set can only be satisfied by a query if they have at least one
+ * context in common, so filtered queries only need to visit the buckets found under the
+ * contexts of the query (plus the global bucket), instead of every bucket in the map.</p>
+ *
+ * <p>Writes are expected to be made whilst holding the node map's lock, but the index can be
+ * read concurrently.</p>
+ */
+final class ContextIndex {
+
+    // below this many buckets, it's quicker to just check every one
+    private static final int MIN_INDEXED_BUCKETS = 16;
+
+    private final Set<ImmutableContextSet> contextSets = ConcurrentHashMap.newKeySet();
+    private final Map<Context, Set<ImmutableContextSet>> index = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a context set to the index, if it isn't already present.
+     *
+     * @param contextSet the context set
+     */
+    public void add(ImmutableContextSet contextSet) {
+        if (!this.contextSets.add(contextSet)) {
+            return;
+        }
+        for (Context context : contextSet) {
+            this.index.computeIfAbsent(context, k -> ConcurrentHashMap.newKeySet()).add(contextSet);
+        }
+    }
+
+    /**
+     * Removes a context set from the index.
+     *
+     * @param contextSet the context set
+     */
+    public void remove(ImmutableContextSet contextSet) {
+        if (!this.contextSets.remove(contextSet)) {
+            return;
+        }
+        for (Context context : contextSet) {
+            Set<ImmutableContextSet> sets = this.index.get(context);
+            if (sets != null) {
+                sets.remove(contextSet);
+                if (sets.isEmpty()) {
+                    this.index.remove(context);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all context sets from the index.
+     */
+    public void clear() {
+        this.contextSets.clear();
+        this.index.clear();
+    }
+
+    /**
+     * Gets the entries in the given map which could be satisfied by the filter, in map order.
+     *
+     * <p>The filter still needs to be tested against each of the returned entries.</p>
+     *
+     * @param map the map (indexed by this instance)
+     * @param filter the filter
+     * @param <T> the value type
+     * @return the candidate entries
+     */
+    public <T> Iterable<Map.Entry<ImmutableContextSet, T>> candidates(SortedMap<ImmutableContextSet, T> map, QueryOptions filter) {
+        if (filter.mode() != QueryMode.CONTEXTUAL || this.contextSets.size() < MIN_INDEXED_BUCKETS) {
+            return map.entrySet();
+        }
+
+        SortedSet<ImmutableContextSet> candidates = new TreeSet<>(map.comparator());
+        candidates.add(ImmutableContextSetImpl.EMPTY);
+        for (Context context : filter.context()) {
+            Set<ImmutableContextSet> sets = this.index.get(context);
+            if (sets != null) {
+                candidates.addAll(sets);
+            }
+        }
+
+        List<Map.Entry<ImmutableContextSet, T>> entries = new ArrayList<>(candidates.size());
+        for (ImmutableContextSet contextSet : candidates) {
+            T value = map.get(contextSet);
+            if (value != null) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(contextSet, value));
+            }
+        }
+        return entries;
+    }
+
+}
@@ -60,6 +60,8 @@ abstract class NodeMapBase implements NodeMap {
 
     protected abstract ContextSatisfyMode defaultSatisfyMode();
 
+    protected abstract ContextIndex contextIndex();
+
     @Override
     public boolean isEmpty() {
         return map().isEmpty();
@@ -101,7 +103,7 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void forEach(QueryOptions filter, Consumer<? super Node> consumer) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : contextIndex().candidates(map(), filter)) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -135,7 +137,7 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void copyTo(Collection<? super Node> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : contextIndex().candidates(map(), filter)) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -161,7 +163,7 @@ abstract class NodeMapBase implements NodeMap {
             return;
         }
         
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : map().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : contextIndex().candidates(map(), filter)) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -194,7 +196,7 @@ abstract class NodeMapBase implements NodeMap {
 
     @Override
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : inheritanceMap().entrySet()) {
+        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : contextIndex().candidates(inheritanceMap(), filter)) {
             if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
                 continue;
             }
@@ -75,6 +75,13 @@ public class NodeMapMutable extends NodeMapBase {
     private final SortedMap<ImmutableContextSet, SortedSet<Node>> map = createMap();
     private final SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = createMap();
 
+    /*
+     * Indexes the keys of the maps above by the contexts they contain, so filtered queries
+     * don't need to test every context set. The keys of inheritanceMap are always a subset of
+     * the keys of map, so the same index is used for both.
+     */
+    private final ContextIndex contextIndex = new ContextIndex();
+
     /**
      * This lock is used whilst performing writes, but *not* reads.
      *
@@ -110,6 +117,11 @@ public class NodeMapMutable extends NodeMapBase {
         return this.holder.getPlugin().getConfiguration().get(ConfigKeys.CONTEXT_SATISFY_MODE);
     }
 
+    @Override
+    protected ContextIndex contextIndex() {
+        return this.contextIndex;
+    }
+
     private Node addInheritanceOrigin(Node node) {
         Optional<InheritanceOriginMetadata> existing = node.getMetadata(InheritanceOriginMetadata.KEY);
         if (existing.isPresent() && existing.get().equals(this.inheritanceOrigin)) {
@@ -129,6 +141,7 @@ public class NodeMapMutable extends NodeMapBase {
         this.lock.lock();
         try {
             SortedSet<Node> nodes = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
+            this.contextIndex.add(context);
 
             // add the new node to the set - if it was already there, return
             if (!nodes.add(node)) {
@@ -138,6 +151,11 @@ public class NodeMapMutable extends NodeMapBase {
             // mark that we added the node in the results
             result.recordChange(ChangeType.ADD, node);
 
+            // index the expiry time so the node can be removed when it expires
+            if (node.hasExpiry()) {
+                this.holder.indexTemporaryNode(node.getExpiry());
+            }
+
             // remove any others that were in the set already with a different value/expiry time
             removeMatchingButNotSame(nodes.iterator(), node, result);
 
@@ -156,6 +174,7 @@ public class NodeMapMutable extends NodeMapBase {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
@@ -186,6 +205,7 @@ public class NodeMapMutable extends NodeMapBase {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
@@ -239,6 +259,7 @@ public class NodeMapMutable extends NodeMapBase {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
@@ -255,6 +276,7 @@ public class NodeMapMutable extends NodeMapBase {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
@@ -274,6 +296,7 @@ public class NodeMapMutable extends NodeMapBase {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
@@ -297,6 +320,15 @@ public class NodeMapMutable extends NodeMapBase {
         }
     }
 
+    // remove the expiry times of any temporary nodes which were removed from the index
+    private void unindexRemoved(Difference<Node> result) {
+        for (Node node : result.getRemoved()) {
+            if (node.hasExpiry()) {
+                this.holder.unindexTemporaryNode(node.getExpiry());
+            }
+        }
+    }
+
     @Override
     public Difference<Node> removeThenAdd(Node nodeToRemove, Node nodeToAdd) {
         if (nodeToAdd.equals(nodeToRemove)) {
@@ -324,10 +356,12 @@ public class NodeMapMutable extends NodeMapBase {
 
             this.map.clear();
             this.inheritanceMap.clear();
+            this.contextIndex.clear();
         } finally {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
@@ -342,11 +376,13 @@ public class NodeMapMutable extends NodeMapBase {
             if (removed != null) {
                 result.recordChanges(ChangeType.REMOVE, removed);
                 this.inheritanceMap.remove(context);
+                this.contextIndex.remove(context);
             }
         } finally {
             this.lock.unlock();
         }
 
+        unindexRemoved(result);
         return result;
     }
 
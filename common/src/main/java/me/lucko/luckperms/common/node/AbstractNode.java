@@ -25,9 +25,11 @@
 
 package me.lucko.luckperms.common.node;
 
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import me.lucko.luckperms.common.node.utils.ShorthandParser;
+import me.lucko.luckperms.common.util.CaffeineFactory;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeBuilder;
@@ -54,6 +56,13 @@ public abstract class AbstractNode<N extends ScopedNode<N, B>, B extends NodeBui
     public static final char NODE_SEPARATOR = '.';
     public static final String NODE_SEPARATOR_STRING = String.valueOf(NODE_SEPARATOR);
 
+    // keys are compared by identity, so this is only effective for keys which have been
+    // interned by the node builders, but that includes every node read from storage
+    private static final LoadingCache<String, List<String>> RESOLVED_SHORTHAND = CaffeineFactory.newBuilder()
+            .weakKeys()
+            .weakValues()
+            .build(key -> ImmutableList.copyOf(ShorthandParser.expandShorthandSafely(key)));
+
     // node attributes
     protected final String key;
     protected final boolean value;
@@ -74,7 +83,7 @@ public abstract class AbstractNode<N extends ScopedNode<N, B>, B extends NodeBui
         this.metadata = ImmutableMap.copyOf(metadata);
 
         this.resolvedShorthand = this instanceof PermissionNode
-                ? ImmutableList.copyOf(ShorthandParser.expandShorthandSafely(this.key))
+                ? RESOLVED_SHORTHAND.get(this.key)
                 : ImmutableList.of();
 
         this.hashCode = calculateHashCode();
@@ -25,12 +25,16 @@
 
 package me.lucko.luckperms.common.node;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import net.luckperms.api.context.ContextSet;
 import net.luckperms.api.context.ImmutableContextSet;
 import net.luckperms.api.node.NodeBuilder;
 import net.luckperms.api.node.ScopedNode;
 import net.luckperms.api.node.metadata.NodeMetadataKey;
+import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -46,6 +50,16 @@ import java.util.Objects;
 
 @SuppressWarnings("unchecked")
 public abstract class AbstractNodeBuilder<N extends ScopedNode<N, B>, B extends NodeBuilder<N, B>> implements NodeBuilder<N, B> {
+
+    /*
+     * Equal nodes are very often held by many holders at once (e.g. 'group.default' for every
+     * loaded user), but each holder needs its own instance, as the inheritance origin is stored
+     * in the node metadata. Instead, the builders intern the components of the nodes they build,
+     * which includes the nodes read from storage and the copies made to attach the origin.
+     */
+    private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
+    private static final Interner<Map<NodeMetadataKey<?>, Object>> METADATA_INTERNER = Interners.newWeakInterner();
+
     protected boolean value;
     protected long expireAt;
     protected ImmutableContextSet.Builder context;
@@ -136,6 +150,46 @@ public abstract class AbstractNodeBuilder<N extends ScopedNode<N, B>, B extends
         return (B) this;
     }
 
+    /**
+     * Returns a canonical instance equal to the given string.
+     *
+     * @param string the string
+     * @return the canonical instance
+     */
+    protected static String intern(String string) {
+        return STRING_INTERNER.intern(string);
+    }
+
+    /**
+     * Builds the context set for the node, using a canonical instance.
+     *
+     * @return the context set
+     */
+    protected ImmutableContextSet buildContext() {
+        return ImmutableContextSetImpl.intern(this.context.build());
+    }
+
+    /**
+     * Builds the metadata map for the node.
+     *
+     * <p>Only maps which contain just the inheritance origin are interned. Other
+     * metadata, like the row id attached by the SQL storage, is different for
+     * each node, so interning it would only fill the interner.</p>
+     *
+     * @return the metadata map
+     */
+    protected Map<NodeMetadataKey<?>, Object> buildMetadata() {
+        if (this.metadata.isEmpty()) {
+            return ImmutableMap.of();
+        }
+
+        Map<NodeMetadataKey<?>, Object> metadata = ImmutableMap.copyOf(this.metadata);
+        if (metadata.size() == 1 && metadata.containsKey(InheritanceOriginMetadata.KEY)) {
+            return METADATA_INTERNER.intern(metadata);
+        }
+        return metadata;
+    }
+
     protected static void ensureDefined(Object value, String description) {
         if (value == null) {
             throw new IllegalStateException(description + " has not been defined");
@@ -104,7 +104,7 @@ public class DisplayName extends AbstractNode<DisplayNameNode, DisplayNameNode.B
         @Override
         public @NonNull DisplayName build() {
             ensureDefined(this.displayName, "display name");
-            return new DisplayName(this.displayName, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new DisplayName(this.displayName, this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
@@ -41,7 +41,7 @@ import java.util.Objects;
 
 public class Inheritance extends AbstractNode<InheritanceNode, InheritanceNode.Builder> implements InheritanceNode {
     private static final String NODE_KEY = "group";
-    private static final String NODE_MARKER = NODE_KEY + ".";
+    public static final String NODE_MARKER = NODE_KEY + ".";
 
     public static String key(String groupName) {
         return NODE_MARKER + groupName.toLowerCase(Locale.ROOT);
@@ -58,8 +58,12 @@ public class Inheritance extends AbstractNode<InheritanceNode, InheritanceNode.B
     private final String groupName;
 
     public Inheritance(String groupName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
-        super(key(groupName), value, expireAt, contexts, metadata);
-        this.groupName = groupName.toLowerCase(Locale.ROOT);
+        this(key(groupName), groupName.toLowerCase(Locale.ROOT), value, expireAt, contexts, metadata);
+    }
+
+    private Inheritance(String key, String groupName, boolean value, long expireAt, ImmutableContextSet contexts, Map<NodeMetadataKey<?>, Object> metadata) {
+        super(key, value, expireAt, contexts, metadata);
+        this.groupName = groupName;
     }
 
     @Override
@@ -113,7 +117,8 @@ public class Inheritance extends AbstractNode<InheritanceNode, InheritanceNode.B
         @Override
         public @NonNull Inheritance build() {
             ensureDefined(this.groupName, "group");
-            return new Inheritance(this.groupName, this.value, this.expireAt, this.context.build(), this.metadata);
+            String groupName = this.groupName.toLowerCase(Locale.ROOT);
+            return new Inheritance(intern(key(groupName)), intern(groupName), this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
@@ -41,7 +41,7 @@ import java.util.Objects;
 
 public class Meta extends AbstractNode<MetaNode, MetaNode.Builder> implements MetaNode {
     private static final String NODE_KEY = "meta";
-    private static final String NODE_MARKER = NODE_KEY + ".";
+    public static final String NODE_MARKER = NODE_KEY + ".";
 
     public static String key(String key, String value) {
         return NODE_MARKER + Delimiters.escapeCharacters(key).toLowerCase(Locale.ROOT) + AbstractNode.NODE_SEPARATOR + Delimiters.escapeCharacters(value);
@@ -132,7 +132,7 @@ public class Meta extends AbstractNode<MetaNode, MetaNode.Builder> implements Me
         public @NonNull Meta build() {
             ensureDefined(this.metaKey, "meta key");
             ensureDefined(this.metaValue, "meta value");
-            return new Meta(this.metaKey, this.metaValue, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Meta(this.metaKey, this.metaValue, this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
@@ -138,7 +138,7 @@ public class Prefix extends AbstractNode<PrefixNode, PrefixNode.Builder> impleme
         public @NonNull Prefix build() {
             ensureDefined(this.prefix, "prefix");
             ensureDefined(this.priority, "priority");
-            return new Prefix(this.prefix, this.priority, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Prefix(this.prefix, this.priority, this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
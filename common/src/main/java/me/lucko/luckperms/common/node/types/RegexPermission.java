@@ -120,7 +120,7 @@ public class RegexPermission extends AbstractNode<RegexPermissionNode, RegexPerm
         @Override
         public @NonNull RegexPermission build() {
             ensureDefined(this.pattern, "pattern");
-            return new RegexPermission(this.pattern, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new RegexPermission(this.pattern, this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
@@ -139,7 +139,7 @@ public class Suffix extends AbstractNode<SuffixNode, SuffixNode.Builder> impleme
         public @NonNull Suffix build() {
             ensureDefined(this.suffix, "suffix");
             ensureDefined(this.priority, "priority");
-            return new Suffix(this.suffix, this.priority, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Suffix(this.suffix, this.priority, this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
@@ -104,7 +104,7 @@ public class Weight extends AbstractNode<WeightNode, WeightNode.Builder> impleme
         @Override
         public @NonNull Weight build() {
             ensureDefined(this.weight, "weight");
-            return new Weight(this.weight, this.value, this.expireAt, this.context.build(), this.metadata);
+            return new Weight(this.weight, this.value, this.expireAt, buildContext(), buildMetadata());
         }
     }
 }
@@ -54,6 +54,8 @@ import me.lucko.luckperms.common.locale.TranslationManager;
 import me.lucko.luckperms.common.locale.TranslationRepository;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
 import me.lucko.luckperms.common.messaging.MessagingFactory;
+import me.lucko.luckperms.common.metrics.PluginMetrics;
+import me.lucko.luckperms.common.model.ExpiryIndex;
 import me.lucko.luckperms.common.plugin.logging.PluginLogger;
 import me.lucko.luckperms.common.plugin.util.HealthCheckResult;
 import me.lucko.luckperms.common.storage.Storage;
@@ -112,6 +114,8 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     private InternalMessagingService messagingService = null;
     private SyncTask.Buffer syncTaskBuffer;
     private InheritanceGraphFactory inheritanceGraphFactory;
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final PluginMetrics metrics = new PluginMetrics();
     private CalculatorFactory calculatorFactory;
     private LuckPermsApiProvider apiProvider;
     private EventDispatcher eventDispatcher;
@@ -355,7 +359,9 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
     // hooks called during enable
 
     protected void registerHousekeepingTasks() {
-        getBootstrap().getScheduler().asyncRepeating(new ExpireTemporaryTask(this), 3, TimeUnit.SECONDS);
+        ExpireTemporaryTask expireTemporaryTask = new ExpireTemporaryTask(this);
+        this.expiryIndex.setEarliestExpiryListener(expireTemporaryTask::schedule);
+        expireTemporaryTask.scheduleNext();
         getBootstrap().getScheduler().asyncRepeating(new CacheHousekeepingTask(this), 2, TimeUnit.MINUTES);
     }
 
@@ -565,6 +571,16 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         return this.inheritanceGraphFactory;
     }
 
+    @Override
+    public ExpiryIndex getExpiryIndex() {
+        return this.expiryIndex;
+    }
+
+    @Override
+    public PluginMetrics getMetrics() {
+        return this.metrics;
+    }
+
     @Override
     public CalculatorFactory getCalculatorFactory() {
         return this.calculatorFactory;
@@ -41,6 +41,8 @@ import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
 import me.lucko.luckperms.common.locale.TranslationManager;
 import me.lucko.luckperms.common.locale.TranslationRepository;
 import me.lucko.luckperms.common.messaging.InternalMessagingService;
+import me.lucko.luckperms.common.metrics.PluginMetrics;
+import me.lucko.luckperms.common.model.ExpiryIndex;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
@@ -208,6 +210,20 @@ public interface LuckPermsPlugin {
      */
     InheritanceGraphFactory getInheritanceGraphFactory();
 
+    /**
+     * Gets the index of temporary node expiry times
+     *
+     * @return the expiry index
+     */
+    ExpiryIndex getExpiryIndex();
+
+    /**
+     * Gets the performance metrics recorded by the plugin
+     *
+     * @return the metrics
+     */
+    PluginMetrics getMetrics();
+
     /**
      * Gets the class responsible for constructing PermissionCalculators on this platform.
      *
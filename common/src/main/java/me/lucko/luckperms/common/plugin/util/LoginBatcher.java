@@ -0,0 +1,208 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin.util;
+
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups together logins which happen at roughly the same time, so that
+ * the data for the connecting users can be loaded from storage in bulk.
+ *
+ * <p>Also places a limit on the number of login storage operations which can
+ * be in progress at once, to avoid exhausting the storage connection pool
+ * when lots of players connect at the same time.</p>
+ */
+public class LoginBatcher {
+    private final LuckPermsPlugin plugin;
+
+    /** The batch window in milliseconds, or 0 if batching is disabled */
+    private final int batchWindow;
+    /** The maximum number of logins in a batch */
+    private final int batchSize;
+    /** Limits the number of storage operations in progress, or null if there is no limit */
+    private final @Nullable Semaphore concurrencyLimit;
+
+    /** The requests waiting to be processed, guarded by 'this' */
+    private List<LoginRequest> pending = new ArrayList<>();
+
+    public LoginBatcher(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+        this.batchWindow = plugin.getConfiguration().get(ConfigKeys.LOGIN_BATCH_WINDOW);
+        this.batchSize = plugin.getConfiguration().get(ConfigKeys.LOGIN_BATCH_SIZE);
+
+        int maxConcurrentLoads = plugin.getConfiguration().get(ConfigKeys.LOGIN_MAX_CONCURRENT_LOADS);
+        this.concurrencyLimit = maxConcurrentLoads > 0 ? new Semaphore(maxConcurrentLoads, true) : null;
+    }
+
+    /**
+     * Saves the player data for the connecting user and loads their data,
+     * blocking until the operation is complete.
+     *
+     * @param uniqueId the users unique id
+     * @param username the users username
+     * @return the result
+     */
+    public UserLoginResult login(UUID uniqueId, String username) {
+        if (this.batchWindow <= 0) {
+            acquire();
+            try {
+                return checkResult(uniqueId, this.plugin.getStorage().loginUser(uniqueId, username).join());
+            } finally {
+                release();
+            }
+        }
+
+        LoginRequest request = new LoginRequest(uniqueId, username);
+        List<LoginRequest> batch = null;
+
+        synchronized (this) {
+            this.pending.add(request);
+            if (this.pending.size() >= this.batchSize) {
+                batch = this.pending;
+                this.pending = new ArrayList<>();
+            } else if (this.pending.size() == 1) {
+                this.plugin.getBootstrap().getScheduler().asyncLater(this::flush, this.batchWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // the batch is full, process it on this thread instead of waiting for the window to end
+        if (batch != null) {
+            process(batch);
+        }
+
+        return request.future.join();
+    }
+
+    private void flush() {
+        List<LoginRequest> batch;
+        synchronized (this) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            batch = this.pending;
+            this.pending = new ArrayList<>();
+        }
+        process(batch);
+    }
+
+    private void process(List<LoginRequest> batch) {
+        acquire();
+        try {
+            if (batch.size() == 1) {
+                LoginRequest request = batch.get(0);
+                loginIndividually(request);
+            } else {
+                processBatch(batch);
+            }
+        } catch (Exception e) {
+            for (LoginRequest request : batch) {
+                request.future.completeExceptionally(e);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void processBatch(List<LoginRequest> batch) {
+        Storage storage = this.plugin.getStorage();
+
+        Map<UUID, String> usernames = new HashMap<>();
+        for (LoginRequest request : batch) {
+            usernames.put(request.uniqueId, request.username);
+        }
+
+        Map<UUID, UserLoginResult> results;
+        try {
+            results = storage.loginUsers(usernames).join();
+        } catch (Exception e) {
+            this.plugin.getLogger().warn("Unable to process a batch of " + batch.size() + " logins, retrying them individually", e);
+            results = Collections.emptyMap();
+        }
+
+        for (LoginRequest request : batch) {
+            UserLoginResult result = results.get(request.uniqueId);
+            if (result != null && result.getUser() != null) {
+                request.future.complete(result);
+            } else {
+                // fall back to a single login, so a failure only affects one player
+                loginIndividually(request);
+            }
+        }
+    }
+
+    private void loginIndividually(LoginRequest request) {
+        try {
+            UserLoginResult result = this.plugin.getStorage().loginUser(request.uniqueId, request.username).join();
+            request.future.complete(checkResult(request.uniqueId, result));
+        } catch (Exception e) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private static UserLoginResult checkResult(UUID uniqueId, UserLoginResult result) {
+        if (result == null || result.getUser() == null) {
+            throw new IllegalStateException("Storage did not return any data for user " + uniqueId);
+        }
+        return result;
+    }
+
+    private void acquire() {
+        if (this.concurrencyLimit != null) {
+            this.concurrencyLimit.acquireUninterruptibly();
+        }
+    }
+
+    private void release() {
+        if (this.concurrencyLimit != null) {
+            this.concurrencyLimit.release();
+        }
+    }
+
+    private static final class LoginRequest {
+        private final UUID uniqueId;
+        private final String username;
+        private final CompletableFuture<UserLoginResult> future = new CompletableFuture<>();
+
+        LoginRequest(UUID uniqueId, String username) {
+            this.uniqueId = uniqueId;
+            this.username = username;
+        }
+    }
+}
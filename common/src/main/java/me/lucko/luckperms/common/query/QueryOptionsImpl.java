@@ -27,6 +27,8 @@ package me.lucko.luckperms.common.query;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
@@ -47,6 +49,25 @@ public class QueryOptionsImpl implements QueryOptions {
     public static final QueryOptions DEFAULT_CONTEXTUAL = new QueryOptionsImpl(QueryMode.CONTEXTUAL, ImmutableContextSetImpl.EMPTY, FlagUtils.ALL_FLAGS, null);
     public static final QueryOptions DEFAULT_NON_CONTEXTUAL = new QueryOptionsImpl(QueryMode.NON_CONTEXTUAL, null, FlagUtils.ALL_FLAGS, null);
 
+    // weakly holds canonical instances of the query options calculated for subjects
+    private static final Interner<QueryOptions> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Returns a canonical instance equal to the given query options.
+     *
+     * <p>Cached data is keyed by query options, so sharing an instance between subjects
+     * in the same context allows lookups to short-circuit on reference equality.</p>
+     *
+     * @param queryOptions the query options
+     * @return the canonical instance
+     */
+    public static QueryOptions intern(QueryOptions queryOptions) {
+        if (queryOptions == DEFAULT_CONTEXTUAL || queryOptions == DEFAULT_NON_CONTEXTUAL) {
+            return queryOptions;
+        }
+        return INTERNER.intern(queryOptions);
+    }
+
     // state
     private final QueryMode mode;
     private final ImmutableContextSet context;
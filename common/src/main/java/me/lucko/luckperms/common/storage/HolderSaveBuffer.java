@@ -0,0 +1,188 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.util.CompletableFutures;
+import me.lucko.luckperms.common.util.Throwing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds back saves of permission holders for a short window, so that repeated
+ * saves of the same holder are coalesced into a single write.
+ *
+ * <p>Each save replaces the pending action for its holder. The action reads the
+ * holder's current state when it runs, so the latest changes are always written.</p>
+ *
+ * <p>Once a save starts to run it is tracked as "in flight" until the write completes,
+ * so that flushes also wait for writes which are already in progress.</p>
+ */
+final class HolderSaveBuffer {
+    private final SchedulerAdapter scheduler;
+    private final long window;
+
+    /** Saves which are waiting for the window to pass */
+    private final Map<PermissionHolderIdentifier, PendingSave> pending = new ConcurrentHashMap<>();
+    /** Saves which are currently being written, only modified while holding the lock for the holder in {@link #pending} */
+    private final Map<PermissionHolderIdentifier, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    HolderSaveBuffer(SchedulerAdapter scheduler, long window) {
+        this.scheduler = scheduler;
+        this.window = window;
+    }
+
+    /**
+     * Enqueues a save for the given holder.
+     *
+     * @param holder the holder being saved
+     * @param action the save action
+     * @return a future which completes once the holder has been written
+     */
+    public CompletableFuture<Void> save(PermissionHolderIdentifier holder, Throwing.Runnable action) {
+        PendingSave[] created = new PendingSave[1];
+        PendingSave save = this.pending.compute(holder, (k, existing) -> {
+            if (existing != null) {
+                existing.action = action;
+                return existing;
+            }
+            return created[0] = new PendingSave(k, action);
+        });
+
+        if (created[0] != null) {
+            try {
+                this.scheduler.asyncLater(created[0], this.window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // If we can't schedule the save in the future, just do it now.
+                created[0].run();
+            }
+        }
+
+        return save.future;
+    }
+
+    /**
+     * Immediately writes the pending save for the given holder, if there is one.
+     *
+     * @param holder the holder
+     * @return a future which completes once the holder has been written,
+     *         including any write which was already in progress
+     */
+    public CompletableFuture<Void> flush(PermissionHolderIdentifier holder) {
+        // read both maps under the lock for the holder, so a save which is
+        // moving from pending to in flight is seen in one of them
+        PendingSave[] pendingSave = new PendingSave[1];
+        List<CompletableFuture<Void>> inFlightSave = new ArrayList<>(1);
+        this.pending.compute(holder, (k, existing) -> {
+            pendingSave[0] = existing;
+            CompletableFuture<Void> future = this.inFlight.get(k);
+            if (future != null) {
+                inFlightSave.add(future);
+            }
+            return existing;
+        });
+
+        if (pendingSave[0] != null) {
+            // the pending save waits for the one in flight before it is written
+            pendingSave[0].run();
+            return pendingSave[0].future;
+        }
+        return inFlightSave.isEmpty() ? CompletableFuture.completedFuture(null) : inFlightSave.get(0);
+    }
+
+    /**
+     * Immediately writes all pending saves.
+     *
+     * @return a future which completes once all holders have been written,
+     *         including any writes which were already in progress
+     */
+    public CompletableFuture<Void> flushAll() {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (PendingSave save : this.pending.values()) {
+            save.run();
+            futures.add(save.future);
+        }
+        // saves only move from pending to in flight, so anything missed above is seen here
+        futures.addAll(this.inFlight.values());
+        return CompletableFutures.allOf(futures);
+    }
+
+    private final class PendingSave implements Runnable {
+        private final PermissionHolderIdentifier holder;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile Throwing.Runnable action;
+
+        PendingSave(PermissionHolderIdentifier holder, Throwing.Runnable action) {
+            this.holder = holder;
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            // move from pending to in flight atomically with respect to #save and #flush,
+            // so that any later saves enqueue a new write instead of joining this one
+            boolean[] started = new boolean[1];
+            List<CompletableFuture<Void>> previous = new ArrayList<>(1);
+            HolderSaveBuffer.this.pending.computeIfPresent(this.holder, (k, existing) -> {
+                if (existing != this) {
+                    return existing;
+                }
+                started[0] = true;
+                CompletableFuture<Void> previousFuture = HolderSaveBuffer.this.inFlight.put(k, this.future);
+                if (previousFuture != null) {
+                    previous.add(previousFuture);
+                }
+                return null;
+            });
+            if (!started[0]) {
+                return;
+            }
+
+            try {
+                // don't overtake an earlier write of the same holder
+                for (CompletableFuture<Void> previousFuture : previous) {
+                    previousFuture.exceptionally(e -> null).join();
+                }
+                this.action.run();
+                this.future.complete(null);
+            } catch (Exception e) {
+                this.future.completeExceptionally(e);
+            } finally {
+                HolderSaveBuffer.this.pending.compute(this.holder, (k, existing) -> {
+                    HolderSaveBuffer.this.inFlight.remove(k, this.future);
+                    return existing;
+                });
+            }
+        }
+    }
+}
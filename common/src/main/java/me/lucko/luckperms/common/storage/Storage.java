@@ -28,9 +28,14 @@ package me.lucko.luckperms.common.storage;
 import com.google.common.collect.ImmutableList;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
+import me.lucko.luckperms.common.metrics.Timer;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
@@ -38,7 +43,10 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import me.lucko.luckperms.common.util.AsyncInterface;
+import me.lucko.luckperms.common.util.Throwing;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.event.cause.DeletionCause;
@@ -54,7 +62,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
@@ -62,11 +72,17 @@ import java.util.concurrent.CompletableFuture;
 public class Storage extends AsyncInterface {
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
+    private final @Nullable HolderSaveBuffer saveBuffer;
 
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         super(plugin);
         this.plugin = plugin;
         this.implementation = implementation;
+
+        int saveCoalesceWindow = plugin.getConfiguration().get(ConfigKeys.SAVE_COALESCE_WINDOW);
+        this.saveBuffer = saveCoalesceWindow > 0
+                ? new HolderSaveBuffer(plugin.getBootstrap().getScheduler(), saveCoalesceWindow)
+                : null;
     }
 
     public StorageImplementation getImplementation() {
@@ -94,6 +110,14 @@ public class Storage extends AsyncInterface {
     }
 
     public void shutdown() {
+        if (this.saveBuffer != null) {
+            try {
+                this.saveBuffer.flushAll().join();
+            } catch (Exception e) {
+                this.plugin.getLogger().severe("Failed to write pending saves", e);
+            }
+        }
+
         try {
             this.implementation.shutdown();
         } catch (Exception e) {
@@ -101,161 +125,305 @@ public class Storage extends AsyncInterface {
         }
     }
 
+    /**
+     * Gets if user and group saves are held back to be coalesced.
+     *
+     * <p>When this is true, loads and deletes of a holder wait for its pending save.</p>
+     *
+     * @return if saves are coalesced
+     */
+    public boolean isCoalescingSaves() {
+        return this.saveBuffer != null;
+    }
+
+    /**
+     * Immediately writes any saves which are being held back to be coalesced.
+     *
+     * <p>Failures are reported to the original callers of the save, not to this future.</p>
+     *
+     * @return a future which completes once the pending saves have been attempted
+     */
+    public CompletableFuture<Void> flushPendingSaves() {
+        if (this.saveBuffer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return future(this::awaitPendingSaves);
+    }
+
+    /**
+     * Immediately writes the pending save for the given holder, if it is being
+     * held back to be coalesced.
+     *
+     * @param holder the holder
+     * @return a future which completes once the pending save has been attempted
+     */
+    public CompletableFuture<Void> flushPendingSave(PermissionHolder holder) {
+        if (this.saveBuffer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return future(() -> awaitPendingSave(holder.getIdentifier()));
+    }
+
+    // called before (re)loading or replacing stored data, so pending changes are not lost
+    private void awaitPendingSave(HolderType type, String name) {
+        awaitPendingSave(new PermissionHolderIdentifier(type, name));
+    }
+
+    private void awaitPendingSave(PermissionHolderIdentifier holder) {
+        if (this.saveBuffer != null) {
+            // failures are reported to whoever requested the save
+            this.saveBuffer.flush(holder).exceptionally(e -> null).join();
+        }
+    }
+
+    private void awaitPendingSaves() {
+        if (this.saveBuffer != null) {
+            this.saveBuffer.flushAll().exceptionally(e -> null).join();
+        }
+    }
+
     public StorageMetadata getMeta() {
         return this.implementation.getMeta();
     }
 
+    // records the time taken by storage operations in the plugin metrics
+    private <T> Callable<T> timed(String operation, Callable<T> callable) {
+        Timer timer = this.plugin.getMetrics().storageOperation(operation);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return callable.call();
+            } finally {
+                timer.recordSince(start);
+            }
+        };
+    }
+
+    private Throwing.Runnable timed(String operation, Throwing.Runnable runnable) {
+        Timer timer = this.plugin.getMetrics().storageOperation(operation);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                timer.recordSince(start);
+            }
+        };
+    }
+
     public CompletableFuture<Void> logAction(Action entry) {
-        return future(() -> this.implementation.logAction(entry));
+        return future(timed("logAction", () -> this.implementation.logAction(entry)));
     }
 
     public CompletableFuture<LogPage> getLogPage(FilterList<Action> filters, @Nullable PageParameters page) {
-        return future(() -> this.implementation.getLogPage(filters, page));
+        return future(timed("getLogPage", () -> this.implementation.getLogPage(filters, page)));
     }
 
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
-        return future(() -> this.implementation.applyBulkUpdate(bulkUpdate));
+        return future(timed("applyBulkUpdate", () -> {
+            awaitPendingSaves();
+            this.implementation.applyBulkUpdate(bulkUpdate);
+        }));
     }
 
     public CompletableFuture<User> loadUser(UUID uniqueId, String username) {
-        return future(() -> {
+        return future(timed("loadUser", () -> {
+            awaitPendingSave(HolderType.USER, uniqueId.toString());
             User user = this.implementation.loadUser(uniqueId, username);
             if (user != null) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
             }
             return user;
-        });
+        }));
     }
 
     public CompletableFuture<Map<UUID, User>> loadUsers(Set<UUID> uniqueIds) {
-        return future(() -> {
+        return future(timed("loadUsers", () -> {
+            for (UUID uniqueId : uniqueIds) {
+                awaitPendingSave(HolderType.USER, uniqueId.toString());
+            }
             Map<UUID, User> users = this.implementation.loadUsers(uniqueIds);
             for (User user : users.values()) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
             }
             return users;
-        });
+        }));
     }
 
     public CompletableFuture<Void> saveUser(User user) {
-        return future(() -> this.implementation.saveUser(user));
+        if (this.saveBuffer != null) {
+            return this.saveBuffer.save(user.getIdentifier(), timed("saveUser", () -> this.implementation.saveUser(user)));
+        }
+        return future(timed("saveUser", () -> this.implementation.saveUser(user)));
+    }
+
+    public CompletableFuture<Void> saveUsers(Collection<StoredUser> users) {
+        return future(timed("saveUsers", () -> {
+            for (StoredUser user : users) {
+                awaitPendingSave(HolderType.USER, user.getUniqueId().toString());
+            }
+            this.implementation.saveUsers(users);
+        }));
     }
 
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
-        return future(this.implementation::getUniqueUsers);
+        return future(timed("getUniqueUsers", this.implementation::getUniqueUsers));
+    }
+
+    public CompletableFuture<Void> iterateUsers(Consumer<StoredUser> consumer) {
+        return future(timed("iterateUsers", () -> this.implementation.iterateUsers(consumer)));
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<UUID, N>>> searchUserNodes(ConstraintNodeMatcher<N> constraint) {
-        return future(() -> {
+        return future(timed("searchUserNodes", () -> {
             List<NodeEntry<UUID, N>> result = this.implementation.searchUserNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
-        });
+        }));
     }
 
     public CompletableFuture<Group> createAndLoadGroup(String name, CreationCause cause) {
-        return future(() -> {
+        return future(timed("createAndLoadGroup", () -> {
             Group group = this.implementation.createAndLoadGroup(name.toLowerCase(Locale.ROOT));
             if (group != null) {
                 this.plugin.getEventDispatcher().dispatchGroupCreate(group, cause);
             }
             return group;
-        });
+        }));
     }
 
     public CompletableFuture<Optional<Group>> loadGroup(String name) {
-        return future(() -> {
+        return future(timed("loadGroup", () -> {
+            awaitPendingSave(HolderType.GROUP, name.toLowerCase(Locale.ROOT));
             Optional<Group> group = this.implementation.loadGroup(name.toLowerCase(Locale.ROOT));
             if (group.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchGroupLoad(group.get());
             }
             return group;
-        });
+        }));
     }
 
     public CompletableFuture<Void> loadAllGroups() {
-        return future(() -> {
+        return future(timed("loadAllGroups", () -> {
+            awaitPendingSaves();
             this.implementation.loadAllGroups();
             this.plugin.getEventDispatcher().dispatchGroupLoadAll();
-        });
+        }));
     }
 
     public CompletableFuture<Void> saveGroup(Group group) {
-        return future(() -> this.implementation.saveGroup(group));
+        if (this.saveBuffer != null) {
+            return this.saveBuffer.save(group.getIdentifier(), timed("saveGroup", () -> this.implementation.saveGroup(group)));
+        }
+        return future(timed("saveGroup", () -> this.implementation.saveGroup(group)));
     }
 
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
-        return future(() -> {
+        return future(timed("deleteGroup", () -> {
+            awaitPendingSave(HolderType.GROUP, group.getName());
             this.implementation.deleteGroup(group);
             this.plugin.getEventDispatcher().dispatchGroupDelete(group, cause);
-        });
+        }));
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<String, N>>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) {
-        return future(() -> {
+        return future(timed("searchGroupNodes", () -> {
             List<NodeEntry<String, N>> result = this.implementation.searchGroupNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
-        });
+        }));
     }
 
     public CompletableFuture<Track> createAndLoadTrack(String name, CreationCause cause) {
-        return future(() -> {
+        return future(timed("createAndLoadTrack", () -> {
             Track track = this.implementation.createAndLoadTrack(name.toLowerCase(Locale.ROOT));
             if (track != null) {
                 this.plugin.getEventDispatcher().dispatchTrackCreate(track, cause);
             }
             return track;
-        });
+        }));
     }
 
     public CompletableFuture<Optional<Track>> loadTrack(String name) {
-        return future(() -> {
+        return future(timed("loadTrack", () -> {
             Optional<Track> track = this.implementation.loadTrack(name.toLowerCase(Locale.ROOT));
             if (track.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchTrackLoad(track.get());
             }
             return track;
-        });
+        }));
     }
 
     public CompletableFuture<Void> loadAllTracks() {
-        return future(() -> {
+        return future(timed("loadAllTracks", () -> {
             this.implementation.loadAllTracks();
             this.plugin.getEventDispatcher().dispatchTrackLoadAll();
-        });
+        }));
     }
 
     public CompletableFuture<Void> saveTrack(Track track) {
-        return future(() -> this.implementation.saveTrack(track));
+        return future(timed("saveTrack", () -> this.implementation.saveTrack(track)));
     }
 
     public CompletableFuture<Void> deleteTrack(Track track, DeletionCause cause) {
-        return future(() -> {
+        return future(timed("deleteTrack", () -> {
             this.implementation.deleteTrack(track);
             this.plugin.getEventDispatcher().dispatchTrackDelete(track, cause);
-         });
+        }));
     }
 
     public CompletableFuture<PlayerSaveResult> savePlayerData(UUID uniqueId, String username) {
-        return future(() -> {
+        return future(timed("savePlayerData", () -> {
             PlayerSaveResult result = this.implementation.savePlayerData(uniqueId, username);
             if (result != null) {
                 this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result);
             }
             return result;
-        });
+        }));
+    }
+
+    public CompletableFuture<UserLoginResult> loginUser(UUID uniqueId, String username) {
+        return future(timed("loginUser", () -> {
+            awaitPendingSave(HolderType.USER, uniqueId.toString());
+            UserLoginResult result = this.implementation.loginUser(uniqueId, username);
+            if (result.getSaveResult() != null) {
+                this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result.getSaveResult());
+            }
+            if (result.getUser() != null) {
+                this.plugin.getEventDispatcher().dispatchUserLoad(result.getUser());
+            }
+            return result;
+        }));
+    }
+
+    public CompletableFuture<Map<UUID, UserLoginResult>> loginUsers(Map<UUID, String> usernames) {
+        return future(timed("loginUsers", () -> {
+            for (UUID uniqueId : usernames.keySet()) {
+                awaitPendingSave(HolderType.USER, uniqueId.toString());
+            }
+            Map<UUID, UserLoginResult> results = this.implementation.loginUsers(usernames);
+            for (Map.Entry<UUID, UserLoginResult> entry : results.entrySet()) {
+                UserLoginResult result = entry.getValue();
+                if (result.getSaveResult() != null) {
+                    this.plugin.getEventDispatcher().dispatchPlayerDataSave(entry.getKey(), usernames.get(entry.getKey()), result.getSaveResult());
+                }
+                if (result.getUser() != null) {
+                    this.plugin.getEventDispatcher().dispatchUserLoad(result.getUser());
+                }
+            }
+            return results;
+        }));
     }
 
     public CompletableFuture<Void> deletePlayerData(UUID uniqueId) {
-        return future(() -> this.implementation.deletePlayerData(uniqueId));
+        return future(timed("deletePlayerData", () -> this.implementation.deletePlayerData(uniqueId)));
     }
 
     public CompletableFuture<UUID> getPlayerUniqueId(String username) {
-        return future(() -> this.implementation.getPlayerUniqueId(username));
+        return future(timed("getPlayerUniqueId", () -> this.implementation.getPlayerUniqueId(username)));
     }
 
     public CompletableFuture<String> getPlayerName(UUID uniqueId) {
-        return future(() -> this.implementation.getPlayerName(uniqueId));
+        return future(timed("getPlayerName", () -> this.implementation.getPlayerName(uniqueId)));
     }
 }
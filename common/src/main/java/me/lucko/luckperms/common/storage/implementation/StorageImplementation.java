@@ -36,16 +36,22 @@ import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.StorageMetadata;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface StorageImplementation {
     LuckPermsPlugin getPlugin();
@@ -70,8 +76,48 @@ public interface StorageImplementation {
 
     void saveUser(User user) throws Exception;
 
+    /**
+     * Replaces the stored data of each of the given users.
+     *
+     * <p>Users with no nodes have their stored nodes removed. Implementations
+     * should override this to write the users in as few batches as possible.</p>
+     *
+     * @param users the users to save
+     * @throws Exception if an error occurs
+     */
+    default void saveUsers(Collection<StoredUser> users) throws Exception {
+        for (StoredUser data : users) {
+            User user = loadUser(data.getUniqueId(), data.getUsername());
+            if (data.getPrimaryGroup() != null) {
+                user.getPrimaryGroup().setStoredValue(data.getPrimaryGroup());
+            }
+            user.setNodes(DataType.NORMAL, data.getNodes(), false);
+            saveUser(user);
+            getPlugin().getUserManager().getHouseKeeper().cleanup(data.getUniqueId());
+        }
+    }
+
     Set<UUID> getUniqueUsers() throws Exception;
 
+    /**
+     * Reads the stored data of every user returned by {@link #getUniqueUsers()},
+     * passing each to the consumer in turn.
+     *
+     * <p>Users are not kept loaded in the user manager. Implementations should
+     * override this to read the data in bounded pages, so that memory usage does
+     * not grow with the number of stored users.</p>
+     *
+     * @param consumer the consumer
+     * @throws Exception if an error occurs
+     */
+    default void iterateUsers(Consumer<StoredUser> consumer) throws Exception {
+        for (UUID uniqueId : getUniqueUsers()) {
+            User user = loadUser(uniqueId, null);
+            consumer.accept(StoredUser.of(user));
+            getPlugin().getUserManager().getHouseKeeper().cleanup(uniqueId);
+        }
+    }
+
     <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception;
 
     Group createAndLoadGroup(String name) throws Exception;
@@ -98,6 +144,41 @@ public interface StorageImplementation {
 
     PlayerSaveResult savePlayerData(UUID uniqueId, String username) throws Exception;
 
+    /**
+     * Saves the player data for a connecting user and then loads the user.
+     *
+     * <p>Implementations should override this to perform both operations in as
+     * few round-trips to the backing store as possible.</p>
+     *
+     * @param uniqueId the users unique id
+     * @param username the users username
+     * @return the result
+     * @throws Exception if an error occurs
+     */
+    default UserLoginResult loginUser(UUID uniqueId, String username) throws Exception {
+        PlayerSaveResult saveResult = savePlayerData(uniqueId, username);
+        User user = loadUser(uniqueId, username);
+        return UserLoginResult.of(saveResult, user);
+    }
+
+    /**
+     * Saves the player data for a batch of connecting users and then loads the users.
+     *
+     * <p>Implementations should override this to handle the whole batch in as
+     * few round-trips to the backing store as possible.</p>
+     *
+     * @param usernames the usernames of the connecting users, keyed by unique id
+     * @return the results, keyed by unique id
+     * @throws Exception if an error occurs
+     */
+    default Map<UUID, UserLoginResult> loginUsers(Map<UUID, String> usernames) throws Exception {
+        Map<UUID, UserLoginResult> results = new HashMap<>();
+        for (Map.Entry<UUID, String> entry : usernames.entrySet()) {
+            results.put(entry.getKey(), loginUser(entry.getKey(), entry.getValue()));
+        }
+        return results;
+    }
+
     void deletePlayerData(UUID uniqueId) throws Exception;
 
     @Nullable UUID getPlayerUniqueId(String username) throws Exception;
@@ -48,6 +48,7 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.file.loader.ConfigurateLoader;
 import me.lucko.luckperms.common.storage.implementation.file.loader.JsonLoader;
 import me.lucko.luckperms.common.storage.implementation.file.loader.YamlLoader;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
 import me.lucko.luckperms.common.util.MoreFiles;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.context.DefaultContextKeys;
@@ -145,6 +146,19 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
      */
     protected abstract void saveFile(StorageLocation location, String name, ConfigurationNode node) throws IOException;
 
+    /**
+     * Saves a number of configuration nodes to the given location
+     *
+     * @param location the location
+     * @param nodes the nodes, keyed by the name of the object
+     * @throws IOException if an io error occurs
+     */
+    protected void saveFiles(StorageLocation location, Map<String, ConfigurationNode> nodes) throws IOException {
+        for (Map.Entry<String, ConfigurationNode> entry : nodes.entrySet()) {
+            saveFile(location, entry.getKey(), entry.getValue());
+        }
+    }
+
     @Override
     public void init() throws IOException {
         // init the data directory and ensure it exists
@@ -224,18 +238,12 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
             if (!this.plugin.getUserManager().isNonDefaultUser(user)) {
                 saveFile(StorageLocation.USERS, user.getUniqueId().toString(), null);
             } else {
-                ConfigurationNode file = ConfigurationNode.root();
-                if (this instanceof SeparatedConfigurateStorage) {
-                    file.getNode("uuid").setValue(user.getUniqueId().toString());
-                }
-
-                String name = user.getUsername().orElse("null");
-                String primaryGroup = user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME);
-
-                file.getNode("name").setValue(name);
-                file.getNode(this.loader instanceof JsonLoader ? "primaryGroup" : "primary-group").setValue(primaryGroup);
-
-                writeNodes(file, user.normalData().asList());
+                ConfigurationNode file = writeUser(
+                        user.getUniqueId(),
+                        user.getUsername().orElse(null),
+                        user.getPrimaryGroup().getStoredValue().orElse(null),
+                        user.normalData().asList()
+                );
                 saveFile(StorageLocation.USERS, user.getUniqueId().toString(), file);
             }
         } catch (Exception e) {
@@ -243,6 +251,43 @@ public abstract class AbstractConfigurateStorage implements StorageImplementatio
         }
     }
 
+    @Override
+    public void saveUsers(Collection<StoredUser> users) throws IOException {
+        Map<String, ConfigurationNode> files = new HashMap<>(users.size());
+        for (StoredUser user : users) {
+            String uniqueId = user.getUniqueId().toString();
+            if (user.getNodes().isEmpty()) {
+                files.put(uniqueId, null);
+                continue;
+            }
+
+            // keep the existing stored name if the user doesn't have one
+            String username = user.getUsername();
+            if (username == null) {
+                ConfigurationNode existing = readFile(StorageLocation.USERS, uniqueId);
+                if (existing != null) {
+                    username = existing.getNode("name").getString();
+                }
+            }
+
+            files.put(uniqueId, writeUser(user.getUniqueId(), username, user.getPrimaryGroup(), user.getNodes()));
+        }
+        saveFiles(StorageLocation.USERS, files);
+    }
+
+    private ConfigurationNode writeUser(UUID uniqueId, @Nullable String username, @Nullable String primaryGroup, Collection<Node> nodes) {
+        ConfigurationNode file = ConfigurationNode.root();
+        if (this instanceof SeparatedConfigurateStorage) {
+            file.getNode("uuid").setValue(uniqueId.toString());
+        }
+
+        file.getNode("name").setValue(username == null ? "null" : username);
+        file.getNode(this.loader instanceof JsonLoader ? "primaryGroup" : "primary-group").setValue(primaryGroup == null ? GroupManager.DEFAULT_GROUP_NAME : primaryGroup);
+
+        writeNodes(file, nodes);
+        return file;
+    }
+
     @Override
     public Group createAndLoadGroup(String name) throws IOException {
         Group group = this.plugin.getGroupManager().getOrMake(name);
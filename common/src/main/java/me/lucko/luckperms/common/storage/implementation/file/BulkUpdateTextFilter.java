@@ -0,0 +1,168 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateField;
+import me.lucko.luckperms.common.filter.Comparison;
+import me.lucko.luckperms.common.filter.Constraint;
+import me.lucko.luckperms.common.filter.Filter;
+import me.lucko.luckperms.common.filter.FilterList;
+import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Meta;
+import me.lucko.luckperms.common.node.types.Prefix;
+import me.lucko.luckperms.common.node.types.Suffix;
+import net.luckperms.api.node.Node;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A cheap check against the raw text of a storage file, used to skip parsing
+ * files which can't contain any of the nodes affected by a {@link BulkUpdate}.
+ *
+ * <p>Only the (positive) constraints on node keys are considered. Regular permission
+ * keys are written to the file as-is, so any file containing a matching node must contain
+ * every run of plain characters in the literal parts of the constraint value.</p>
+ *
+ * <p>Inheritance, prefix, suffix and meta nodes are written in a different form (e.g. just
+ * the group name under "parents"), so constraints which could match those keys are ignored.</p>
+ */
+public final class BulkUpdateTextFilter {
+
+    // runs of characters which are never escaped or quoted differently by the file formats
+    private static final Pattern PLAIN_RUN = Pattern.compile("[a-z0-9.\\-]+");
+
+    // the prefixes of the node keys which aren't written to the file as-is
+    private static final String[] TRANSFORMED_KEY_MARKERS = {
+            Inheritance.NODE_MARKER,
+            Prefix.NODE_MARKER,
+            Suffix.NODE_MARKER,
+            Meta.NODE_MARKER
+    };
+
+    // characters (other than '.') which have a special meaning in the patterns used for SIMILAR comparisons
+    private static final Pattern REGEX_METACHARACTERS = Pattern.compile("[\\\\^$|?*+()\\[\\]{}]");
+
+    /**
+     * Creates a text filter for the given bulk update.
+     *
+     * @param bulkUpdate the bulk update
+     * @return the filter, or null if the update's filters can't be checked against raw text
+     */
+    public static @Nullable BulkUpdateTextFilter create(BulkUpdate bulkUpdate) {
+        FilterList<Node> filters = bulkUpdate.getFilters();
+        if (filters.operator() != FilterList.LogicalOperator.AND) {
+            return null;
+        }
+
+        List<String> fragments = new ArrayList<>();
+        for (Filter<Node, ?> filter : filters) {
+            if (filter.field() != BulkUpdateField.PERMISSION) {
+                continue;
+            }
+
+            Constraint<?> constraint = filter.constraint();
+            String value = ((String) constraint.value()).toLowerCase(Locale.ROOT);
+
+            if (constraint.comparison() == Comparison.SIMILAR) {
+                if (REGEX_METACHARACTERS.matcher(value).find() || mayMatchTransformedKey(literalPrefix(value))) {
+                    continue;
+                }
+                value = value.replace(Comparison.WILDCARD, " ").replace(Comparison.WILDCARD_ONE, " ");
+            } else if (constraint.comparison() == Comparison.EQUAL) {
+                if (mayMatchTransformedKey(value)) {
+                    continue;
+                }
+            } else {
+                continue;
+            }
+
+            Matcher matcher = PLAIN_RUN.matcher(value);
+            while (matcher.find()) {
+                fragments.add(matcher.group());
+            }
+        }
+
+        return fragments.isEmpty() ? null : new BulkUpdateTextFilter(fragments);
+    }
+
+    /**
+     * Gets if a key starting with the given (lowercase) prefix could be an inheritance,
+     * prefix, suffix or meta node.
+     *
+     * @param prefix the known prefix of the key
+     * @return true if the key could be stored in a transformed form
+     */
+    private static boolean mayMatchTransformedKey(String prefix) {
+        for (String marker : TRANSFORMED_KEY_MARKERS) {
+            if (prefix.startsWith(marker) || marker.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String literalPrefix(String pattern) {
+        int end = pattern.length();
+        int wildcard = pattern.indexOf(Comparison.WILDCARD);
+        if (wildcard != -1) {
+            end = Math.min(end, wildcard);
+        }
+        int wildcardOne = pattern.indexOf(Comparison.WILDCARD_ONE);
+        if (wildcardOne != -1) {
+            end = Math.min(end, wildcardOne);
+        }
+        return pattern.substring(0, end);
+    }
+
+    private final List<String> fragments;
+
+    private BulkUpdateTextFilter(List<String> fragments) {
+        this.fragments = fragments;
+    }
+
+    /**
+     * Gets if a file with the given contents could contain a node affected by the update.
+     *
+     * @param text the raw text of the file
+     * @return true if the file should be parsed and checked
+     */
+    public boolean mightMatch(String text) {
+        String lowerCaseText = text.toLowerCase(Locale.ROOT);
+        for (String fragment : this.fragments) {
+            if (!lowerCaseText.contains(fragment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -37,8 +37,11 @@ import me.lucko.luckperms.common.util.Uuids;
 import net.luckperms.api.node.Node;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.loader.ConfigurationLoader;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -48,6 +51,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -79,6 +83,16 @@ public class CombinedConfigurateStorage extends AbstractConfigurateStorage {
         getLoader(location).apply(true, false, root -> root.getNode(name).setValue(node));
     }
 
+    @Override
+    protected void saveFiles(StorageLocation location, Map<String, ConfigurationNode> nodes) throws IOException {
+        // apply all of the changes before writing the combined file once
+        getLoader(location).apply(true, false, root -> {
+            for (Map.Entry<String, ConfigurationNode> entry : nodes.entrySet()) {
+                root.getNode(entry.getKey()).setValue(entry.getValue());
+            }
+        });
+    }
+
     private CachedLoader getLoader(StorageLocation location) {
         switch (location) {
             case USERS:
@@ -144,23 +158,27 @@ public class CombinedConfigurateStorage extends AbstractConfigurateStorage {
 
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
+        BulkUpdateTextFilter textFilter = BulkUpdateTextFilter.create(bulkUpdate);
+
         if (bulkUpdate.getDataType().isIncludingUsers()) {
-            this.users.apply(true, true, root -> {
-                for (Map.Entry<Object, ? extends ConfigurationNode> entry : root.getChildrenMap().entrySet()) {
-                    processBulkUpdate(bulkUpdate, entry.getValue(), HolderType.USER);
-                }
-            });
+            applyBulkUpdate(this.users, HolderType.USER, bulkUpdate, textFilter);
         }
 
         if (bulkUpdate.getDataType().isIncludingGroups()) {
-            this.groups.apply(true, true, root -> {
-                for (Map.Entry<Object, ? extends ConfigurationNode> entry : root.getChildrenMap().entrySet()) {
-                    processBulkUpdate(bulkUpdate, entry.getValue(), HolderType.GROUP);
-                }
-            });
+            applyBulkUpdate(this.groups, HolderType.GROUP, bulkUpdate, textFilter);
         }
     }
 
+    private void applyBulkUpdate(CachedLoader loader, HolderType holderType, BulkUpdate bulkUpdate, @Nullable BulkUpdateTextFilter textFilter) throws IOException {
+        loader.update(textFilter == null ? null : textFilter::mightMatch, root -> {
+            boolean changed = false;
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : root.getChildrenMap().entrySet()) {
+                changed |= processBulkUpdate(bulkUpdate, entry.getValue(), holderType);
+            }
+            return changed;
+        });
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws IOException {
         return this.users.getNode().getChildrenMap().keySet().stream()
@@ -302,6 +320,31 @@ public class CombinedConfigurateStorage extends AbstractConfigurateStorage {
             }
         }
 
+        /**
+         * Reloads the file and applies an action to it, then saves the file only if the action
+         * made any changes.
+         *
+         * @param textFilter a check the raw text of the file must pass before it is reloaded, or null
+         * @param action the action, returning true if the node was changed
+         * @throws IOException if an io error occurs
+         */
+        public void update(@Nullable Predicate<String> textFilter, Predicate<ConfigurationNode> action) throws IOException {
+            this.lock.lock();
+            try {
+                // avoid parsing the whole file if the action can't affect it
+                if (textFilter != null && (!Files.exists(this.file) || !textFilter.test(new String(Files.readAllBytes(this.file), StandardCharsets.UTF_8)))) {
+                    return;
+                }
+
+                reload();
+                if (action.test(this.node)) {
+                    save();
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
         public void save() throws IOException {
             this.lock.lock();
             try {
@@ -0,0 +1,259 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import me.lucko.luckperms.common.filter.Comparison;
+import me.lucko.luckperms.common.filter.Constraint;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
+import net.luckperms.api.node.Node;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index from node keys to the holders with a node using that key.
+ *
+ * <p>Used by {@link SeparatedConfigurateStorage} to avoid reading every
+ * file when searching for nodes. Each entry records the size and last modified
+ * time of the file it was read from, so that changes made outside of LuckPerms
+ * can be detected and re-indexed.</p>
+ */
+public class NodeSearchIndex {
+
+    // holder -> indexed file
+    private final Map<String, IndexedFile> files = new HashMap<>();
+
+    // lowercase node key -> holders (constraints on keys are case-insensitive)
+    private final NavigableMap<String, Set<String>> keys = new TreeMap<>();
+
+    // if there are changes which haven't been saved
+    private boolean dirty = false;
+
+    /**
+     * Gets if the index entry for the given holder is up to date with the file.
+     *
+     * @param holder the holder
+     * @param attributes the current attributes of the holder's file
+     * @return true if the entry is current
+     */
+    public synchronized boolean isCurrent(String holder, BasicFileAttributes attributes) {
+        IndexedFile file = this.files.get(holder);
+        return file != null && file.matches(attributes);
+    }
+
+    /**
+     * Updates the index entry for the given holder.
+     *
+     * @param holder the holder
+     * @param attributes the attributes of the holder's file at the time it was read/written
+     * @param nodes the holder's nodes
+     */
+    public synchronized void update(String holder, BasicFileAttributes attributes, Collection<? extends Node> nodes) {
+        Set<String> nodeKeys = new HashSet<>();
+        for (Node node : nodes) {
+            nodeKeys.add(node.getKey().toLowerCase(Locale.ROOT));
+        }
+
+        remove(holder);
+        this.files.put(holder, new IndexedFile(attributes.size(), attributes.lastModifiedTime().toMillis(), nodeKeys));
+        for (String key : nodeKeys) {
+            this.keys.computeIfAbsent(key, k -> new HashSet<>()).add(holder);
+        }
+        this.dirty = true;
+    }
+
+    /**
+     * Removes the index entry for the given holder.
+     *
+     * @param holder the holder
+     */
+    public synchronized void remove(String holder) {
+        IndexedFile file = this.files.remove(holder);
+        if (file == null) {
+            return;
+        }
+
+        for (String key : file.keys) {
+            Set<String> holders = this.keys.get(key);
+            if (holders != null && holders.remove(holder) && holders.isEmpty()) {
+                this.keys.remove(key);
+            }
+        }
+        this.dirty = true;
+    }
+
+    /**
+     * Removes the index entries for any holders not in the given set.
+     *
+     * @param holders the holders to retain
+     */
+    public synchronized void retainAll(Set<String> holders) {
+        for (String holder : new HashSet<>(this.files.keySet())) {
+            if (!holders.contains(holder)) {
+                remove(holder);
+            }
+        }
+    }
+
+    /**
+     * Gets the holders which have at least one node with a key matching the given constraint.
+     *
+     * @param constraint the constraint
+     * @return the matching holders
+     */
+    public synchronized Set<String> lookup(Constraint<String> constraint) {
+        String value = constraint.value().toLowerCase(Locale.ROOT);
+
+        if (constraint.comparison() == Comparison.EQUAL) {
+            Set<String> holders = this.keys.get(value);
+            return holders == null ? Collections.emptySet() : new HashSet<>(holders);
+        }
+
+        // for 'foo.%' style constraints, only consider keys which start with the literal prefix
+        NavigableMap<String, Set<String>> keys = this.keys;
+        if (constraint.comparison() == Comparison.SIMILAR) {
+            String prefix = literalPrefix(value);
+            if (!prefix.isEmpty()) {
+                keys = keys.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+            }
+        }
+
+        Set<String> holders = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : keys.entrySet()) {
+            if (constraint.evaluate(entry.getKey())) {
+                holders.addAll(entry.getValue());
+            }
+        }
+        return holders;
+    }
+
+    private static String literalPrefix(String pattern) {
+        int end = pattern.length();
+        int wildcard = pattern.indexOf(Comparison.WILDCARD);
+        if (wildcard != -1) {
+            end = wildcard;
+        }
+        int wildcardOne = pattern.indexOf(Comparison.WILDCARD_ONE);
+        if (wildcardOne != -1) {
+            end = Math.min(end, wildcardOne);
+        }
+        return pattern.substring(0, end);
+    }
+
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject data = GsonProvider.normal().fromJson(reader, JsonObject.class);
+            if (data == null) {
+                return;
+            }
+
+            for (Map.Entry<String, JsonElement> entry : data.entrySet()) {
+                String holder = entry.getKey();
+                JsonObject object = entry.getValue().getAsJsonObject();
+
+                Set<String> nodeKeys = new HashSet<>();
+                for (JsonElement key : object.getAsJsonArray("keys")) {
+                    nodeKeys.add(key.getAsString());
+                }
+
+                this.files.put(holder, new IndexedFile(object.get("size").getAsLong(), object.get("lastModified").getAsLong(), nodeKeys));
+                for (String key : nodeKeys) {
+                    this.keys.computeIfAbsent(key, k -> new HashSet<>()).add(holder);
+                }
+            }
+        } catch (Exception e) {
+            // the index will be rebuilt from the files
+            this.files.clear();
+            this.keys.clear();
+        }
+        this.dirty = false;
+    }
+
+    public synchronized void save(Path file) throws IOException {
+        if (!this.dirty) {
+            return;
+        }
+
+        JsonObject data = new JsonObject();
+        for (Map.Entry<String, IndexedFile> entry : this.files.entrySet()) {
+            IndexedFile indexedFile = entry.getValue();
+
+            JsonArray keys = new JsonArray();
+            for (String key : indexedFile.keys) {
+                keys.add(key);
+            }
+
+            JsonObject object = new JsonObject();
+            object.addProperty("size", indexedFile.size);
+            object.addProperty("lastModified", indexedFile.lastModified);
+            object.add("keys", keys);
+            data.add(entry.getKey(), object);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GsonProvider.normal().toJson(data, writer);
+        }
+        this.dirty = false;
+    }
+
+    private static final class IndexedFile {
+        private final long size;
+        private final long lastModified;
+        private final Set<String> keys;
+
+        IndexedFile(long size, long lastModified, Set<String> keys) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.keys = keys;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return this.size == attributes.size() && this.lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+}
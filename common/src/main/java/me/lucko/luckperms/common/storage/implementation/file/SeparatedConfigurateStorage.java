@@ -41,17 +41,23 @@ import me.lucko.luckperms.common.util.MoreFiles;
 import me.lucko.luckperms.common.util.Uuids;
 import net.luckperms.api.node.Node;
 import ninja.leaping.configurate.ConfigurationNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
@@ -63,6 +69,10 @@ import java.util.stream.Stream;
  * The data for each user/group/track is stored in a separate file.
  */
 public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
+
+    // the maximum number of files to process at once when applying a bulk update
+    private static final int BULK_UPDATE_PARALLELISM = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
     private final String fileExtension;
     private final Predicate<Path> fileExtensionFilter;
 
@@ -74,6 +84,8 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     private static final class FileGroup {
         private Path directory;
         private FileWatcher.WatchedLocation watcher;
+        private NodeSearchIndex searchIndex;
+        private Path searchIndexFile;
     }
 
     private final LoadingCache<Path, ReentrantLock> ioLocks;
@@ -123,7 +135,47 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     protected void saveFile(StorageLocation location, String name, ConfigurationNode node) throws IOException {
         Path file = getDirectory(location).resolve(name + this.fileExtension);
         registerFileAction(location, file);
-        saveFile(file, node);
+
+        NodeSearchIndex searchIndex = this.fileGroups.get(location).searchIndex;
+        if (searchIndex == null) {
+            saveFile(file, node);
+            return;
+        }
+
+        // hold the lock while the index is updated, so it can't record the keys from an older write
+        ReentrantLock lock = Objects.requireNonNull(this.ioLocks.get(file));
+        lock.lock();
+        try {
+            saveFile(file, node);
+            if (node == null) {
+                searchIndex.remove(name);
+            } else {
+                searchIndex.update(name, Files.readAttributes(file, BasicFileAttributes.class), readNodes(node));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void saveFiles(StorageLocation location, Map<String, ConfigurationNode> nodes) throws IOException {
+        // each object is stored in its own file, so they can be written in parallel
+        List<IOException> exceptions = Collections.synchronizedList(new ArrayList<>());
+        nodes.entrySet().parallelStream().forEach(entry -> {
+            try {
+                saveFile(location, entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                exceptions.add(new FileIOException(entry.getKey(), e));
+            }
+        });
+
+        if (!exceptions.isEmpty()) {
+            IOException exception = exceptions.get(0);
+            for (int i = 1; i < exceptions.size(); i++) {
+                exception.addSuppressed(exceptions.get(i));
+            }
+            throw exception;
+        }
     }
 
     private void saveFile(Path file, ConfigurationNode node) throws IOException {
@@ -145,6 +197,57 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         return this.fileGroups.get(location).directory;
     }
 
+    private String holderName(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - this.fileExtension.length());
+    }
+
+    /**
+     * Gets the holders which might have nodes matching the given constraint, according to
+     * the search index. Any files which have been changed since they were last indexed
+     * are (re-)indexed first.
+     *
+     * @param location the location to search
+     * @param constraint the constraint
+     * @return the holders to search
+     * @throws IOException if the files could not be listed
+     */
+    private Set<String> searchCandidates(StorageLocation location, ConstraintNodeMatcher<?> constraint) throws IOException {
+        FileGroup fileGroup = this.fileGroups.get(location);
+        NodeSearchIndex searchIndex = fileGroup.searchIndex;
+
+        Map<String, Path> files = new HashMap<>();
+        try (Stream<Path> stream = Files.list(fileGroup.directory)) {
+            stream.filter(this.fileExtensionFilter).forEach(file -> files.put(holderName(file), file));
+        }
+
+        searchIndex.retainAll(files.keySet());
+        for (Map.Entry<String, Path> entry : files.entrySet()) {
+            Path file = entry.getValue();
+            ReentrantLock lock = Objects.requireNonNull(this.ioLocks.get(file));
+            lock.lock();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!searchIndex.isCurrent(entry.getKey(), attributes)) {
+                    registerFileAction(location, file);
+                    ConfigurationNode object = readFile(file);
+                    searchIndex.update(entry.getKey(), attributes, object == null ? Collections.emptySet() : readNodes(object));
+                }
+            } catch (Exception e) {
+                searchIndex.remove(entry.getKey());
+                this.plugin.getLogger().severe(
+                        "Exception whilst indexing nodes",
+                        new FileIOException(file.getFileName().toString(), e)
+                );
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        searchIndex.save(fileGroup.searchIndexFile);
+        return searchIndex.lookup(constraint.getConstraint());
+    }
+
     private void registerFileAction(StorageLocation type, Path file) {
         FileWatcher.WatchedLocation watcher = this.fileGroups.get(type).watcher;
         if (watcher != null) {
@@ -160,6 +263,14 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         this.groups.directory = MoreFiles.createDirectoryIfNotExists(super.dataDirectory.resolve("groups"));
         this.tracks.directory = MoreFiles.createDirectoryIfNotExists(super.dataDirectory.resolve("tracks"));
 
+        // Load the search indexes.
+        this.users.searchIndex = new NodeSearchIndex();
+        this.users.searchIndexFile = super.dataDirectory.resolve("user-search-index.json");
+        this.users.searchIndex.load(this.users.searchIndexFile);
+        this.groups.searchIndex = new NodeSearchIndex();
+        this.groups.searchIndexFile = super.dataDirectory.resolve("group-search-index.json");
+        this.groups.searchIndex.load(this.groups.searchIndexFile);
+
         // Listen for file changes.
         FileWatcher watcher = this.plugin.getFileWatcher().orElse(null);
         if (watcher != null) {
@@ -209,44 +320,77 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         }
     }
 
+    @Override
+    public void shutdown() {
+        super.shutdown();
+
+        for (FileGroup fileGroup : new FileGroup[]{this.users, this.groups}) {
+            if (fileGroup.searchIndex == null) {
+                continue;
+            }
+
+            try {
+                fileGroup.searchIndex.save(fileGroup.searchIndexFile);
+            } catch (IOException e) {
+                this.plugin.getLogger().warn("Unable to save search index", e);
+            }
+        }
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
-        if (bulkUpdate.getDataType().isIncludingUsers()) {
-            try (Stream<Path> s = Files.list(getDirectory(StorageLocation.USERS))) {
-                s.filter(this.fileExtensionFilter).forEach(file -> {
-                    try {
-                        registerFileAction(StorageLocation.USERS, file);
-                        ConfigurationNode object = readFile(file);
-                        if (processBulkUpdate(bulkUpdate, object, HolderType.USER)) {
-                            saveFile(file, object);
-                        }
-                    } catch (Exception e) {
-                        this.plugin.getLogger().severe(
-                                "Exception whilst performing bulkupdate",
-                                new FileIOException(file.getFileName().toString(), e)
-                        );
-                    }
-                });
+        BulkUpdateTextFilter textFilter = BulkUpdateTextFilter.create(bulkUpdate);
+
+        // files are processed in parallel, using a bounded pool so the disk isn't overwhelmed
+        ForkJoinPool pool = new ForkJoinPool(BULK_UPDATE_PARALLELISM);
+        try {
+            if (bulkUpdate.getDataType().isIncludingUsers()) {
+                applyBulkUpdate(pool, StorageLocation.USERS, HolderType.USER, bulkUpdate, textFilter);
+            }
+
+            if (bulkUpdate.getDataType().isIncludingGroups()) {
+                applyBulkUpdate(pool, StorageLocation.GROUPS, HolderType.GROUP, bulkUpdate, textFilter);
             }
+        } finally {
+            pool.shutdown();
         }
+    }
 
-        if (bulkUpdate.getDataType().isIncludingGroups()) {
-            try (Stream<Path> s = Files.list(getDirectory(StorageLocation.GROUPS))) {
-                s.filter(this.fileExtensionFilter).forEach(file -> {
-                    try {
-                        registerFileAction(StorageLocation.GROUPS, file);
-                        ConfigurationNode object = readFile(file);
-                        if (processBulkUpdate(bulkUpdate, object, HolderType.GROUP)) {
-                            saveFile(file, object);
-                        }
-                    } catch (Exception e) {
-                        this.plugin.getLogger().severe(
-                                "Exception whilst performing bulkupdate",
-                                new FileIOException(file.getFileName().toString(), e)
-                        );
-                    }
-                });
+    private void applyBulkUpdate(ForkJoinPool pool, StorageLocation location, HolderType holderType, BulkUpdate bulkUpdate, @Nullable BulkUpdateTextFilter textFilter) throws Exception {
+        try (Stream<Path> s = Files.list(getDirectory(location))) {
+            pool.submit(() -> s.parallel().filter(this.fileExtensionFilter).forEach(file -> {
+                try {
+                    applyBulkUpdate(location, holderType, file, bulkUpdate, textFilter);
+                } catch (Exception e) {
+                    this.plugin.getLogger().severe(
+                            "Exception whilst performing bulkupdate",
+                            new FileIOException(file.getFileName().toString(), e)
+                    );
+                }
+            })).get();
+        }
+    }
+
+    private void applyBulkUpdate(StorageLocation location, HolderType holderType, Path file, BulkUpdate bulkUpdate, @Nullable BulkUpdateTextFilter textFilter) throws IOException {
+        ReentrantLock lock = Objects.requireNonNull(this.ioLocks.get(file));
+        lock.lock();
+        try {
+            if (!Files.exists(file)) {
+                return;
+            }
+
+            // skip parsing files which can't contain any of the affected nodes
+            if (textFilter != null && !textFilter.mightMatch(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))) {
+                return;
             }
+
+            registerFileAction(location, file);
+            ConfigurationNode object = readFile(file);
+            if (object != null && processBulkUpdate(bulkUpdate, object, holderType)) {
+                saveFile(location, holderName(file), object);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -265,28 +409,28 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws IOException {
         List<NodeEntry<UUID, N>> held = new ArrayList<>();
-        try (Stream<Path> stream = Files.list(getDirectory(StorageLocation.USERS))) {
-            stream.filter(this.fileExtensionFilter)
-                    .forEach(file -> {
-                        String fileName = file.getFileName().toString();
-                        try {
-                            registerFileAction(StorageLocation.USERS, file);
-                            ConfigurationNode object = readFile(file);
-                            UUID holder = UUID.fromString(fileName.substring(0, fileName.length() - this.fileExtension.length()));
-                            Set<Node> nodes = readNodes(object);
-                            for (Node e : nodes) {
-                                N match = constraint.match(e);
-                                if (match != null) {
-                                    held.add(NodeEntry.of(holder, match));
-                                }
-                            }
-                        } catch (Exception e) {
-                            this.plugin.getLogger().severe(
-                                    "Exception whilst searching user nodes",
-                                    new FileIOException(file.getFileName().toString(), e)
-                            );
-                        }
-                    });
+        for (String holderName : searchCandidates(StorageLocation.USERS, constraint)) {
+            Path file = getDirectory(StorageLocation.USERS).resolve(holderName + this.fileExtension);
+            try {
+                registerFileAction(StorageLocation.USERS, file);
+                ConfigurationNode object = readFile(file);
+                if (object == null) {
+                    continue;
+                }
+                UUID holder = UUID.fromString(holderName);
+                Set<Node> nodes = readNodes(object);
+                for (Node e : nodes) {
+                    N match = constraint.match(e);
+                    if (match != null) {
+                        held.add(NodeEntry.of(holder, match));
+                    }
+                }
+            } catch (Exception e) {
+                this.plugin.getLogger().severe(
+                        "Exception whilst searching user nodes",
+                        new FileIOException(file.getFileName().toString(), e)
+                );
+            }
         }
         return held;
     }
@@ -311,28 +455,27 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
     @Override
     public <N extends Node> List<NodeEntry<String, N>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) throws IOException {
         List<NodeEntry<String, N>> held = new ArrayList<>();
-        try (Stream<Path> stream = Files.list(getDirectory(StorageLocation.GROUPS))) {
-            stream.filter(this.fileExtensionFilter)
-                    .forEach(file -> {
-                        String fileName = file.getFileName().toString();
-                        try {
-                            registerFileAction(StorageLocation.GROUPS, file);
-                            ConfigurationNode object = readFile(file);
-                            String holder = fileName.substring(0, fileName.length() - this.fileExtension.length());
-                            Set<Node> nodes = readNodes(object);
-                            for (Node e : nodes) {
-                                N match = constraint.match(e);
-                                if (match != null) {
-                                    held.add(NodeEntry.of(holder, match));
-                                }
-                            }
-                        } catch (Exception e) {
-                            this.plugin.getLogger().severe(
-                                    "Exception whilst searching group nodes",
-                                    new FileIOException(file.getFileName().toString(), e)
-                            );
-                        }
-                    });
+        for (String holder : searchCandidates(StorageLocation.GROUPS, constraint)) {
+            Path file = getDirectory(StorageLocation.GROUPS).resolve(holder + this.fileExtension);
+            try {
+                registerFileAction(StorageLocation.GROUPS, file);
+                ConfigurationNode object = readFile(file);
+                if (object == null) {
+                    continue;
+                }
+                Set<Node> nodes = readNodes(object);
+                for (Node e : nodes) {
+                    N match = constraint.match(e);
+                    if (match != null) {
+                        held.add(NodeEntry.of(holder, match));
+                    }
+                }
+            } catch (Exception e) {
+                this.plugin.getLogger().severe(
+                        "Exception whilst searching group nodes",
+                        new FileIOException(file.getFileName().toString(), e)
+                );
+            }
         }
         return held;
     }
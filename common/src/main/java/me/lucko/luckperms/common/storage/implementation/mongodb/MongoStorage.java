@@ -33,21 +33,36 @@ import com.mongodb.MongoClientURI;
 import com.mongodb.MongoCredential;
 import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.actionlog.filter.ActionFilterMongoBuilder;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateMongoBuilder;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateStatistics;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.MutableContextSetImpl;
 import me.lucko.luckperms.common.filter.FilterList;
+import me.lucko.luckperms.common.filter.PageCursorCache;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.filter.mongo.ConstraintMongoBuilder;
 import me.lucko.luckperms.common.model.Group;
@@ -63,6 +78,7 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
 import me.lucko.luckperms.common.storage.misc.StorageCredentials;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
 import me.lucko.luckperms.common.util.Difference;
 import me.lucko.luckperms.common.util.HostAndPort;
 import me.lucko.luckperms.common.util.Iterators;
@@ -81,18 +97,34 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class MongoStorage implements StorageImplementation {
+
+    // matches documents containing nodes in formats which predate the current one
+    private static final Bson LEGACY_FORMAT_FILTER = Filters.or(
+            Filters.exists("perms"),
+            Filters.exists("permissions.permission"),
+            Filters.exists("permissions.server"),
+            Filters.exists("permissions.world")
+    );
+
+    // the number of documents to write at once when a bulk update is applied in memory
+    private static final int BULK_UPDATE_BATCH_SIZE = 1000;
+
     private final LuckPermsPlugin plugin;
 
     private final StorageCredentials configuration;
@@ -101,6 +133,8 @@ public class MongoStorage implements StorageImplementation {
     private final String prefix;
     private final String connectionUri;
 
+    private final PageCursorCache<LogCursor> logCursors = new PageCursorCache<>();
+
     public MongoStorage(LuckPermsPlugin plugin, StorageCredentials configuration, String prefix, String connectionUri) {
         this.plugin = plugin;
         this.configuration = configuration;
@@ -197,6 +231,9 @@ public class MongoStorage implements StorageImplementation {
     public void logAction(Action entry) {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
         c.insertOne(actionToDoc(entry));
+
+        // the new entry shifts every page along by one
+        this.logCursors.invalidateAll();
     }
 
     @Override
@@ -204,47 +241,118 @@ public class MongoStorage implements StorageImplementation {
         Bson filter = ActionFilterMongoBuilder.INSTANCE.make(filters);
 
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
-        long count = c.countDocuments(filter);
+        boolean approximateCount = filters.isEmpty() && this.plugin.getConfiguration().get(ConfigKeys.LOG_APPROXIMATE_COUNT);
+        long count = approximateCount ? c.estimatedDocumentCount() : c.countDocuments(filter);
+
+        // if we know where the previous page ended, seek straight to it instead of skipping.
+        // the cursor is only used if no entries have been added since (e.g. by another server)
+        LogCursor head = page != null ? findNewestAction(c) : null;
+        FindIterable<Document> iterable;
+        LogCursor seek = this.logCursors.getCursor(filters, page, head);
+        if (seek != null) {
+            iterable = c.find(ActionFilterMongoBuilder.INSTANCE.makeAfter(filters, seek.timestamp, seek.id))
+                    .sort(Sorts.descending("timestamp", "_id"))
+                    .limit(page.pageSize());
+        } else {
+            iterable = ConstraintMongoBuilder.page(page, c.find(filter).sort(Sorts.descending("timestamp", "_id")));
+        }
 
         List<LoggedAction> content = new ArrayList<>();
-        try (MongoCursor<Document> cursor = ConstraintMongoBuilder.page(page, c.find(filter).sort(Sorts.descending("timestamp", "_id"))).iterator()) {
+        LogCursor last = null;
+        try (MongoCursor<Document> cursor = iterable.iterator()) {
             while (cursor.hasNext()) {
-                content.add(actionFromDoc(cursor.next()));
+                Document d = cursor.next();
+                content.add(actionFromDoc(d));
+                last = new LogCursor(d.getLong("timestamp"), d.get("_id"));
             }
         }
 
+        if (last != null) {
+            this.logCursors.putCursor(filters, page, head, last);
+        }
+        if (approximateCount) {
+            // the estimate may lag behind - never report fewer entries than we can see
+            long seen = page != null ? (long) page.pageSize() * (page.pageNumber() - 1) + content.size() : content.size();
+            count = Math.max(count, seen);
+        }
         return LogPage.of(content, page, (int) count);
     }
 
+    private static @Nullable LogCursor findNewestAction(MongoCollection<Document> c) {
+        Document d = c.find()
+                .sort(Sorts.descending("timestamp", "_id"))
+                .projection(Projections.include("timestamp", "_id"))
+                .first();
+        return d == null ? null : new LogCursor(d.getLong("timestamp"), d.get("_id"));
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) {
         if (bulkUpdate.getDataType().isIncludingUsers()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
-                    UUID uuid = getDocumentId(d);
-                    Document results = processBulkUpdate(d, bulkUpdate, HolderType.USER);
-                    if (results != null) {
-                        c.replaceOne(Filters.eq("_id", uuid), results);
-                    }
-                }
-            }
+            applyBulkUpdate(this.database.getCollection(this.prefix + "users"), bulkUpdate, HolderType.USER);
         }
 
         if (bulkUpdate.getDataType().isIncludingGroups()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
-                    String holder = d.getString("_id");
-                    Document results = processBulkUpdate(d, bulkUpdate, HolderType.GROUP);
-                    if (results != null) {
-                        c.replaceOne(Filters.eq("_id", holder), results);
-                    }
+            applyBulkUpdate(this.database.getCollection(this.prefix + "groups"), bulkUpdate, HolderType.GROUP);
+        }
+    }
+
+    private void applyBulkUpdate(MongoCollection<Document> c, BulkUpdate bulkUpdate, HolderType holderType) {
+        // documents stored in the legacy format need to be rewritten, so can't be updated in place
+        boolean legacyDocuments = c.countDocuments(LEGACY_FORMAT_FILTER, new CountOptions().limit(1)) != 0;
+
+        if (!legacyDocuments && BulkUpdateMongoBuilder.canTranslate(bulkUpdate)) {
+            Bson filter = BulkUpdateMongoBuilder.makeDocumentFilter(bulkUpdate);
+            Bson update = BulkUpdateMongoBuilder.makeUpdate(bulkUpdate);
+            UpdateOptions options = new UpdateOptions().arrayFilters(BulkUpdateMongoBuilder.makeArrayFilters(bulkUpdate));
+
+            if (bulkUpdate.isTrackingStatistics()) {
+                Document count = c.aggregate(Arrays.asList(
+                        Aggregates.match(filter),
+                        Aggregates.unwind("$permissions"),
+                        Aggregates.match(BulkUpdateMongoBuilder.makeUnwoundNodeFilter(bulkUpdate)),
+                        Aggregates.count()
+                )).first();
+
+                UpdateResult result = c.updateMany(filter, update, options);
+
+                BulkUpdateStatistics stats = bulkUpdate.getStatistics();
+                stats.incrementAffectedNodes(count == null ? 0 : count.getInteger("count"));
+                stats.incrementAffected(holderType, (int) result.getMatchedCount());
+            } else {
+                c.updateMany(filter, update, options);
+            }
+
+            // renamed nodes may now be duplicates of existing ones
+            Bson deduplicateFilter = BulkUpdateMongoBuilder.makeDeduplicateFilter(bulkUpdate);
+            if (deduplicateFilter != null) {
+                c.updateMany(deduplicateFilter, BulkUpdateMongoBuilder.makeDeduplicateUpdate());
+            }
+            return;
+        }
+
+        // otherwise, apply the update in memory and write back the changed documents in batches
+        Bson filter = legacyDocuments ? Filters.empty() : BulkUpdateMongoBuilder.makeDocumentFilter(bulkUpdate);
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        try (MongoCursor<Document> cursor = c.find(filter).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                Object id = d.get("_id");
+                Document results = processBulkUpdate(d, bulkUpdate, holderType);
+                if (results != null) {
+                    writes.add(new ReplaceOneModel<>(Filters.eq("_id", id), results));
+                }
+
+                if (writes.size() >= BULK_UPDATE_BATCH_SIZE) {
+                    c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+                    writes.clear();
                 }
             }
         }
+
+        if (!writes.isEmpty()) {
+            c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
     }
 
     private Document processBulkUpdate(Document document, BulkUpdate bulkUpdate, HolderType holderType) {
@@ -359,6 +467,35 @@ public class MongoStorage implements StorageImplementation {
         }
     }
 
+    @Override
+    public void saveUsers(Collection<StoredUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+
+        List<WriteModel<Document>> writes = new ArrayList<>(users.size());
+        for (StoredUser user : users) {
+            Bson filter = Filters.eq("_id", user.getUniqueId());
+            if (user.getNodes().isEmpty()) {
+                writes.add(new DeleteOneModel<>(filter));
+            } else {
+                Bson update = Updates.combine(
+                        // keep the existing stored name if the user doesn't have one
+                        user.getUsername() == null
+                                ? Updates.setOnInsert("name", "null")
+                                : Updates.set("name", user.getUsername()),
+                        Updates.set("primaryGroup", user.getPrimaryGroup() == null ? GroupManager.DEFAULT_GROUP_NAME : user.getPrimaryGroup()),
+                        Updates.set("permissions", user.getNodes().stream().map(MongoStorage::nodeToDoc).collect(Collectors.toList()))
+                );
+                writes.add(new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true)));
+            }
+        }
+
+        c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() {
         Set<UUID> uuids = new HashSet<>();
@@ -375,6 +512,30 @@ public class MongoStorage implements StorageImplementation {
         return uuids;
     }
 
+    @Override
+    public void iterateUsers(Consumer<StoredUser> consumer) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+        try (MongoCursor<Document> cursor = c.find().batchSize(500).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                UUID uuid;
+                try {
+                    uuid = getDocumentId(d);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+
+                String name = d.getString("name");
+                consumer.accept(StoredUser.of(
+                        uuid,
+                        name != null && !name.equals("null") ? name : null,
+                        d.getString("primaryGroup"),
+                        nodesFromDoc(d)
+                ));
+            }
+        }
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<UUID, N>> held = new ArrayList<>();
@@ -549,30 +710,41 @@ public class MongoStorage implements StorageImplementation {
         username = username.toLowerCase(Locale.ROOT);
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "uuid");
 
-        // find any existing mapping
-        String oldUsername = getPlayerName(uniqueId);
+        // find the existing mapping for the uuid, and any other mappings for the username
+        String oldUsername = null;
+        Set<UUID> conflicting = new HashSet<>();
+        try (MongoCursor<Document> cursor = c.find(Filters.or(Filters.eq("_id", uniqueId), Filters.eq("name", username))).iterator()) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                UUID id = getDocumentId(document);
+                if (id.equals(uniqueId)) {
+                    oldUsername = document.getString("name");
+                } else {
+                    conflicting.add(id);
+                }
+            }
+        }
+
+        List<WriteModel<Document>> writes = new ArrayList<>();
 
         // do the insert
         if (!username.equalsIgnoreCase(oldUsername)) {
-            c.replaceOne(Filters.eq("_id", uniqueId), new Document("_id", uniqueId).append("name", username), new ReplaceOptions().upsert(true));
+            writes.add(new ReplaceOneModel<>(Filters.eq("_id", uniqueId), new Document("_id", uniqueId).append("name", username), new ReplaceOptions().upsert(true)));
         }
 
-        PlayerSaveResultImpl result = PlayerSaveResultImpl.determineBaseResult(username, oldUsername);
+        // remove the mappings for conflicting uuids
+        if (!conflicting.isEmpty()) {
+            writes.add(new DeleteManyModel<>(Filters.or(conflicting.stream().map(u -> Filters.eq("_id", u)).collect(Collectors.toList()))));
+        }
 
-        Set<UUID> conflicting = new HashSet<>();
-        try (MongoCursor<Document> cursor = c.find(Filters.eq("name", username)).iterator()) {
-            while (cursor.hasNext()) {
-                conflicting.add(getDocumentId(cursor.next()));
-            }
+        if (!writes.isEmpty()) {
+            c.bulkWrite(writes);
         }
-        conflicting.remove(uniqueId);
 
+        PlayerSaveResultImpl result = PlayerSaveResultImpl.determineBaseResult(username, oldUsername);
         if (!conflicting.isEmpty()) {
-            // remove the mappings for conflicting uuids
-            c.deleteMany(Filters.or(conflicting.stream().map(u -> Filters.eq("_id", u)).collect(Collectors.toList())));
             result = result.withOtherUuidsPresent(conflicting);
         }
-
         return result;
     }
 
@@ -782,6 +954,35 @@ public class MongoStorage implements StorageImplementation {
         this.database.getCollection(this.prefix + "uuid").createIndex(Indexes.ascending("name"));
         this.database.getCollection(this.prefix + "users").createIndex(Indexes.ascending("permissions.key"));
         this.database.getCollection(this.prefix + "groups").createIndex(Indexes.ascending("permissions.key"));
+
+        MongoCollection<Document> actions = this.database.getCollection(this.prefix + "action");
+        actions.createIndex(Indexes.descending("timestamp", "_id"));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("source.uniqueId"), Indexes.descending("timestamp", "_id")));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.uniqueId"), Indexes.descending("timestamp", "_id")));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.name"), Indexes.descending("timestamp", "_id")));
+    }
+
+    private static final class LogCursor {
+        private final long timestamp;
+        private final Object id;
+
+        LogCursor(long timestamp, Object id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LogCursor)) return false;
+            LogCursor other = (LogCursor) o;
+            return this.timestamp == other.timestamp && this.id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.timestamp, this.id);
+        }
     }
 
 }
@@ -39,16 +39,20 @@ import me.lucko.luckperms.common.storage.StorageMetadata;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public class SplitStorage implements StorageImplementation {
     private final LuckPermsPlugin plugin;
@@ -153,11 +157,21 @@ public class SplitStorage implements StorageImplementation {
         implFor(SplitStorageType.USER).saveUser(user);
     }
 
+    @Override
+    public void saveUsers(Collection<StoredUser> users) throws Exception {
+        implFor(SplitStorageType.USER).saveUsers(users);
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws Exception {
         return implFor(SplitStorageType.USER).getUniqueUsers();
     }
 
+    @Override
+    public void iterateUsers(Consumer<StoredUser> consumer) throws Exception {
+        implFor(SplitStorageType.USER).iterateUsers(consumer);
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         return implFor(SplitStorageType.USER).searchUserNodes(constraint);
@@ -223,6 +237,24 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.UUID).savePlayerData(uniqueId, username);
     }
 
+    @Override
+    public UserLoginResult loginUser(UUID uniqueId, String username) throws Exception {
+        StorageImplementation impl = implFor(SplitStorageType.USER);
+        if (impl == implFor(SplitStorageType.UUID)) {
+            return impl.loginUser(uniqueId, username);
+        }
+        return StorageImplementation.super.loginUser(uniqueId, username);
+    }
+
+    @Override
+    public Map<UUID, UserLoginResult> loginUsers(Map<UUID, String> usernames) throws Exception {
+        StorageImplementation impl = implFor(SplitStorageType.USER);
+        if (impl == implFor(SplitStorageType.UUID)) {
+            return impl.loginUsers(usernames);
+        }
+        return StorageImplementation.super.loginUsers(usernames);
+    }
+
     @Override
     public void deletePlayerData(UUID uniqueId) throws Exception {
         implFor(SplitStorageType.UUID).deletePlayerData(uniqueId);
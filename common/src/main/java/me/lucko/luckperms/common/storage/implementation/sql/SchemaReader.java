@@ -25,11 +25,14 @@
 
 package me.lucko.luckperms.common.storage.implementation.sql;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -42,6 +45,7 @@ public final class SchemaReader {
 
     private static final Pattern CREATE_TABLE_PATTERN = Pattern.compile("^CREATE TABLE [`\"']([^`\"']+)[`\"'].*");
     private static final Pattern CREATE_INDEX_PATTERN = Pattern.compile("^CREATE INDEX.* ON [`\"']([^`\"']+)[`\"'].*");
+    private static final Pattern CREATE_NAMED_INDEX_PATTERN = Pattern.compile("^CREATE INDEX [`\"']([^`\"']+)[`\"'] ON .*");
 
     /**
      * Parses a schema file to a list of SQL statements
@@ -93,6 +97,14 @@ public final class SchemaReader {
         throw new IllegalArgumentException("Unknown statement type: " + statement);
     }
 
+    public static @Nullable String indexFromStatement(String statement) {
+        Matcher index = CREATE_NAMED_INDEX_PATTERN.matcher(statement);
+        if (index.matches()) {
+            return index.group(1).toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
     /**
      * Filters which statements should be executed based on the current list of tables in the database
      *
@@ -105,4 +117,23 @@ public final class SchemaReader {
                 .filter(statement -> !currentTables.contains(tableFromStatement(statement)))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Filters which named index statements should be executed against tables which already
+     * exist in the database, so that indexes added to the schema after a table was first
+     * created are also applied to existing installations.
+     *
+     * @param statements the statements to filter
+     * @param currentTables the current tables in the database
+     * @param currentIndexes the names of the current indexes in the database
+     * @return the filtered list of statements
+     */
+    public static List<String> filterIndexStatements(List<String> statements, List<String> currentTables, Collection<String> currentIndexes) {
+        return statements.stream()
+                .filter(statement -> {
+                    String index = indexFromStatement(statement);
+                    return index != null && !currentIndexes.contains(index) && currentTables.contains(tableFromStatement(statement));
+                })
+                .collect(Collectors.toList());
+    }
 }
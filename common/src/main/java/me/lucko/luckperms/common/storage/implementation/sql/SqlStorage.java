@@ -34,8 +34,10 @@ import me.lucko.luckperms.common.actionlog.filter.ActionFilterSqlBuilder;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdateSqlBuilder;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdateStatistics;
+import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.serializer.ContextSetJsonSerializer;
 import me.lucko.luckperms.common.filter.FilterList;
+import me.lucko.luckperms.common.filter.PageCursorCache;
 import me.lucko.luckperms.common.filter.PageParameters;
 import me.lucko.luckperms.common.filter.sql.ConstraintSqlBuilder;
 import me.lucko.luckperms.common.model.Group;
@@ -50,6 +52,8 @@ import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import me.lucko.luckperms.common.util.Difference;
 import me.lucko.luckperms.common.util.Uuids;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
@@ -65,6 +69,7 @@ import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -72,26 +77,33 @@ import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class SqlStorage implements StorageImplementation {
     private static final Type LIST_STRING_TYPE = new TypeToken<List<String>>(){}.getType();
+    private static final int USER_ITERATION_PAGE_SIZE = 500;
 
     private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_SELECT_MULTIPLE = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE ";
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}user_permissions' WHERE id=?";
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC_PROPS = "DELETE FROM '{prefix}user_permissions' WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM '{prefix}user_permissions' WHERE uuid=?";
+    private static final String USER_PERMISSIONS_DELETE_MULTIPLE = "DELETE FROM '{prefix}user_permissions' WHERE ";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO '{prefix}user_permissions' (uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM '{prefix}user_permissions'";
+    private static final String USER_PERMISSIONS_SELECT_DISTINCT_PAGE = "SELECT DISTINCT uuid FROM '{prefix}user_permissions' WHERE uuid > ? ORDER BY uuid LIMIT " + USER_ITERATION_PAGE_SIZE;
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE ";
 
     private static final String PLAYER_SELECT_UUID_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? LIMIT 1";
@@ -131,16 +143,26 @@ public class SqlStorage implements StorageImplementation {
 
     private static final String ACTION_INSERT = "INSERT INTO '{prefix}actions' (time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM '{prefix}actions'";
+    private static final String ACTION_SELECT_NEWEST = "SELECT time, id FROM '{prefix}actions' ORDER BY time DESC, id DESC LIMIT 1";
     private static final String ACTION_COUNT = "SELECT COUNT(*) FROM '{prefix}actions'";
+    private static final Map<String, String> ACTION_COUNT_ESTIMATE = ImmutableMap.of(
+            "MySQL", "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME=?",
+            "MariaDB", "SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME=?",
+            "PostgreSQL", "SELECT reltuples::BIGINT FROM pg_class WHERE relname=?"
+    );
 
     private final LuckPermsPlugin plugin;
     
     private final ConnectionFactory connectionFactory;
     private final StatementProcessor statementProcessor;
+    private final String tablePrefix;
+
+    private final PageCursorCache<LogCursor> logCursors = new PageCursorCache<>();
 
     public SqlStorage(LuckPermsPlugin plugin, ConnectionFactory connectionFactory, String tablePrefix) {
         this.plugin = plugin;
         this.connectionFactory = connectionFactory;
+        this.tablePrefix = tablePrefix;
         this.statementProcessor = connectionFactory.getStatementProcessor().compose(s -> s.replace("{prefix}", tablePrefix));
     }
 
@@ -187,6 +209,8 @@ public class SqlStorage implements StorageImplementation {
                     .collect(Collectors.toList());
         }
 
+        applyIndexMigrations(statements, existingTables);
+
         statements = SchemaReader.filterStatements(statements, existingTables);
         if (statements.isEmpty()) {
             return;
@@ -224,6 +248,29 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private void applyIndexMigrations(List<String> statements, List<String> existingTables) throws SQLException {
+        Set<String> indexedTables = statements.stream()
+                .filter(statement -> SchemaReader.indexFromStatement(statement) != null)
+                .map(SchemaReader::tableFromStatement)
+                .filter(existingTables::contains)
+                .collect(Collectors.toSet());
+
+        if (indexedTables.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = this.connectionFactory.getConnection()) {
+            List<String> migrations = SchemaReader.filterIndexStatements(statements, existingTables, listIndexes(connection, indexedTables));
+            for (String query : migrations) {
+                try (Statement s = connection.createStatement()) {
+                    s.execute(query);
+                } catch (SQLException e) {
+                    this.plugin.getLogger().warn("Unable to apply index migration: " + query, e);
+                }
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -246,41 +293,108 @@ public class SqlStorage implements StorageImplementation {
                 ps.execute();
             }
         }
+
+        // the new entry shifts every page along by one
+        this.logCursors.invalidateAll();
     }
 
     @Override
     public LogPage getLogPage(FilterList<Action> filter, @Nullable PageParameters page) throws SQLException {
-        int count = 0;
+        int count = -1;
+        boolean approximateCount = filter.isEmpty() && this.plugin.getConfiguration().get(ConfigKeys.LOG_APPROXIMATE_COUNT);
         List<LoggedAction> content = new ArrayList<>();
+        LogCursor head;
+        LogCursor last = null;
 
         try (Connection c = this.connectionFactory.getConnection()) {
-            ActionFilterSqlBuilder countSqlBuilder = new ActionFilterSqlBuilder();
-            countSqlBuilder.builder().append(ACTION_COUNT);
-            countSqlBuilder.visit(filter);
+            if (approximateCount) {
+                count = estimateActionCount(c);
+            }
 
-            try (PreparedStatement ps = countSqlBuilder.builder().build(c, this.statementProcessor)) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        count = rs.getInt(1);
+            if (count < 0) {
+                approximateCount = false;
+
+                ActionFilterSqlBuilder countSqlBuilder = new ActionFilterSqlBuilder();
+                countSqlBuilder.builder().append(ACTION_COUNT);
+                countSqlBuilder.visit(filter);
+
+                try (PreparedStatement ps = countSqlBuilder.builder().build(c, this.statementProcessor)) {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            count = rs.getInt(1);
+                        }
                     }
                 }
             }
 
+            // if we know where the previous page ended, seek straight to it instead of
+            // making the database read & discard all of the preceding rows. the cursor is
+            // only used if no entries have been added since (e.g. by another server)
+            head = page != null ? selectNewestAction(c) : null;
+            LogCursor cursor = this.logCursors.getCursor(filter, page, head);
+
             ActionFilterSqlBuilder sqlBuilder = new ActionFilterSqlBuilder();
             sqlBuilder.builder().append(ACTION_SELECT_ALL);
-            sqlBuilder.visit(filter);
-            sqlBuilder.builder().append(" ORDER BY time DESC, id DESC");
-            sqlBuilder.visit(page);
+            if (cursor != null) {
+                sqlBuilder.visitAfter(filter, cursor.time, cursor.id);
+                sqlBuilder.builder().append(" ORDER BY time DESC, id DESC");
+                sqlBuilder.visitLimit(page);
+            } else {
+                sqlBuilder.visit(filter);
+                sqlBuilder.builder().append(" ORDER BY time DESC, id DESC");
+                sqlBuilder.visit(page);
+            }
 
             try (PreparedStatement ps = sqlBuilder.builder().build(c, this.statementProcessor)) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         content.add(readAction(rs));
+                        last = new LogCursor(rs.getLong("time"), rs.getLong("id"));
+                    }
+                }
+            }
+        }
+
+        if (last != null) {
+            this.logCursors.putCursor(filter, page, head, last);
+        }
+        if (approximateCount) {
+            // the estimate may lag behind - never report fewer entries than we can see
+            int seen = page != null ? page.pageSize() * (page.pageNumber() - 1) + content.size() : content.size();
+            count = Math.max(count, seen);
+        }
+        return LogPage.of(content, page, Math.max(count, 0));
+    }
+
+    private @Nullable LogCursor selectNewestAction(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(ACTION_SELECT_NEWEST))) {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new LogCursor(rs.getLong("time"), rs.getLong("id"));
+                }
+            }
+        }
+        return null;
+    }
+
+    private int estimateActionCount(Connection c) throws SQLException {
+        String query = ACTION_COUNT_ESTIMATE.get(this.connectionFactory.getImplementationName());
+        if (query == null) {
+            return -1;
+        }
+
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(query))) {
+            ps.setString(1, this.tablePrefix + "actions");
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    long estimate = rs.getLong(1);
+                    if (!rs.wasNull() && estimate >= 0) {
+                        return (int) Math.min(estimate, Integer.MAX_VALUE);
                     }
                 }
             }
         }
-        return LogPage.of(content, page, count);
+        return -1;
     }
 
     @Override
@@ -445,6 +559,68 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    @Override
+    public void saveUsers(Collection<StoredUser> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> uniqueIds = users.stream().map(StoredUser::getUniqueId).collect(Collectors.toSet());
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                // replace the existing nodes
+                try (Statement s = c.createStatement()) {
+                    s.execute(createUserSelectWhereClause(USER_PERMISSIONS_DELETE_MULTIPLE, uniqueIds));
+                }
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(USER_PERMISSIONS_INSERT))) {
+                    for (StoredUser user : users) {
+                        for (Node node : user.getNodes()) {
+                            ps.setString(1, user.getUniqueId().toString());
+                            writeNode(node, ps);
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+
+                // update the primary group of existing players, and insert the rest
+                Map<UUID, SqlPlayerData> existing = selectPlayerData(c, uniqueIds);
+                try (PreparedStatement update = c.prepareStatement(this.statementProcessor.process(PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID));
+                     PreparedStatement insert = c.prepareStatement(this.statementProcessor.process(PLAYER_INSERT))) {
+                    for (StoredUser user : users) {
+                        String primaryGroup = user.getNodes().isEmpty() || user.getPrimaryGroup() == null
+                                ? GroupManager.DEFAULT_GROUP_NAME
+                                : user.getPrimaryGroup();
+
+                        if (existing.containsKey(user.getUniqueId())) {
+                            update.setString(1, primaryGroup);
+                            update.setString(2, user.getUniqueId().toString());
+                            update.addBatch();
+                        } else {
+                            String username = user.getUsername() == null ? "null" : user.getUsername().toLowerCase(Locale.ROOT);
+                            insert.setString(1, user.getUniqueId().toString());
+                            insert.setString(2, username);
+                            insert.setString(3, primaryGroup);
+                            insert.addBatch();
+                        }
+                    }
+                    update.executeBatch();
+                    insert.executeBatch();
+                }
+
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws SQLException {
         Set<UUID> uuids = new HashSet<>();
@@ -463,6 +639,60 @@ public class SqlStorage implements StorageImplementation {
         return uuids;
     }
 
+    @Override
+    public void iterateUsers(Consumer<StoredUser> consumer) throws SQLException {
+        // page through the distinct uuids in the permissions table, using the last
+        // uuid seen as the cursor, and read the nodes for each page in bulk
+        String lastUuid = "";
+        while (true) {
+            Set<UUID> page = new LinkedHashSet<>();
+            int rows = 0;
+
+            try (Connection c = this.connectionFactory.getConnection()) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(USER_PERMISSIONS_SELECT_DISTINCT_PAGE))) {
+                    ps.setString(1, lastUuid);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            lastUuid = rs.getString("uuid");
+                            rows++;
+
+                            UUID uuid = Uuids.fromString(lastUuid);
+                            if (uuid != null) {
+                                page.add(uuid);
+                            }
+                        }
+                    }
+                }
+
+                if (!page.isEmpty()) {
+                    Map<UUID, List<Node>> nodes = selectUserPermissions(c, page);
+                    Map<UUID, SqlPlayerData> playerData = selectPlayerData(c, page);
+
+                    for (UUID uuid : page) {
+                        SqlPlayerData data = playerData.get(uuid);
+
+                        // treat stored "null" / empty usernames as absent, like User#setUsername
+                        String username = data != null ? data.username : null;
+                        if (username != null && (username.isEmpty() || username.equalsIgnoreCase("null"))) {
+                            username = null;
+                        }
+
+                        consumer.accept(StoredUser.of(
+                                uuid,
+                                username,
+                                data != null ? data.primaryGroup : null,
+                                nodes.getOrDefault(uuid, Collections.emptyList())
+                        ));
+                    }
+                }
+            }
+
+            if (rows < USER_ITERATION_PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
     @Override
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws SQLException {
         ConstraintSqlBuilder sqlBuilder = new ConstraintSqlBuilder();
@@ -674,26 +904,105 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public PlayerSaveResult savePlayerData(UUID uniqueId, String username) throws SQLException {
-        username = username.toLowerCase(Locale.ROOT);
-        String oldUsername = null;
-
         try (Connection c = this.connectionFactory.getConnection()) {
             SqlPlayerData existingPlayerData = selectPlayerData(c, uniqueId);
-            if (existingPlayerData == null) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_INSERT))) {
-                    ps.setString(1, uniqueId.toString());
-                    ps.setString(2, username);
-                    ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
-                    ps.execute();
+            return savePlayerData(c, uniqueId, username.toLowerCase(Locale.ROOT), existingPlayerData);
+        }
+    }
+
+    @Override
+    public UserLoginResult loginUser(UUID uniqueId, String username) throws SQLException {
+        String lowerUsername = username.toLowerCase(Locale.ROOT);
+
+        PlayerSaveResult result;
+        SqlPlayerData playerData;
+        List<Node> nodes;
+
+        // save the player data and load the user in a single transaction,
+        // reusing the existing player data to determine the primary group
+        try (Connection c = this.connectionFactory.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                SqlPlayerData existingPlayerData = selectPlayerData(c, uniqueId);
+                result = savePlayerData(c, uniqueId, lowerUsername, existingPlayerData);
+                nodes = selectUserPermissions(c, uniqueId);
+
+                String primaryGroup = existingPlayerData == null ? GroupManager.DEFAULT_GROUP_NAME : existingPlayerData.primaryGroup;
+                playerData = new SqlPlayerData(primaryGroup, lowerUsername);
+
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+
+        User user = createUser(uniqueId, username, playerData, nodes, true);
+        return UserLoginResult.of(result, user);
+    }
+
+    @Override
+    public Map<UUID, UserLoginResult> loginUsers(Map<UUID, String> usernames) throws SQLException {
+        Map<UUID, PlayerSaveResult> saveResults = new HashMap<>();
+        Map<UUID, SqlPlayerData> playerDataMap = new HashMap<>();
+        Map<UUID, List<Node>> nodesMap;
+
+        // save the player data for every user and then load them, all in a single transaction
+        try (Connection c = this.connectionFactory.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                Map<UUID, SqlPlayerData> existingPlayerData = selectPlayerData(c, usernames.keySet());
+                for (Map.Entry<UUID, String> entry : usernames.entrySet()) {
+                    UUID uniqueId = entry.getKey();
+                    String lowerUsername = entry.getValue().toLowerCase(Locale.ROOT);
+                    SqlPlayerData existing = existingPlayerData.get(uniqueId);
+
+                    saveResults.put(uniqueId, savePlayerData(c, uniqueId, lowerUsername, existing));
+
+                    String primaryGroup = existing == null ? GroupManager.DEFAULT_GROUP_NAME : existing.primaryGroup;
+                    playerDataMap.put(uniqueId, new SqlPlayerData(primaryGroup, lowerUsername));
                 }
-            } else {
-                oldUsername = existingPlayerData.username;
-                if (!username.equals(oldUsername)) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
-                        ps.setString(1, username);
-                        ps.setString(2, uniqueId.toString());
-                        ps.execute();
-                    }
+                nodesMap = selectUserPermissions(c, usernames.keySet());
+
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+
+        Map<UUID, UserLoginResult> results = new HashMap<>();
+        for (Map.Entry<UUID, String> entry : usernames.entrySet()) {
+            UUID uniqueId = entry.getKey();
+            User user = createUser(uniqueId, entry.getValue(), playerDataMap.get(uniqueId), nodesMap.get(uniqueId), true);
+            results.put(uniqueId, UserLoginResult.of(saveResults.get(uniqueId), user));
+        }
+        return results;
+    }
+
+    private PlayerSaveResult savePlayerData(Connection c, UUID uniqueId, String username, @Nullable SqlPlayerData existingPlayerData) throws SQLException {
+        String oldUsername = null;
+
+        if (existingPlayerData == null) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_INSERT))) {
+                ps.setString(1, uniqueId.toString());
+                ps.setString(2, username);
+                ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
+                ps.execute();
+            }
+        } else {
+            oldUsername = existingPlayerData.username;
+            if (!username.equals(oldUsername)) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
+                    ps.setString(1, username);
+                    ps.setString(2, uniqueId.toString());
+                    ps.execute();
                 }
             }
         }
@@ -701,26 +1010,22 @@ public class SqlStorage implements StorageImplementation {
         PlayerSaveResultImpl result = PlayerSaveResultImpl.determineBaseResult(username, oldUsername);
 
         Set<UUID> conflicting = new HashSet<>();
-        try (Connection c = this.connectionFactory.getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_SELECT_ALL_UUIDS_BY_USERNAME))) {
-                ps.setString(1, username);
-                ps.setString(2, uniqueId.toString());
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        conflicting.add(UUID.fromString(rs.getString("uuid")));
-                    }
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_SELECT_ALL_UUIDS_BY_USERNAME))) {
+            ps.setString(1, username);
+            ps.setString(2, uniqueId.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    conflicting.add(UUID.fromString(rs.getString("uuid")));
                 }
             }
         }
 
         if (!conflicting.isEmpty()) {
             // remove the mappings for conflicting uuids
-            try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_DELETE_ALL_UUIDS_BY_USERNAME))) {
-                    ps.setString(1, username);
-                    ps.setString(2, uniqueId.toString());
-                    ps.execute();
-                }
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.process(PLAYER_DELETE_ALL_UUIDS_BY_USERNAME))) {
+                ps.setString(1, username);
+                ps.setString(2, uniqueId.toString());
+                ps.execute();
             }
             result = result.withOtherUuidsPresent(conflicting);
         }
@@ -1132,6 +1437,55 @@ public class SqlStorage implements StorageImplementation {
         return tables;
     }
 
+    private static Set<String> listIndexes(Connection connection, Set<String> tables) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        List<String[]> matchingTables = new ArrayList<>();
+        try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, "%", null)) {
+            while (rs.next()) {
+                if (tables.contains(rs.getString(3).toLowerCase(Locale.ROOT))) {
+                    matchingTables.add(new String[]{rs.getString(2), rs.getString(3)});
+                }
+            }
+        }
+
+        Set<String> indexes = new HashSet<>();
+        for (String[] table : matchingTables) {
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), table[0], table[1], false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    if (index != null) {
+                        indexes.add(index.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        return indexes;
+    }
+
+    private static final class LogCursor {
+        private final long time;
+        private final long id;
+
+        LogCursor(long time, long id) {
+            this.time = time;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LogCursor)) return false;
+            LogCursor other = (LogCursor) o;
+            return this.time == other.time && this.id == other.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.time, this.id);
+        }
+    }
+
     private static final class SqlPlayerData {
         private final String primaryGroup;
         private final String username;
@@ -35,7 +35,7 @@ import java.util.List;
 
 public class PreparedStatementBuilder {
     private final StringBuilder sb = new StringBuilder();
-    private final List<String> variables = new ArrayList<>();
+    private final List<Object> variables = new ArrayList<>();
 
     public PreparedStatementBuilder() {
 
@@ -57,13 +57,23 @@ public class PreparedStatementBuilder {
         return this;
     }
 
+    public PreparedStatementBuilder variable(long variable) {
+        this.sb.append('?');
+        this.variables.add(variable);
+        return this;
+    }
+
     public PreparedStatement build(Connection connection, StatementProcessor processor) throws SQLException {
         PreparedStatement statement = null;
         try {
             statement = connection.prepareStatement(processor.process(this.sb.toString()));
             for (int i = 0; i < this.variables.size(); i++) {
-                String var = this.variables.get(i);
-                statement.setString(i + 1, var);
+                Object var = this.variables.get(i);
+                if (var instanceof Long) {
+                    statement.setLong(i + 1, (Long) var);
+                } else {
+                    statement.setString(i + 1, (String) var);
+                }
             }
             return statement;
         } catch (SQLException e) {
@@ -77,8 +87,8 @@ public class PreparedStatementBuilder {
 
     public String toReadableString() {
         String s = this.sb.toString();
-        for (String var : this.variables) {
-            s = s.replaceFirst("\\?", var);
+        for (Object var : this.variables) {
+            s = s.replaceFirst("\\?", String.valueOf(var));
         }
         return s;
     }
@@ -0,0 +1,86 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.misc;
+
+import me.lucko.luckperms.common.model.User;
+import net.luckperms.api.node.Node;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * A read-only snapshot of the data stored for a user, read without loading
+ * the user into the user manager.
+ */
+public final class StoredUser {
+
+    public static StoredUser of(UUID uniqueId, @Nullable String username, @Nullable String primaryGroup, Collection<Node> nodes) {
+        return new StoredUser(uniqueId, username, primaryGroup, nodes);
+    }
+
+    public static StoredUser of(User user) {
+        return new StoredUser(
+                user.getUniqueId(),
+                user.getUsername().orElse(null),
+                user.getPrimaryGroup().getStoredValue().orElse(null),
+                user.normalData().asSet()
+        );
+    }
+
+    private final UUID uniqueId;
+    private final @Nullable String username;
+    private final @Nullable String primaryGroup;
+    private final Collection<Node> nodes;
+
+    private StoredUser(UUID uniqueId, @Nullable String username, @Nullable String primaryGroup, Collection<Node> nodes) {
+        this.uniqueId = uniqueId;
+        this.username = username;
+        this.primaryGroup = primaryGroup;
+        this.nodes = nodes;
+    }
+
+    public UUID getUniqueId() {
+        return this.uniqueId;
+    }
+
+    public @Nullable String getUsername() {
+        return this.username;
+    }
+
+    public @Nullable String getPrimaryGroup() {
+        return this.primaryGroup;
+    }
+
+    public Collection<Node> getNodes() {
+        return this.nodes;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredUser(uniqueId=" + this.uniqueId + ", username=" + this.username + ", primaryGroup=" + this.primaryGroup + ", nodes=" + this.nodes + ')';
+    }
+}
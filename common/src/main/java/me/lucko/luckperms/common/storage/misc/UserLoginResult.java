@@ -0,0 +1,61 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.misc;
+
+import me.lucko.luckperms.common.model.User;
+import net.luckperms.api.model.PlayerSaveResult;
+
+/**
+ * The result of a combined {@code savePlayerData} and {@code loadUser} operation,
+ * performed when a player logs in.
+ */
+public final class UserLoginResult {
+
+    public static UserLoginResult of(PlayerSaveResult saveResult, User user) {
+        return new UserLoginResult(saveResult, user);
+    }
+
+    private final PlayerSaveResult saveResult;
+    private final User user;
+
+    private UserLoginResult(PlayerSaveResult saveResult, User user) {
+        this.saveResult = saveResult;
+        this.user = user;
+    }
+
+    public PlayerSaveResult getSaveResult() {
+        return this.saveResult;
+    }
+
+    public User getUser() {
+        return this.user;
+    }
+
+    @Override
+    public String toString() {
+        return "UserLoginResult(saveResult=" + this.saveResult + ", user=" + this.user + ')';
+    }
+}
@@ -26,36 +26,119 @@
 package me.lucko.luckperms.common.tasks;
 
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+import me.lucko.luckperms.common.util.Uuids;
+import net.luckperms.api.model.PermissionHolder.Identifier;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes expired temporary nodes from loaded holders.
+ *
+ * <p>The task is scheduled to run when the earliest entry in the
+ * {@link me.lucko.luckperms.common.model.ExpiryIndex} expires.</p>
+ */
 public class ExpireTemporaryTask implements Runnable {
     private final LuckPermsPlugin plugin;
 
+    /** The time the task is next scheduled to run at, and the scheduled task */
+    private @Nullable Instant scheduledTime = null;
+    private @Nullable SchedulerTask scheduledTask = null;
+
     public ExpireTemporaryTask(LuckPermsPlugin plugin) {
         this.plugin = plugin;
     }
 
+    /**
+     * Schedules the task to run once the given time has passed, unless it is
+     * already scheduled to run before then.
+     *
+     * @param expiry the time
+     */
+    public synchronized void schedule(Instant expiry) {
+        if (this.scheduledTime != null && !expiry.isBefore(this.scheduledTime)) {
+            return;
+        }
+        if (this.scheduledTask != null) {
+            this.scheduledTask.cancel();
+        }
+
+        // entries are due once their expiry time is in the past
+        long delay = Math.max(0, Duration.between(Instant.now(), expiry).toMillis()) + 1;
+        this.scheduledTime = expiry;
+        this.scheduledTask = this.plugin.getBootstrap().getScheduler().asyncLater(this, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules the task to run when the earliest entry in the expiry index expires.
+     */
+    public void scheduleNext() {
+        Instant next = this.plugin.getExpiryIndex().getEarliestExpiry();
+        if (next != null) {
+            schedule(next);
+        }
+    }
+
     @Override
     public void run() {
-        boolean groupChanges = false;
-        for (Group group : this.plugin.getGroupManager().getAll().values()) {
-            if (group.auditTemporaryNodes()) {
+        synchronized (this) {
+            this.scheduledTime = null;
+            this.scheduledTask = null;
+        }
+
+        try {
+            expire();
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private void expire() {
+        // only audit the holders which the expiry index says have a node due to expire
+        Set<PermissionHolderIdentifier> expired = this.plugin.getExpiryIndex().pollExpired(Instant.now());
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        List<String> changedGroups = new ArrayList<>();
+        for (PermissionHolderIdentifier identifier : expired) {
+            if (!identifier.getType().equals(Identifier.GROUP_TYPE)) {
+                continue;
+            }
+
+            Group group = this.plugin.getGroupManager().getIfLoaded(identifier.getName());
+            if (group != null && group.auditTemporaryNodes()) {
                 this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
+                changedGroups.add(group.getName());
             }
         }
 
-        for (User user : this.plugin.getUserManager().getAll().values()) {
-            if (user.auditTemporaryNodes()) {
+        for (PermissionHolderIdentifier identifier : expired) {
+            if (!identifier.getType().equals(Identifier.USER_TYPE)) {
+                continue;
+            }
+
+            UUID uniqueId = Uuids.fromString(identifier.getName());
+            User user = uniqueId == null ? null : this.plugin.getUserManager().getIfLoaded(uniqueId);
+            if (user != null && user.auditTemporaryNodes()) {
                 this.plugin.getStorage().saveUser(user);
             }
         }
 
-        if (groupChanges) {
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
+        for (String group : changedGroups) {
+            this.plugin.getGroupManager().invalidateDependentGroupCaches(group);
+            this.plugin.getUserManager().invalidateDependentUserCaches(group);
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.verbose;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue backed by a ring buffer.
+ *
+ * <p>Each slot has a sequence number which tells producers and consumers
+ * whether it is ready to be written to or read from, so neither side needs
+ * to take a lock. Offers fail (rather than block or grow) when the buffer is full.</p>
+ *
+ * @param <E> the element type
+ */
+final class RingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    RingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element to the buffer, if there is space.
+     *
+     * @param element the element
+     * @return true if the element was added, false if the buffer is full
+     */
+    public boolean offer(E element) {
+        long pos = this.tail.get();
+        int index;
+        while (true) {
+            index = (int) pos & this.mask;
+            long diff = this.sequences.get(index) - pos;
+            if (diff == 0) {
+                // the slot is free, try to claim it
+                if (this.tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = this.tail.get();
+            } else if (diff < 0) {
+                // the slot hasn't been consumed yet - full
+                return false;
+            } else {
+                // another producer claimed the slot
+                pos = this.tail.get();
+            }
+        }
+
+        this.elements.set(index, element);
+        this.sequences.set(index, pos + 1);
+        return true;
+    }
+
+    /**
+     * Removes and returns the element at the head of the buffer.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    public E poll() {
+        long pos = this.head.get();
+        int index;
+        while (true) {
+            index = (int) pos & this.mask;
+            long diff = this.sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                // the slot has been written to, try to claim it
+                if (this.head.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = this.head.get();
+            } else if (diff < 0) {
+                // the slot hasn't been written to yet - empty
+                return null;
+            } else {
+                // another consumer claimed the slot
+                pos = this.head.get();
+            }
+        }
+
+        E element = this.elements.get(index);
+        this.elements.set(index, null);
+        this.sequences.set(index, pos + this.mask + 1);
+        return element;
+    }
+
+}
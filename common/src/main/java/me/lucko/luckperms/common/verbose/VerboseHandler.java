@@ -36,30 +36,48 @@ import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
 import me.lucko.luckperms.common.verbose.event.VerboseEvent;
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Accepts {@link VerboseEvent}s and passes them onto registered {@link VerboseListener}s.
+ *
+ * <p>Events are held in a bounded queue until they are handled. If checks are made faster
+ * than they can be handled and the queue fills up, further events are dropped and only
+ * counted - this applies to listeners in both record and notify mode.</p>
  */
 public class VerboseHandler implements AutoCloseable {
 
+    /** The maximum number of events which can be waiting to be handled */
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    /** The maximum number of stack frames captured for sampled checks */
+    private static final int SAMPLED_TRACE_DEPTH = 64;
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
     /** A map of currently registered listeners */
     private final Map<UUID, VerboseListener> listeners;
     /** A queue of verbose events to be handled */
-    private final Queue<VerboseEvent> queue;
+    private final RingBuffer<VerboseEvent> queue;
+    /** The number of events dropped since the last flush because the queue was full */
+    private final AtomicLong dropped = new AtomicLong();
     /** If there are any listeners registered */
     private boolean listening = false;
+    /** Only 1 in every sampleRate checks is captured, the lowest rate of any registered listener */
+    private volatile int sampleRate = 1;
     /** The tick task */
     private final SchedulerTask task;
 
     public VerboseHandler(SchedulerAdapter scheduler) {
         this.listeners = new ConcurrentHashMap<>();
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.queue = new RingBuffer<>(QUEUE_CAPACITY);
         this.task = scheduler.asyncRepeating(this::tick, 100, TimeUnit.MILLISECONDS);
     }
 
@@ -81,12 +99,18 @@ public class VerboseHandler implements AutoCloseable {
             return;
         }
 
+        // if sampling, skip the check before doing any other work
+        int sampleRate = this.sampleRate;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+
         long time = System.currentTimeMillis();
-        Throwable trace = new Throwable();
+        Supplier<StackTraceElement[]> trace = captureTrace(sampleRate > 1);
         String thread = Thread.currentThread().getName();
 
         // add the check data to a queue to be processed later.
-        this.queue.offer(new PermissionCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, permission, result));
+        offer(new PermissionCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, permission, result));
     }
 
     /**
@@ -107,12 +131,42 @@ public class VerboseHandler implements AutoCloseable {
             return;
         }
 
+        // if sampling, skip the check before doing any other work
+        int sampleRate = this.sampleRate;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+
         long time = System.currentTimeMillis();
-        Throwable trace = new Throwable();
+        Supplier<StackTraceElement[]> trace = captureTrace(sampleRate > 1);
         String thread = Thread.currentThread().getName();
 
         // add the check data to a queue to be processed later.
-        this.queue.offer(new MetaCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, key, result));
+        offer(new MetaCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, key, result));
+    }
+
+    private void offer(VerboseEvent event) {
+        if (!this.queue.offer(event)) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Captures the stack trace of the current check.
+     *
+     * <p>Sampled checks only walk the top of the stack, and defer converting the
+     * frames to {@link StackTraceElement}s until the trace is actually needed.</p>
+     *
+     * @param sampled if the check is being sampled
+     * @return a supplier of the stack trace
+     */
+    private static Supplier<StackTraceElement[]> captureTrace(boolean sampled) {
+        if (!sampled) {
+            return new Throwable()::getStackTrace;
+        }
+
+        List<StackWalker.StackFrame> frames = STACK_WALKER.walk(s -> s.limit(SAMPLED_TRACE_DEPTH).collect(Collectors.toList()));
+        return () -> frames.stream().map(StackWalker.StackFrame::toStackTraceElement).toArray(StackTraceElement[]::new);
     }
 
     /**
@@ -123,11 +177,24 @@ public class VerboseHandler implements AutoCloseable {
      * @param notify if the sender should be notified in chat on each check
      */
     public void registerListener(Sender sender, VerboseFilter filter, boolean notify) {
+        registerListener(sender, filter, notify, 1);
+    }
+
+    /**
+     * Registers a new listener for the given player.
+     *
+     * @param sender the sender to notify, if notify is true
+     * @param filter the filter string
+     * @param notify if the sender should be notified in chat on each check. Checks dropped
+     *               because the queue was full are not notified.
+     * @param sampleRate record only 1 in every sampleRate checks, or 1 to record every check
+     */
+    public void registerListener(Sender sender, VerboseFilter filter, boolean notify, int sampleRate) {
         // flush out anything before this listener was added
         flush();
 
-        this.listeners.put(sender.getUniqueId(), new VerboseListener(sender, filter, notify));
-        this.listening = true;
+        this.listeners.put(sender.getUniqueId(), new VerboseListener(sender, filter, notify, sampleRate));
+        updateListeningState();
     }
 
     /**
@@ -151,6 +218,16 @@ public class VerboseHandler implements AutoCloseable {
         flush();
 
         // update listening state
+        updateListeningState();
+    }
+
+    private void updateListeningState() {
+        int sampleRate = Integer.MAX_VALUE;
+        for (VerboseListener listener : this.listeners.values()) {
+            sampleRate = Math.min(sampleRate, listener.getSampleRate());
+        }
+
+        this.sampleRate = this.listeners.isEmpty() ? 1 : sampleRate;
         this.listening = !this.listeners.isEmpty();
     }
 
@@ -158,9 +235,19 @@ public class VerboseHandler implements AutoCloseable {
      * Flushes the pending events to listeners.
      */
     public synchronized void flush() {
+        long dropped = this.dropped.getAndSet(0);
+        if (dropped != 0) {
+            for (VerboseListener listener : this.listeners.values()) {
+                listener.acceptDropped(dropped);
+            }
+        }
+
+        // the rate only changes straight after a flush, so the events in the queue
+        // were captured at the current rate
+        int sampleRate = this.sampleRate;
         for (VerboseEvent e; (e = this.queue.poll()) != null; ) {
             for (VerboseListener listener : this.listeners.values()) {
-                listener.acceptEvent(e);
+                listener.acceptEvent(e, sampleRate);
             }
         }
     }
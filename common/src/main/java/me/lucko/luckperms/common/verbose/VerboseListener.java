@@ -41,6 +41,7 @@ import me.lucko.luckperms.common.verbose.event.CheckOrigin;
 import me.lucko.luckperms.common.verbose.event.MetaCheckEvent;
 import me.lucko.luckperms.common.verbose.event.PermissionCheckEvent;
 import me.lucko.luckperms.common.verbose.event.VerboseEvent;
+import me.lucko.luckperms.common.verbose.event.VerboseEventType;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.ComponentLike;
 import net.kyori.adventure.text.JoinConfiguration;
@@ -60,8 +61,15 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.zip.GZIPOutputStream;
 
@@ -74,6 +82,8 @@ public class VerboseListener {
 
     // how much data should we store before stopping.
     private static final int DATA_TRUNCATION = 10_000;
+    // how many distinct permissions/meta keys should we count before stopping.
+    private static final int AGGREGATE_TRUNCATION = 10_000;
     // how many lines should we include in each stack trace send as a chat message
     private static final int STACK_TRUNCATION_CHAT = 15;
     // how many lines should we include in each stack trace in the web output
@@ -113,30 +123,50 @@ public class VerboseListener {
     private final VerboseFilter filter;
     // if we should notify the sender
     private final boolean notify;
+    // only 1 in every sampleRate checks is recorded
+    private final int sampleRate;
     // the number of events we have processed
     private final AtomicInteger counter = new AtomicInteger(0);
     // the number of events we have processed and accepted, based on the filter rules for this
     // listener
     private final AtomicInteger matchedCounter = new AtomicInteger(0);
+    // the number of events which were dropped before they could be processed
+    private final AtomicLong droppedCounter = new AtomicLong(0);
     // the events which passed the filter, up to a max size of #DATA_TRUNCATION
     private final List<VerboseEvent> results = new ArrayList<>(DATA_TRUNCATION / 10);
+    // the number of events which passed the filter, grouped by type, origin and permission/key
+    private final Map<AggregateKey, AtomicInteger> aggregate = new HashMap<>();
     // a list of timestamps when a notification message was sent, used for rate limiting
     private final List<Long> notificationTimestamps = new ArrayList<>();
     // track if we've already warned about rate limiting in the current window
     private boolean notificationRateLimitWarningShown = false;
 
     public VerboseListener(Sender notifiedSender, VerboseFilter filter, boolean notify) {
+        this(notifiedSender, filter, notify, 1);
+    }
+
+    public VerboseListener(Sender notifiedSender, VerboseFilter filter, boolean notify, int sampleRate) {
         this.notifiedSender = notifiedSender;
         this.filter = filter;
         this.notify = notify;
+        this.sampleRate = sampleRate;
     }
 
     /**
      * Accepts and processes verbose events.
      *
+     * <p>The handler captures checks at the lowest sample rate of all listeners,
+     * so this listener keeps each event with a probability that brings it back
+     * to its own rate.</p>
+     *
      * @param event the event to process
+     * @param capturedSampleRate the rate the event was sampled at when it was captured
      */
-    public void acceptEvent(VerboseEvent event) {
+    public void acceptEvent(VerboseEvent event, int capturedSampleRate) {
+        if (this.sampleRate > capturedSampleRate && ThreadLocalRandom.current().nextInt(this.sampleRate) >= capturedSampleRate) {
+            return;
+        }
+
         // increment handled counter
         this.counter.incrementAndGet();
 
@@ -153,12 +183,33 @@ public class VerboseListener {
             this.results.add(event);
         }
 
+        // count the check, so that totals are still available for long recordings
+        AggregateKey key = AggregateKey.of(event);
+        AtomicInteger count = this.aggregate.get(key);
+        if (count != null) {
+            count.incrementAndGet();
+        } else if (this.aggregate.size() < AGGREGATE_TRUNCATION) {
+            this.aggregate.put(key, new AtomicInteger(1));
+        }
+
         // handle notifications
         if (this.notify) {
             sendNotification(event);
         }
     }
 
+    /**
+     * Records that some events were dropped before they could be processed.
+     *
+     * <p>Dropped events are only counted, so they are missing from notifications
+     * as well as from the recorded data.</p>
+     *
+     * @param count the number of events dropped
+     */
+    public void acceptDropped(long count) {
+        this.droppedCounter.addAndGet(count);
+    }
+
     private void sendNotification(VerboseEvent event) {
         if (!checkNotificationRateLimit()) {
             return;
@@ -298,7 +349,9 @@ public class VerboseListener {
                 .add("count", new JObject()
                         .add("matched", this.matchedCounter.get())
                         .add("total", this.counter.get())
+                        .add("dropped", this.droppedCounter.get())
                 )
+                .add("sampleRate", this.sampleRate)
                 .add("uploader", new JObject()
                         .add("name", this.notifiedSender.getNameWithLocation())
                         .add("uuid", this.notifiedSender.getUniqueId().toString())
@@ -313,9 +366,21 @@ public class VerboseListener {
         }
         this.results.clear();
 
+        JArray aggregate = new JArray();
+        this.aggregate.entrySet().stream()
+                .sorted(Map.Entry.<AggregateKey, AtomicInteger>comparingByValue(Comparator.comparingInt(AtomicInteger::get)).reversed())
+                .forEach(e -> aggregate.add(new JObject()
+                        .add("type", e.getKey().type.toString())
+                        .add("origin", e.getKey().origin.name().toLowerCase(Locale.ROOT))
+                        .add("key", e.getKey().key)
+                        .add("count", e.getValue().get())
+                ));
+        this.aggregate.clear();
+
         JsonObject payload = new JObject()
                 .add("metadata", metadata)
                 .add("data", data)
+                .add("aggregate", aggregate)
                 .toJson();
 
         ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
@@ -335,4 +400,45 @@ public class VerboseListener {
     public int getMatchedCount() {
         return this.matchedCounter.get();
     }
+
+    public int getSampleRate() {
+        return this.sampleRate;
+    }
+
+    private static final class AggregateKey {
+        private final VerboseEventType type;
+        private final CheckOrigin origin;
+        private final String key;
+
+        private AggregateKey(VerboseEventType type, CheckOrigin origin, String key) {
+            this.type = type;
+            this.origin = origin;
+            this.key = key;
+        }
+
+        static AggregateKey of(VerboseEvent event) {
+            String key;
+            if (event instanceof PermissionCheckEvent) {
+                key = ((PermissionCheckEvent) event).getPermission();
+            } else if (event instanceof MetaCheckEvent) {
+                key = ((MetaCheckEvent) event).getKey();
+            } else {
+                throw new IllegalArgumentException("Unknown event type: " + event);
+            }
+            return new AggregateKey(event.getType(), event.getOrigin(), key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof AggregateKey)) return false;
+            AggregateKey that = (AggregateKey) o;
+            return this.type == that.type && this.origin == that.origin && this.key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.type, this.origin, this.key);
+        }
+    }
 }
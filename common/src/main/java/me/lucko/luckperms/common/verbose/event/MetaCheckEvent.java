@@ -33,6 +33,7 @@ import me.lucko.luckperms.common.verbose.VerboseCheckTarget;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.Locale;
+import java.util.function.Supplier;
 
 public class MetaCheckEvent extends VerboseEvent {
 
@@ -46,7 +47,7 @@ public class MetaCheckEvent extends VerboseEvent {
      */
     private final StringResult<?> result;
 
-    public MetaCheckEvent(CheckOrigin origin, VerboseCheckTarget checkTarget, QueryOptions checkQueryOptions, long checkTime, Throwable checkTrace, String checkThread, String key, StringResult<?> result) {
+    public MetaCheckEvent(CheckOrigin origin, VerboseCheckTarget checkTarget, QueryOptions checkQueryOptions, long checkTime, Supplier<StackTraceElement[]> checkTrace, String checkThread, String key, StringResult<?> result) {
         super(origin, checkTarget, checkQueryOptions, checkTime, checkTrace, checkThread);
         this.key = key;
         this.result = result;
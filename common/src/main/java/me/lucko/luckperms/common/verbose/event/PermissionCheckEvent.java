@@ -33,6 +33,7 @@ import me.lucko.luckperms.common.verbose.VerboseCheckTarget;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.Locale;
+import java.util.function.Supplier;
 
 public class PermissionCheckEvent extends VerboseEvent {
 
@@ -46,7 +47,7 @@ public class PermissionCheckEvent extends VerboseEvent {
      */
     private final TristateResult result;
 
-    public PermissionCheckEvent(CheckOrigin origin, VerboseCheckTarget checkTarget, QueryOptions checkQueryOptions, long checkTime, Throwable checkTrace, String checkThread, String permission, TristateResult result) {
+    public PermissionCheckEvent(CheckOrigin origin, VerboseCheckTarget checkTarget, QueryOptions checkQueryOptions, long checkTime, Supplier<StackTraceElement[]> checkTrace, String checkThread, String permission, TristateResult result) {
         super(origin, checkTarget, checkQueryOptions, checkTime, checkTrace, checkThread);
         this.permission = permission;
         this.result = result;
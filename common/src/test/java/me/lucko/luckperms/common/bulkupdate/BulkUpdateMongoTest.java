@@ -0,0 +1,167 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.bulkupdate;
+
+import me.lucko.luckperms.common.bulkupdate.action.DeleteAction;
+import me.lucko.luckperms.common.bulkupdate.action.UpdateAction;
+import me.lucko.luckperms.common.filter.Comparison;
+import org.bson.BsonDocument;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkUpdateMongoTest {
+
+    private static String toJson(Bson bson) {
+        CodecRegistry codec = CodecRegistries.withUuidRepresentation(Bson.DEFAULT_CODEC_REGISTRY, UuidRepresentation.STANDARD);
+        return bson.toBsonDocument(BsonDocument.class, codec).toJson();
+    }
+
+    @Test
+    public void testCanTranslate() {
+        assertTrue(BulkUpdateMongoBuilder.canTranslate(BulkUpdateBuilder.create().action(DeleteAction.create()).build()));
+        assertTrue(BulkUpdateMongoBuilder.canTranslate(BulkUpdateBuilder.create().action(UpdateAction.of(BulkUpdateField.PERMISSION, "foo")).build()));
+        assertFalse(BulkUpdateMongoBuilder.canTranslate(BulkUpdateBuilder.create().action(UpdateAction.of(BulkUpdateField.SERVER, "foo")).build()));
+        assertFalse(BulkUpdateMongoBuilder.canTranslate(BulkUpdateBuilder.create().action(UpdateAction.of(BulkUpdateField.WORLD, "foo")).build()));
+    }
+
+    @Test
+    public void testNoFilters() {
+        BulkUpdate delete = BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .build();
+
+        assertEquals("{\"permissions.0\": {\"$exists\": true}}", toJson(BulkUpdateMongoBuilder.makeDocumentFilter(delete)));
+        assertEquals("{\"$set\": {\"permissions\": []}}", toJson(BulkUpdateMongoBuilder.makeUpdate(delete)));
+        assertNull(BulkUpdateMongoBuilder.makeArrayFilters(delete));
+
+        BulkUpdate update = BulkUpdateBuilder.create()
+                .action(UpdateAction.of(BulkUpdateField.PERMISSION, "foo"))
+                .build();
+
+        assertEquals("{\"$set\": {\"permissions.$[].key\": \"foo\"}}", toJson(BulkUpdateMongoBuilder.makeUpdate(update)));
+        assertNull(BulkUpdateMongoBuilder.makeArrayFilters(update));
+    }
+
+    @Test
+    public void testDelete() {
+        BulkUpdate delete = BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(BulkUpdateField.PERMISSION, Comparison.EQUAL, "foo")
+                .build();
+
+        // {"permissions": {"$elemMatch": {"$and": [{"key": {"$regularExpression": {"pattern": "^\\Qfoo\\E$", "options": "i"}}}]}}}
+        assertEquals(
+                "{\"permissions\": {\"$elemMatch\": {\"$and\": [{\"key\": {\"$regularExpression\": {\"pattern\": \"^\\\\Qfoo\\\\E$\", \"options\": \"i\"}}}]}}}",
+                toJson(BulkUpdateMongoBuilder.makeDocumentFilter(delete))
+        );
+        // {"$pull": {"permissions": {"$and": [{"key": {"$regularExpression": {"pattern": "^\\Qfoo\\E$", "options": "i"}}}]}}}
+        assertEquals(
+                "{\"$pull\": {\"permissions\": {\"$and\": [{\"key\": {\"$regularExpression\": {\"pattern\": \"^\\\\Qfoo\\\\E$\", \"options\": \"i\"}}}]}}}",
+                toJson(BulkUpdateMongoBuilder.makeUpdate(delete))
+        );
+        assertNull(BulkUpdateMongoBuilder.makeArrayFilters(delete));
+    }
+
+    @Test
+    public void testUpdate() {
+        BulkUpdate update = BulkUpdateBuilder.create()
+                .action(UpdateAction.of(BulkUpdateField.PERMISSION, "foo"))
+                .filter(BulkUpdateField.PERMISSION, Comparison.NOT_SIMILAR, "bar%")
+                .filter(BulkUpdateField.SERVER, Comparison.EQUAL, "baz")
+                .build();
+
+        assertEquals("{\"$set\": {\"permissions.$[node].key\": \"foo\"}}", toJson(BulkUpdateMongoBuilder.makeUpdate(update)));
+
+        List<Bson> arrayFilters = BulkUpdateMongoBuilder.makeArrayFilters(update);
+        assertEquals(1, arrayFilters.size());
+
+        // {"$and": [
+        //   {"node.key": {"$not": {"$regularExpression": {"pattern": "^(?:bar.*)$", "options": "i"}}}},
+        //   {"node.context": {"$elemMatch": {"$and": [{"key": "server"}, {"value": {"$regularExpression": {"pattern": "^\\Qbaz\\E$", "options": "i"}}}]}}}
+        // ]}
+        assertEquals(
+                "{\"$and\": [" +
+                        "{\"node.key\": {\"$not\": {\"$regularExpression\": {\"pattern\": \"^(?:bar.*)$\", \"options\": \"i\"}}}}, " +
+                        "{\"node.context\": {\"$elemMatch\": {\"$and\": [{\"key\": \"server\"}, {\"value\": {\"$regularExpression\": {\"pattern\": \"^\\\\Qbaz\\\\E$\", \"options\": \"i\"}}}]}}}" +
+                        "]}",
+                toJson(arrayFilters.get(0))
+        );
+    }
+
+    @Test
+    public void testDeduplicate() {
+        BulkUpdate delete = BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(BulkUpdateField.PERMISSION, Comparison.EQUAL, "foo")
+                .build();
+
+        // deleting nodes can't produce duplicates
+        assertNull(BulkUpdateMongoBuilder.makeDeduplicateFilter(delete));
+
+        BulkUpdate update = BulkUpdateBuilder.create()
+                .action(UpdateAction.of(BulkUpdateField.PERMISSION, "foo"))
+                .filter(BulkUpdateField.PERMISSION, Comparison.EQUAL, "bar")
+                .build();
+
+        assertEquals("{\"permissions\": {\"$elemMatch\": {\"key\": \"foo\"}}}", toJson(BulkUpdateMongoBuilder.makeDeduplicateFilter(update)));
+
+        List<Bson> pipeline = BulkUpdateMongoBuilder.makeDeduplicateUpdate();
+        assertEquals(1, pipeline.size());
+        assertEquals("{\"$set\": {\"permissions\": {\"$setUnion\": [\"$permissions\", []]}}}", toJson(pipeline.get(0)));
+    }
+
+    @Test
+    public void testGlobalContextValue() {
+        BulkUpdate delete = BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(BulkUpdateField.WORLD, Comparison.SIMILAR, "glob%")
+                .build();
+
+        // nodes without a world context should be matched, as they are treated as having the value "global"
+        // {"$and": [{"$or": [
+        //   {"permissions.context": {"$elemMatch": {"$and": [{"key": "world"}, {"value": {"$regularExpression": {"pattern": "^(?:glob.*)$", "options": "i"}}}]}}},
+        //   {"permissions.context": {"$not": {"$elemMatch": {"key": "world"}}}}
+        // ]}]}
+        assertEquals(
+                "{\"$and\": [{\"$or\": [" +
+                        "{\"permissions.context\": {\"$elemMatch\": {\"$and\": [{\"key\": \"world\"}, {\"value\": {\"$regularExpression\": {\"pattern\": \"^(?:glob.*)$\", \"options\": \"i\"}}}]}}}, " +
+                        "{\"permissions.context\": {\"$not\": {\"$elemMatch\": {\"key\": \"world\"}}}}" +
+                        "]}]}",
+                toJson(BulkUpdateMongoBuilder.makeUnwoundNodeFilter(delete))
+        );
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.cacheddata.AbstractCachedDataManager.AbstractContainer;
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.metrics.PluginMetrics;
+import me.lucko.luckperms.common.query.QueryOptionsBuilderImpl;
+import net.luckperms.api.cacheddata.CachedPermissionData;
+import net.luckperms.api.query.QueryMode;
+import net.luckperms.api.query.QueryOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class AbstractContainerTest {
+
+    private static final QueryOptions DEPENDS_ON_A = queryOptions("a");
+    private static final QueryOptions DEPENDS_ON_B = queryOptions("b");
+    private static final QueryOptions UNKNOWN = queryOptions("unknown");
+    private static final QueryOptions SLOW = queryOptions("slow");
+
+    private static final Map<QueryOptions, Set<String>> DEPENDENCIES = ImmutableMap.of(
+            DEPENDS_ON_A, ImmutableSet.of("a"),
+            DEPENDS_ON_B, ImmutableSet.of("b"),
+            SLOW, ImmutableSet.of("b")
+    );
+
+    private static QueryOptions queryOptions(String server) {
+        return new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(ImmutableContextSetImpl.of("server", server)).build();
+    }
+
+    private static AbstractContainer<PermissionCache, CachedPermissionData> createContainer(Function<QueryOptions, PermissionCache> loader) {
+        PluginMetrics metrics = new PluginMetrics();
+        return new AbstractContainer<>(loader, DEPENDENCIES::get, metrics::permissionData);
+    }
+
+    @Test
+    public void testInvalidateDependents() {
+        AbstractContainer<PermissionCache, CachedPermissionData> container = createContainer(queryOptions -> mock(PermissionCache.class));
+
+        PermissionCache a = container.get(DEPENDS_ON_A);
+        PermissionCache b = container.get(DEPENDS_ON_B);
+        PermissionCache unknown = container.get(UNKNOWN);
+
+        container.invalidateDependents("a");
+
+        // values which depend on the group, or whose dependencies are unknown, are dropped
+        assertNotSame(a, container.get(DEPENDS_ON_A));
+        assertNotSame(unknown, container.get(UNKNOWN));
+
+        // ... and the rest are kept
+        assertSame(b, container.get(DEPENDS_ON_B));
+    }
+
+    @Test
+    public void testInvalidateDependentsWhileLoading() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+
+        AbstractContainer<PermissionCache, CachedPermissionData> container = createContainer(queryOptions -> {
+            if (queryOptions.equals(SLOW)) {
+                loadStarted.countDown();
+                try {
+                    finishLoad.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return mock(PermissionCache.class);
+        });
+
+        PermissionCache a = container.get(DEPENDS_ON_A);
+        PermissionCache b = container.get(DEPENDS_ON_B);
+
+        CompletableFuture<PermissionCache> slow = CompletableFuture.supplyAsync(() -> container.get(SLOW));
+        assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+        // the value being loaded isn't in the cache yet, so the invalidation can't see it
+        container.invalidateDependents("b");
+
+        finishLoad.countDown();
+        PermissionCache loaded = slow.get(10, TimeUnit.SECONDS);
+
+        // the value loaded during the invalidation is discarded once inserted
+        assertNotSame(loaded, container.get(SLOW));
+
+        // ... and other values are only dropped if they depend on the group
+        assertSame(a, container.get(DEPENDS_ON_A));
+        assertNotSame(b, container.get(DEPENDS_ON_B));
+    }
+
+}
@@ -48,6 +48,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PermissionCalculatorTest {
 
@@ -195,6 +196,54 @@ public class PermissionCalculatorTest {
         }
     }
 
+    @Test
+    public void testLookupCacheCounters() {
+        PermissionCalculatorBase calculator = new PermissionCalculatorBase(ImmutableList.of(
+                new DirectProcessor(EXAMPLE_PERMISSIONS)
+        ));
+
+        calculator.checkPermission("test.node1", CheckOrigin.INTERNAL);
+        calculator.checkPermission("test.node1", CheckOrigin.INTERNAL);
+        calculator.checkPermission("test.node2", CheckOrigin.INTERNAL);
+
+        assertEquals(1, calculator.getHitCount());
+        assertEquals(2, calculator.getMissCount());
+        assertEquals(2, calculator.getCacheSize());
+
+        calculator.invalidateCache();
+        assertEquals(0, calculator.getCacheSize());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "test.node1, TRUE",
+            "test.node2, FALSE",
+            "one.two.three.four, TRUE",
+            "one.two.test, FALSE",
+            "test, FALSE",
+    })
+    public void testBoundedLookupCache(String node, Tristate expected) {
+        PermissionCalculatorBase calculator = new PermissionCalculatorBase(ImmutableList.of(
+                new DirectProcessor(EXAMPLE_PERMISSIONS),
+                new WildcardProcessor(EXAMPLE_PERMISSIONS)
+        ), 2);
+
+        for (int i = 0; i < 100; i++) {
+            calculator.checkPermission("filler." + i, CheckOrigin.INTERNAL);
+        }
+
+        // the cache evicts entries asynchronously, so run the pending evictions now
+        calculator.cleanUp();
+        assertTrue(calculator.getCacheSize() <= 2);
+        assertTrue(calculator.getEvictionCount() > 0);
+
+        assertEquals(expected, calculator.checkPermission(node, CheckOrigin.INTERNAL).result());
+        assertEquals(expected, calculator.checkPermission(node, CheckOrigin.INTERNAL).result());
+
+        calculator.cleanUp();
+        assertTrue(calculator.getCacheSize() <= 2);
+    }
+
     @Test
     public void testOverrideWildcard() {
         AbstractOverrideWildcardProcessor overrideProcessor = new AbstractOverrideWildcardProcessor(true) {
@@ -97,6 +97,37 @@ public class PermissionProcessorTest {
         assertSame(WildcardProcessor.class, result.processorClass());
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "one.two.three.four.five, FALSE",
+            "one.two.three.four, TRUE",
+            "one.two.three.test, TRUE",
+            "one.two.threefour.test, TRUE",
+            "one.twothree.test, UNDEFINED",
+            "one.tw.test, UNDEFINED",
+            "one..test, FALSE",
+            "one.two, UNDEFINED",
+            "two.three.test, UNDEFINED",
+    })
+    public void testWildcardDeep(String node, Tristate expected) {
+        PermissionProcessor processor = new WildcardProcessor(createNodeMap(Map.of(
+                "one.two.three.four.*", false,
+                "one.two.*", true,
+                "one..*", false
+        )));
+
+        TristateResult result = processor.hasPermission(TristateResult.UNDEFINED, node);
+        assertEquals(expected, result.result());
+
+        if (expected != Tristate.UNDEFINED) {
+            assertNotNull(result.node());
+            assertSame(WildcardProcessor.class, result.processorClass());
+        } else {
+            assertNull(result.node());
+            assertNull(result.processorClass());
+        }
+    }
+
     @ParameterizedTest
     @CsvSource({
             "one.two.three.test, FALSE",
@@ -135,11 +166,19 @@ public class PermissionProcessorTest {
             "regexes2, FALSE",
             "regexp3, FALSE",
             "regexps4, FALSE",
+            "plugin.home.3, TRUE",
+            "plugin.homes.3, UNDEFINED",
+            "plugin.hom.3, UNDEFINED",
+            "plugin.warp, FALSE",
+            "plugin.warps, FALSE",
+            "plugin.war, UNDEFINED",
     })
     public void testRegex(String node, Tristate expected) {
         PermissionProcessor processor = new RegexProcessor(createNodeMap(Map.of(
                 "r=hello\\d+", true,
-                "R=rege(x(es)?|xps?)[1-5]", false
+                "R=rege(x(es)?|xps?)[1-5]", false,
+                "r=plugin\\.home\\.\\d", true,
+                "r=plugin\\.warps?", false
         )));
 
         TristateResult result = processor.hasPermission(TristateResult.UNDEFINED, node);
@@ -36,6 +36,7 @@ public class CommandPermissionTest {
     private static final ImmutableSet<CommandPermission> ALLOWED_READ_ONLY = ImmutableSet.of(
             CommandPermission.SYNC,
             CommandPermission.INFO,
+            CommandPermission.METRICS,
             CommandPermission.EDITOR,
             CommandPermission.VERBOSE,
             CommandPermission.TREE,
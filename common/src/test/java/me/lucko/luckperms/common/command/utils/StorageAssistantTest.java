@@ -0,0 +1,113 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package me.lucko.luckperms.common.command.utils;
+
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.metrics.PluginMetrics;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StorageAssistantTest {
+
+    @Test
+    public void testSequentialSavesAreCoalesced() throws Exception {
+        List<Runnable> scheduled = new ArrayList<>();
+        SchedulerAdapter scheduler = mock(SchedulerAdapter.class);
+        when(scheduler.asyncLater(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS))).then(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+
+        LuckPermsBootstrap bootstrap = mock(LuckPermsBootstrap.class);
+        when(bootstrap.getScheduler()).thenReturn(scheduler);
+
+        LuckPermsConfiguration configuration = mock(LuckPermsConfiguration.class);
+        when(configuration.get(ConfigKeys.SAVE_COALESCE_WINDOW)).thenReturn(100);
+
+        LuckPermsPlugin plugin = mock(LuckPermsPlugin.class);
+        when(plugin.getBootstrap()).thenReturn(bootstrap);
+        when(plugin.getConfiguration()).thenReturn(configuration);
+        when(plugin.getMetrics()).thenReturn(new PluginMetrics());
+        when(plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+        when(plugin.getMessagingService()).thenReturn(Optional.empty());
+
+        StorageImplementation implementation = mock(StorageImplementation.class);
+        Storage storage = new Storage(plugin, implementation);
+        when(plugin.getStorage()).thenReturn(storage);
+
+        User user = mock(User.class);
+        when(user.getIdentifier()).thenReturn(new PermissionHolderIdentifier(HolderType.USER, UUID.randomUUID().toString()));
+        Sender sender = mock(Sender.class);
+
+        // several commands modifying the same user in quick succession
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(StorageAssistant.save(user, sender, plugin));
+        }
+
+        // the command thread is not held up waiting for the write
+        futures.forEach(future -> assertFalse(future.isDone()));
+        verify(implementation, never()).saveUser(user);
+        assertEquals(1, scheduled.size());
+
+        scheduled.forEach(Runnable::run);
+
+        verify(implementation, times(1)).saveUser(user);
+        for (CompletableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+            assertTrue(future.isDone());
+        }
+    }
+
+}
@@ -38,6 +38,8 @@ import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ImmutableContextSetTest {
@@ -170,4 +172,17 @@ public class ImmutableContextSetTest {
         );
     }
 
+    @Test
+    public void testIntern() {
+        ImmutableContextSet a = new ImmutableContextSetImpl.BuilderImpl().add("world", "intern_world").add("server", "intern_server").build();
+        ImmutableContextSet b = new ImmutableContextSetImpl.BuilderImpl().add("server", "intern_server").add("world", "intern_world").build();
+        assertNotSame(a, b);
+
+        ImmutableContextSet interned = ImmutableContextSetImpl.intern(a);
+        assertSame(a, interned);
+        assertSame(interned, ImmutableContextSetImpl.intern(b));
+
+        assertSame(ImmutableContextSetImpl.EMPTY, ImmutableContextSetImpl.intern(new ImmutableContextSetImpl.BuilderImpl().build()));
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.context.manager;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class SimpleContextManagerTest {
+
+    @Mock private LuckPermsPlugin plugin;
+    @Mock private LuckPermsConfiguration configuration;
+    @Mock private LuckPermsBootstrap bootstrap;
+    @Mock private SchedulerAdapter scheduler;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.bootstrap.getScheduler()).thenReturn(this.scheduler);
+        lenient().when(this.configuration.get(ConfigKeys.DISABLED_CONTEXT_CALCULATORS)).thenReturn(ImmutableSet.of());
+        lenient().when(this.configuration.get(ConfigKeys.GLOBAL_QUERY_OPTIONS)).thenReturn(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        lenient().when(this.configuration.get(ConfigKeys.SIGNALLED_CONTEXT_CACHE_EXPIRY)).thenReturn(30);
+    }
+
+    @Test
+    public void testSignalledCaching() {
+        lenient().when(this.configuration.get(ConfigKeys.SIGNALLED_CONTEXT_CACHING)).thenReturn(true);
+
+        AtomicInteger calls = new AtomicInteger();
+        TestContextManager contextManager = new TestContextManager(this.plugin);
+        contextManager.registerCalculator((subject, consumer) -> consumer.accept("calls", String.valueOf(calls.incrementAndGet())));
+
+        assertEquals("1", contextManager.getContext("test").getAnyValue("calls").orElse(null));
+        assertEquals("1", contextManager.getContext("test").getAnyValue("calls").orElse(null));
+        assertEquals(1, calls.get());
+
+        contextManager.signalContextUpdate("test");
+        assertEquals("2", contextManager.getContext("test").getAnyValue("calls").orElse(null));
+        assertEquals("2", contextManager.getContext("test").getAnyValue("calls").orElse(null));
+        assertEquals(2, calls.get());
+
+        // the cache is invalidated again once any pending change has been applied
+        verify(this.scheduler).asyncLater(any(Runnable.class), eq(50L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCacheExpiry() {
+        lenient().when(this.configuration.get(ConfigKeys.SIGNALLED_CONTEXT_CACHING)).thenReturn(false);
+        assertEquals(50L, new TestContextManager(this.plugin).cacheExpiryMillis);
+
+        lenient().when(this.configuration.get(ConfigKeys.SIGNALLED_CONTEXT_CACHING)).thenReturn(true);
+        assertEquals(30000L, new TestContextManager(this.plugin).cacheExpiryMillis);
+    }
+
+    private static final class TestContextManager extends SimpleContextManager<String, String> {
+        TestContextManager(LuckPermsPlugin plugin) {
+            super(plugin, String.class, String.class);
+        }
+
+        @Override
+        public UUID getUniqueId(String player) {
+            return null;
+        }
+    }
+
+}
@@ -25,13 +25,16 @@
 
 package me.lucko.luckperms.common.messaging;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.JsonObject;
 import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
 import me.lucko.luckperms.common.messaging.message.CustomMessageImpl;
+import me.lucko.luckperms.common.messaging.message.TargetedUpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
+import me.lucko.luckperms.common.util.gson.JArray;
 import me.lucko.luckperms.common.util.gson.JObject;
 import net.luckperms.api.actionlog.Action;
 import org.junit.jupiter.api.Test;
@@ -72,6 +75,29 @@ public class MessageImplTest {
         assertEquals(userUuid, msg.getUserUniqueId());
     }
 
+    @Test
+    public void testTargetedUpdateMessage() {
+        UUID uuid = UUID.fromString("22f9e168-8815-44f1-83c8-b642ebfbcef2");
+        UUID userUuid = UUID.fromString("4c087cd9-f444-4c52-8438-e03e57ba2e8e");
+
+        // encode
+        TargetedUpdateMessageImpl msg = new TargetedUpdateMessageImpl(uuid, ImmutableSet.of("admin", "mod"), ImmutableSet.of("staff"), ImmutableSet.of(userUuid));
+        // {"id":"22f9e168-8815-44f1-83c8-b642ebfbcef2","type":"targetedupdate","content":{"groups":["admin","mod"],"tracks":["staff"],"users":["4c087cd9-f444-4c52-8438-e03e57ba2e8e"]}}
+        assertEquals("{\"id\":\"22f9e168-8815-44f1-83c8-b642ebfbcef2\",\"type\":\"targetedupdate\",\"content\":{\"groups\":[\"admin\",\"mod\"],\"tracks\":[\"staff\"],\"users\":[\"4c087cd9-f444-4c52-8438-e03e57ba2e8e\"]}}", msg.asEncodedString());
+
+        // decode
+        msg = TargetedUpdateMessageImpl.decode(new JObject().add("groups", new JArray().add("admin").add("mod")).add("tracks", new JArray()).add("users", new JArray().add(userUuid.toString())).toJson(), uuid);
+        assertEquals(uuid, msg.getId());
+        assertEquals(ImmutableSet.of("admin", "mod"), msg.getGroups());
+        assertEquals(ImmutableSet.of(), msg.getTracks());
+        assertEquals(ImmutableSet.of(userUuid), msg.getUsers());
+
+        // the users argument is optional
+        msg = TargetedUpdateMessageImpl.decode(new JObject().add("groups", new JArray()).add("tracks", new JArray().add("staff")).toJson(), uuid);
+        assertEquals(ImmutableSet.of("staff"), msg.getTracks());
+        assertEquals(ImmutableSet.of(), msg.getUsers());
+    }
+
     @Test
     public void testActionLogMessage() {
         UUID uuid = UUID.fromString("22f9e168-8815-44f1-83c8-b642ebfbcef2");
@@ -0,0 +1,117 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging;
+
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PushUpdateBufferTest {
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private LuckPermsMessagingService service;
+    private PushUpdateBuffer buffer;
+
+    @BeforeEach
+    public void setupBuffer() {
+        SchedulerAdapter scheduler = mock(SchedulerAdapter.class);
+        when(scheduler.asyncLater(any(Runnable.class), anyLong(), eq(TimeUnit.SECONDS))).then(invocation -> {
+            this.scheduled.add(invocation.getArgument(0));
+            return mock(SchedulerTask.class);
+        });
+
+        LuckPermsBootstrap bootstrap = mock(LuckPermsBootstrap.class);
+        when(bootstrap.getScheduler()).thenReturn(scheduler);
+
+        LuckPermsConfiguration configuration = mock(LuckPermsConfiguration.class);
+        when(configuration.get(ConfigKeys.PUSH_TARGETED_UPDATES)).thenReturn(true);
+
+        LuckPermsPlugin plugin = mock(LuckPermsPlugin.class);
+        when(plugin.getBootstrap()).thenReturn(bootstrap);
+        when(plugin.getConfiguration()).thenReturn(configuration);
+
+        this.service = mock(LuckPermsMessagingService.class);
+        this.buffer = new PushUpdateBuffer(plugin, this.service);
+    }
+
+    private void runScheduled() {
+        // each request reschedules the buffer, only the last task is still bound
+        this.scheduled.forEach(Runnable::run);
+        this.scheduled.clear();
+    }
+
+    @Test
+    public void testTargetedPushesAreMerged() {
+        UUID user = UUID.randomUUID();
+        this.buffer.requestGroup("admin");
+        this.buffer.requestUser(user);
+        this.buffer.requestGroup("mod");
+        this.buffer.requestTrack("staff");
+        runScheduled();
+
+        verify(this.service, times(1)).pushTargetedUpdate(ImmutableSet.of("admin", "mod"), ImmutableSet.of("staff"), ImmutableSet.of(user));
+        verify(this.service, never()).pushUpdate();
+    }
+
+    @Test
+    public void testFullPushSupersedesTargetedPushes() {
+        this.buffer.requestUser(UUID.randomUUID());
+        this.buffer.requestGroup("admin");
+        this.buffer.request();
+        runScheduled();
+
+        verify(this.service, times(1)).pushUpdate();
+        verify(this.service, never()).pushTargetedUpdate(any(), any(), any());
+
+        // the next window starts with no pending changes
+        this.buffer.requestGroup("mod");
+        runScheduled();
+
+        verify(this.service, times(1)).pushTargetedUpdate(ImmutableSet.of("mod"), ImmutableSet.of(), ImmutableSet.of());
+        verify(this.service, times(1)).pushUpdate();
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.metrics;
+
+import com.google.common.collect.ImmutableList;
+import me.lucko.luckperms.common.calculator.PermissionCalculatorBase;
+import me.lucko.luckperms.common.verbose.event.CheckOrigin;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PluginMetricsTest {
+
+    @Test
+    public void testSnapshot() {
+        PluginMetrics metrics = new PluginMetrics();
+        PermissionCalculatorBase calculator = new PermissionCalculatorBase(ImmutableList.of());
+        metrics.permissionLookups().register(calculator);
+        calculator.checkPermission("test", CheckOrigin.INTERNAL);
+        calculator.checkPermission("test", CheckOrigin.INTERNAL);
+        metrics.metaData().requests().increment();
+        metrics.storageOperation("loadUser").recordSince(System.nanoTime());
+
+        Map<String, Double> snapshot = metrics.snapshot();
+        assertEquals(2d, snapshot.get("luckperms_permission_checks_total"));
+        assertEquals(1d, snapshot.get("luckperms_permission_lookup_misses_total"));
+        assertEquals(0d, snapshot.get("luckperms_permission_lookup_evictions_total"));
+        assertEquals(0d, snapshot.get("luckperms_meta_checks_total"));
+        assertEquals(0d, snapshot.get("luckperms_cached_data_requests_total{type=\"permission\"}"));
+        assertEquals(1d, snapshot.get("luckperms_cached_data_requests_total{type=\"meta\"}"));
+        assertEquals(1d, snapshot.get("luckperms_storage_operation_seconds_count{operation=\"loadUser\"}"));
+        assertTrue(snapshot.get("luckperms_storage_operation_seconds_sum{operation=\"loadUser\"}") >= 0d);
+    }
+
+    @Test
+    public void testPrometheusText() {
+        PluginMetrics metrics = new PluginMetrics();
+        metrics.messagesSent().increment();
+
+        String text = metrics.toPrometheusText();
+        assertTrue(text.contains("# TYPE luckperms_messaging_sent_total counter\n"));
+        assertTrue(text.contains("\nluckperms_messaging_sent_total 1.0\n"));
+        assertTrue(text.contains("# TYPE luckperms_cached_data_load_seconds summary\n"));
+        assertTrue(text.contains("\nluckperms_cached_data_load_seconds_count{type=\"permission\"} 0.0\n"));
+
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("# ") || line.startsWith("luckperms_"), line);
+        }
+    }
+
+}
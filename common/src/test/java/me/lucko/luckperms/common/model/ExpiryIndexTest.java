@@ -0,0 +1,154 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.model;
+
+import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
+import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import net.luckperms.api.model.data.DataType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ExpiryIndexTest {
+
+    private static final PermissionHolderIdentifier USER = new PermissionHolderIdentifier(HolderType.USER, "c1d60c50-70b5-4722-8057-87767557e50d");
+    private static final PermissionHolderIdentifier GROUP = new PermissionHolderIdentifier(HolderType.GROUP, "test");
+
+    @Mock private LuckPermsPlugin plugin;
+
+    @Test
+    public void testPollExpired() {
+        Instant now = Instant.ofEpochSecond(1000);
+
+        ExpiryIndex index = new ExpiryIndex();
+        index.add(USER, now.minusSeconds(10));
+        index.add(GROUP, now.minusSeconds(5));
+        index.add(USER, now.minusSeconds(1));
+        index.add(GROUP, now.plusSeconds(10));
+        index.add(USER, now);
+        assertEquals(5, index.size());
+
+        assertEquals(Arrays.asList(USER, GROUP), new ArrayList<>(index.pollExpired(now)));
+        assertEquals(2, index.size());
+
+        assertTrue(index.pollExpired(now).isEmpty());
+        assertEquals(1, index.pollExpired(now.plusSeconds(1)).size());
+        assertEquals(1, index.pollExpired(now.plusSeconds(11)).size());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testDuplicateEntries() {
+        Instant expiry = Instant.ofEpochSecond(1000);
+
+        ExpiryIndex index = new ExpiryIndex();
+        index.add(USER, expiry);
+        index.add(USER, expiry);
+        index.add(GROUP, expiry);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testRemove() {
+        Instant expiry = Instant.ofEpochSecond(1000);
+
+        ExpiryIndex index = new ExpiryIndex();
+        index.add(USER, expiry);
+        index.add(USER, expiry);
+        index.add(GROUP, expiry.plusSeconds(10));
+
+        // the entry is kept until every node with the expiry time has been removed
+        index.remove(USER, expiry);
+        assertEquals(2, index.size());
+        index.remove(USER, expiry);
+        assertEquals(1, index.size());
+        assertEquals(expiry.plusSeconds(10), index.getEarliestExpiry());
+
+        index.add(USER, expiry);
+        index.add(USER, expiry.plusSeconds(5));
+        index.removeAll(USER);
+        assertEquals(1, index.size());
+        assertTrue(index.pollExpired(expiry.plusSeconds(6)).isEmpty());
+
+        index.removeAll(GROUP);
+        assertEquals(0, index.size());
+        assertNull(index.getEarliestExpiry());
+    }
+
+    @Test
+    public void testEarliestExpiryListener() {
+        Instant expiry = Instant.ofEpochSecond(1000);
+        List<Instant> notified = new ArrayList<>();
+
+        ExpiryIndex index = new ExpiryIndex();
+        index.setEarliestExpiryListener(notified::add);
+        index.add(USER, expiry);
+        index.add(GROUP, expiry.plusSeconds(10));
+        index.add(GROUP, expiry.minusSeconds(10));
+
+        assertEquals(Arrays.asList(expiry, expiry.minusSeconds(10)), notified);
+    }
+
+    @Test
+    public void testIndexedByHolder() {
+        ExpiryIndex index = new ExpiryIndex();
+        when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        when(this.plugin.getExpiryIndex()).thenReturn(index);
+        when(this.plugin.getGroupManager()).thenReturn(mock(GroupManager.class));
+
+        Group group = new Group("test", this.plugin);
+        group.setNode(DataType.NORMAL, Permission.builder().permission("test.permanent").build(), false);
+        assertEquals(0, index.size());
+
+        group.setNode(DataType.NORMAL, Permission.builder().permission("test.temporary").expiry(1, TimeUnit.HOURS).build(), false);
+        group.setNode(DataType.TRANSIENT, Permission.builder().permission("test.transient").expiry(2, TimeUnit.HOURS).build(), false);
+        assertEquals(2, index.size());
+
+        assertTrue(index.pollExpired(Instant.now()).isEmpty());
+        assertEquals(1, index.pollExpired(Instant.now().plusSeconds(TimeUnit.HOURS.toSeconds(1) + 5)).size());
+
+        // removing the node removes its entry
+        group.unsetNode(DataType.TRANSIENT, Permission.builder().permission("test.transient").expiry(2, TimeUnit.HOURS).build());
+        assertEquals(0, index.size());
+    }
+
+}
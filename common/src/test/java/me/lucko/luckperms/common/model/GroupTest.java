@@ -29,6 +29,7 @@ import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.context.manager.ContextManager;
 import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.node.types.DisplayName;
 import me.lucko.luckperms.common.node.types.Weight;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
@@ -62,6 +63,7 @@ public class GroupTest {
     public void setupMocks() {
         lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
         lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getGroupManager()).thenReturn(mock(GroupManager.class));
 
         //noinspection unchecked,rawtypes
         lenient().when(this.plugin.getContextManager()).thenReturn((ContextManager) this.contextManager);
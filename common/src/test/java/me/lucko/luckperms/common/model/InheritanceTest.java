@@ -25,6 +25,8 @@
 
 package me.lucko.luckperms.common.model;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.event.EventDispatcher;
@@ -33,11 +35,15 @@ import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
 import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Permission;
 import me.lucko.luckperms.common.node.types.Weight;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.QueryOptionsImpl;
 import net.luckperms.api.context.ContextSatisfyMode;
+import net.luckperms.api.model.data.DataType;
+import net.luckperms.api.node.Node;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -46,10 +52,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -126,6 +137,81 @@ public class InheritanceTest {
         assertEquals(expectedList, groups);
     }
 
+    @Test
+    public void testInheritanceDependencies() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+
+        Group member = this.groupManager.getOrMake("member");
+        Group helper = createGroup("helper", 10, member);
+        Group unrelated = this.groupManager.getOrMake("unrelated");
+
+        PermissionHolder testHolder = this.groupManager.getOrMake("test");
+        testHolder.normalData().add(Inheritance.builder().group(helper.getName()).build());
+        testHolder.normalData().add(Inheritance.builder().group("notloaded").build());
+
+        Set<String> dependencies = testHolder.resolveInheritanceDependencies(QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        assertEquals(ImmutableSet.of("test", "helper", "member", "notloaded"), dependencies);
+        assertFalse(dependencies.contains(unrelated.getName()));
+    }
+
+    @Test
+    public void testInheritanceSnapshotInvalidation() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+
+        Group member = this.groupManager.getOrMake("member");
+        Group helper = createGroup("helper", 10, member);
+        Group vip = this.groupManager.getOrMake("vip");
+
+        PermissionHolder testHolder = this.groupManager.getOrMake("test");
+        testHolder.normalData().add(Inheritance.builder().group(helper.getName()).build());
+        assertEquals(ImmutableList.of("helper", "member"), resolveInheritanceTree(testHolder));
+
+        // modify a group which has already been traversed
+        member.setNode(DataType.NORMAL, Inheritance.builder().group(vip.getName()).build(), false);
+        assertEquals(ImmutableList.of("helper", "member", "vip"), resolveInheritanceTree(testHolder));
+
+        // unload a group which has already been traversed
+        this.groupManager.unload(vip.getName());
+        assertEquals(ImmutableList.of("helper", "member"), resolveInheritanceTree(testHolder));
+    }
+
+    @Test
+    public void testExportPermissions() {
+        when(this.configuration.get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM)).thenReturn(TraversalAlgorithm.DEPTH_FIRST_PRE_ORDER);
+        when(this.configuration.get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)).thenReturn(false);
+
+        Group member = this.groupManager.getOrMake("member");
+        member.setNode(DataType.NORMAL, Permission.builder().permission("test.a").value(false).build(), false);
+        member.setNode(DataType.NORMAL, Permission.builder().permission("test.b").build(), false);
+        member.setNode(DataType.NORMAL, Permission.builder().permission("test.c").value(false).build(), false);
+
+        PermissionHolder testHolder = this.groupManager.getOrMake("test");
+        testHolder.setNode(DataType.NORMAL, Inheritance.builder().group(member.getName()).build(), false);
+        testHolder.setNode(DataType.NORMAL, Permission.builder().permission("Test.A").build(), false);
+        testHolder.setNode(DataType.NORMAL, Permission.builder().permission("test.(c|d)").build(), false);
+
+        Map<String, Node> permissions = testHolder.exportPermissions(HashMap::new, QueryOptionsImpl.DEFAULT_CONTEXTUAL, true, true);
+
+        // own nodes take priority over inherited nodes, and keys are lowercased
+        assertTrue(permissions.get("test.a").getValue());
+        assertTrue(permissions.get("test.b").getValue());
+        // inherited nodes take priority over own shorthand
+        assertFalse(permissions.get("test.c").getValue());
+        assertTrue(permissions.get("test.d").getValue());
+
+        // changes to inherited groups are reflected
+        member.unsetNode(DataType.NORMAL, Permission.builder().permission("test.c").value(false).build());
+        permissions = testHolder.exportPermissions(HashMap::new, QueryOptionsImpl.DEFAULT_CONTEXTUAL, true, true);
+        assertTrue(permissions.get("test.c").getValue());
+    }
+
+    private static List<String> resolveInheritanceTree(PermissionHolder holder) {
+        return holder.resolveInheritanceTree(QueryOptionsImpl.DEFAULT_CONTEXTUAL)
+                .stream().map(Group::getName).collect(Collectors.toList());
+    }
+
     private Group createGroup(String name, int weight, Group parent) {
         Group group = this.groupManager.getOrMake(name);
         group.normalData().add(Inheritance.builder().group(parent.getName()).build());
@@ -53,11 +53,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -503,4 +505,73 @@ public class NodeMapTest {
         assertEquals(expectedInheritance, inheritanceOutput.size());
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "'', AT_LEAST_ONE_VALUE_PER_KEY",
+            "server=s3, AT_LEAST_ONE_VALUE_PER_KEY",
+            "server=s3|world=w1, AT_LEAST_ONE_VALUE_PER_KEY",
+            "server=s3|world=w1, ALL_VALUES_PER_KEY",
+            "server=s3|server=s4|world=w1|test=test, AT_LEAST_ONE_VALUE_PER_KEY",
+            "server=s3|server=s4|world=w1|test=test, ALL_VALUES_PER_KEY",
+            "server=unknown, AT_LEAST_ONE_VALUE_PER_KEY",
+    })
+    public void testIndexedContextFiltering(String context, ContextSatisfyMode satisfyMode) {
+        NodeMapMutable map = new NodeMapMutable(this.mockHolder, DataType.NORMAL) {
+            @Override
+            protected ContextSatisfyMode defaultSatisfyMode() {
+                return satisfyMode;
+            }
+        };
+
+        // enough buckets for the context index to be used
+        map.add(makeNode("test"));
+        map.add(makeNode("group.test"));
+        for (int s = 0; s < 8; s++) {
+            map.add(makeNode("test.s" + s).toBuilder().withContext("server", "s" + s).build());
+            map.add(makeNode("test.s" + s + "s4").toBuilder().withContext("server", "s" + s).withContext("server", "s4").build());
+            for (int w = 0; w < 3; w++) {
+                map.add(makeNode("group.s" + s + "w" + w).toBuilder().withContext("server", "s" + s).withContext("world", "w" + w).build());
+            }
+        }
+        map.add(makeNode("test.test").toBuilder().withContext("test", "test").build());
+
+        ImmutableContextSet.Builder builder = new ImmutableContextSetImpl.BuilderImpl();
+        if (!context.isEmpty()) {
+            for (String entry : Splitter.on('|').split(context)) {
+                List<String> parts = Splitter.on('=').splitToList(entry);
+                builder.add(parts.get(0), parts.get(1));
+            }
+        }
+
+        QueryOptions options = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL)
+                .context(builder.build())
+                .build();
+
+        // the result of checking every node in the map
+        List<Node> expected = map.asList().stream()
+                .filter(n -> options.satisfies(n.getContexts(), satisfyMode))
+                .collect(Collectors.toList());
+        List<InheritanceNode> expectedInheritance = map.inheritanceAsList().stream()
+                .filter(n -> options.satisfies(n.getContexts(), satisfyMode))
+                .collect(Collectors.toList());
+
+        List<Node> output = new ArrayList<>();
+        map.copyTo(output, options);
+        assertEquals(expected, output);
+
+        output.clear();
+        map.forEach(options, output::add);
+        assertEquals(expected, output);
+
+        List<InheritanceNode> inheritanceOutput = new ArrayList<>();
+        map.copyInheritanceNodesTo(inheritanceOutput, options);
+        assertEquals(expectedInheritance, inheritanceOutput);
+
+        // the index is updated when a context is cleared
+        map.clear(ImmutableContextSetImpl.of("server", "s3"));
+        output.clear();
+        map.copyTo(output, options);
+        assertEquals(expected.stream().filter(n -> !n.getContexts().equals(ImmutableContextSetImpl.of("server", "s3"))).collect(Collectors.toList()), output);
+    }
+
 }
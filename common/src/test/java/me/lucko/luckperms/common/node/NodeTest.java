@@ -26,13 +26,17 @@
 package me.lucko.luckperms.common.node;
 
 import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
+import me.lucko.luckperms.common.model.InheritanceOrigin;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
 import me.lucko.luckperms.common.node.types.Meta;
 import me.lucko.luckperms.common.node.types.Permission;
 import me.lucko.luckperms.common.node.types.Prefix;
 import me.lucko.luckperms.common.node.types.Suffix;
 import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.metadata.NodeMetadataKey;
+import net.luckperms.api.node.metadata.types.InheritanceOriginMetadata;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
@@ -43,7 +47,9 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -149,4 +155,43 @@ public class NodeTest {
         assertThrows(IllegalStateException.class, () -> node.metadata(key4));
     }
 
+    @Test
+    public void testInterning() {
+        InheritanceOrigin origin = new InheritanceOrigin(new PermissionHolderIdentifier("group", "admin"), DataType.NORMAL);
+
+        AbstractNode<?, ?> a = (AbstractNode<?, ?>) Permission.builder()
+                .permission(new String("interning.test"))
+                .withContext("server", "survival")
+                .withMetadata(InheritanceOriginMetadata.KEY, origin)
+                .build();
+        AbstractNode<?, ?> b = (AbstractNode<?, ?>) Permission.builder()
+                .permission(new String("interning.test"))
+                .withContext("server", "survival")
+                .withMetadata(InheritanceOriginMetadata.KEY, origin)
+                .build();
+
+        assertNotSame(a, b);
+        assertSame(a.getKey(), b.getKey());
+        assertSame(a.getContexts(), b.getContexts());
+        assertSame(a.metadata, b.metadata);
+        assertSame(a.resolveShorthand(), b.resolveShorthand());
+    }
+
+    @Test
+    public void testInterningSkipsPerNodeMetadata() {
+        NodeMetadataKey<Long> rowId = NodeMetadataKey.of("rowid", Long.class);
+
+        AbstractNode<?, ?> a = (AbstractNode<?, ?>) Permission.builder()
+                .permission("interning.test")
+                .withMetadata(rowId, 1L)
+                .build();
+        AbstractNode<?, ?> b = (AbstractNode<?, ?>) Permission.builder()
+                .permission("interning.test")
+                .withMetadata(rowId, 1L)
+                .build();
+
+        assertSame(a.getKey(), b.getKey());
+        assertNotSame(a.metadata, b.metadata);
+    }
+
 }
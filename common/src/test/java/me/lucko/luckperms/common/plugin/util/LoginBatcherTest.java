@@ -0,0 +1,223 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.plugin.util;
+
+import com.google.common.collect.ImmutableMap;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.config.LuckPermsConfiguration;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
+import me.lucko.luckperms.common.plugin.logging.PluginLogger;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
+import net.luckperms.api.model.PlayerSaveResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LoginBatcherTest {
+
+    private static final UUID USER_A = UUID.fromString("c1d60c50-707f-4d88-b2b2-5e6f1d1a3a1e");
+    private static final UUID USER_B = UUID.fromString("1c5dd4a5-4d6e-4d40-8a0d-1a3b8a4c4b51");
+
+    private final LuckPermsPlugin plugin = mock(LuckPermsPlugin.class);
+    private final Storage storage = mock(Storage.class);
+    private final List<Runnable> scheduled = Collections.synchronizedList(new ArrayList<>());
+    private final Map<UUID, CompletableFuture<UserLoginResult>> individual = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private LoginBatcher createBatcher(int window, int size, int maxConcurrentLoads) {
+        LuckPermsConfiguration configuration = mock(LuckPermsConfiguration.class);
+        when(configuration.get(ConfigKeys.LOGIN_BATCH_WINDOW)).thenReturn(window);
+        when(configuration.get(ConfigKeys.LOGIN_BATCH_SIZE)).thenReturn(size);
+        when(configuration.get(ConfigKeys.LOGIN_MAX_CONCURRENT_LOADS)).thenReturn(maxConcurrentLoads);
+
+        SchedulerAdapter scheduler = mock(SchedulerAdapter.class);
+        when(scheduler.asyncLater(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS))).then(invocation -> {
+            this.scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+        LuckPermsBootstrap bootstrap = mock(LuckPermsBootstrap.class);
+        when(bootstrap.getScheduler()).thenReturn(scheduler);
+
+        when(this.plugin.getConfiguration()).thenReturn(configuration);
+        when(this.plugin.getBootstrap()).thenReturn(bootstrap);
+        when(this.plugin.getStorage()).thenReturn(this.storage);
+        when(this.plugin.getLogger()).thenReturn(mock(PluginLogger.class));
+
+        doAnswer(invocation -> {
+            Map<UUID, String> usernames = invocation.getArgument(0);
+            ImmutableMap.Builder<UUID, UserLoginResult> results = ImmutableMap.builder();
+            for (UUID uniqueId : usernames.keySet()) {
+                results.put(uniqueId, result());
+            }
+            return CompletableFuture.completedFuture(results.build());
+        }).when(this.storage).loginUsers(anyMap());
+        doAnswer(invocation -> this.individual.computeIfAbsent(invocation.getArgument(0), x -> new CompletableFuture<>()))
+                .when(this.storage).loginUser(any(UUID.class), any(String.class));
+
+        return new LoginBatcher(this.plugin);
+    }
+
+    private static UserLoginResult result() {
+        return UserLoginResult.of(mock(PlayerSaveResult.class), mock(User.class));
+    }
+
+    private CompletableFuture<UserLoginResult> login(LoginBatcher batcher, UUID uniqueId, String username) {
+        return CompletableFuture.supplyAsync(() -> batcher.login(uniqueId, username), this.executor);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition was not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testWindowFlush() throws Exception {
+        LoginBatcher batcher = createBatcher(100, 10, 0);
+
+        CompletableFuture<UserLoginResult> a = login(batcher, USER_A, "a");
+        awaitCondition(() -> this.scheduled.size() == 1);
+        CompletableFuture<UserLoginResult> b = login(batcher, USER_B, "b");
+
+        // the second login joins the batch, without scheduling another flush
+        Thread.sleep(100);
+        assertEquals(1, this.scheduled.size());
+        verify(this.storage, never()).loginUsers(anyMap());
+
+        this.scheduled.get(0).run();
+
+        assertNotNull(a.get(10, TimeUnit.SECONDS).getUser());
+        assertNotNull(b.get(10, TimeUnit.SECONDS).getUser());
+        verify(this.storage, times(1)).loginUsers(ImmutableMap.of(USER_A, "a", USER_B, "b"));
+        verify(this.storage, never()).loginUser(any(UUID.class), any(String.class));
+    }
+
+    @Test
+    public void testSizeFlush() throws Exception {
+        LoginBatcher batcher = createBatcher(60000, 2, 0);
+
+        CompletableFuture<UserLoginResult> a = login(batcher, USER_A, "a");
+        awaitCondition(() -> this.scheduled.size() == 1);
+        CompletableFuture<UserLoginResult> b = login(batcher, USER_B, "b");
+
+        // the batch is processed once it is full, without waiting for the window to end
+        assertNotNull(a.get(10, TimeUnit.SECONDS).getUser());
+        assertNotNull(b.get(10, TimeUnit.SECONDS).getUser());
+        verify(this.storage, times(1)).loginUsers(ImmutableMap.of(USER_A, "a", USER_B, "b"));
+
+        // nothing is left for the scheduled flush
+        this.scheduled.get(0).run();
+        verify(this.storage, times(1)).loginUsers(anyMap());
+    }
+
+    @Test
+    public void testMissingUser() throws Exception {
+        LoginBatcher batcher = createBatcher(60000, 2, 0);
+        doReturn(CompletableFuture.completedFuture(ImmutableMap.of(USER_A, result()))).when(this.storage).loginUsers(anyMap());
+
+        CompletableFuture<UserLoginResult> a = login(batcher, USER_A, "a");
+        awaitCondition(() -> this.scheduled.size() == 1);
+        CompletableFuture<UserLoginResult> b = login(batcher, USER_B, "b");
+
+        // a user missing from the batch result is loaded individually
+        assertNotNull(a.get(10, TimeUnit.SECONDS).getUser());
+        awaitCondition(() -> this.individual.containsKey(USER_B));
+        UserLoginResult result = result();
+        this.individual.get(USER_B).complete(result);
+        assertSame(result, b.get(10, TimeUnit.SECONDS));
+
+        // ... and an empty individual result is reported as an error, rather than as a null user
+        batcher = createBatcher(0, 1, 0);
+        this.individual.put(USER_A, CompletableFuture.completedFuture(UserLoginResult.of(mock(PlayerSaveResult.class), null)));
+        CompletableFuture<UserLoginResult> c = login(batcher, USER_A, "a");
+        awaitCondition(c::isDone);
+        assertTrue(c.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        LoginBatcher batcher = createBatcher(0, 1, 1);
+
+        CompletableFuture<UserLoginResult> a = login(batcher, USER_A, "a");
+        awaitCondition(() -> this.individual.containsKey(USER_A));
+        CompletableFuture<UserLoginResult> b = login(batcher, USER_B, "b");
+
+        // the second login waits for the first to finish before it reaches storage
+        Thread.sleep(100);
+        assertFalse(this.individual.containsKey(USER_B));
+        verify(this.storage, times(1)).loginUser(any(UUID.class), any(String.class));
+
+        this.individual.get(USER_A).complete(result());
+        assertNotNull(a.get(10, TimeUnit.SECONDS).getUser());
+
+        awaitCondition(() -> this.individual.containsKey(USER_B));
+        this.individual.get(USER_B).complete(result());
+        assertNotNull(b.get(10, TimeUnit.SECONDS).getUser());
+        verify(this.storage, times(2)).loginUser(any(UUID.class), any(String.class));
+    }
+
+}
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.query;
 
+import me.lucko.luckperms.common.context.ImmutableContextSetImpl;
 import net.luckperms.api.query.Flag;
 import net.luckperms.api.query.QueryMode;
 import net.luckperms.api.query.QueryOptions;
@@ -32,6 +33,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -59,4 +61,18 @@ public class QueryOptionsTest {
         }
     }
 
+    @Test
+    public void testIntern() {
+        QueryOptions a = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(ImmutableContextSetImpl.of("world", "intern_world")).build();
+        QueryOptions b = new QueryOptionsBuilderImpl(QueryMode.CONTEXTUAL).context(ImmutableContextSetImpl.of("world", "intern_world")).build();
+        assertNotSame(a, b);
+        assertEquals(a, b);
+
+        QueryOptions interned = QueryOptionsImpl.intern(a);
+        assertSame(a, interned);
+        assertSame(interned, QueryOptionsImpl.intern(b));
+
+        assertSame(QueryOptionsImpl.DEFAULT_CONTEXTUAL, QueryOptionsImpl.intern(QueryOptionsImpl.DEFAULT_CONTEXTUAL));
+    }
+
 }
@@ -30,10 +30,18 @@ import com.google.common.collect.ImmutableSet;
 import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.actionlog.filter.ActionFilters;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateBuilder;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateField;
+import me.lucko.luckperms.common.bulkupdate.action.DeleteAction;
+import me.lucko.luckperms.common.bulkupdate.action.UpdateAction;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.event.EventDispatcher;
+import me.lucko.luckperms.common.filter.Comparison;
+import me.lucko.luckperms.common.filter.FilterList;
 import me.lucko.luckperms.common.filter.PageParameters;
+import me.lucko.luckperms.common.model.ExpiryIndex;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.PrimaryGroupHolder;
 import me.lucko.luckperms.common.model.User;
@@ -41,12 +49,18 @@ import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.model.manager.group.StandardGroupManager;
 import me.lucko.luckperms.common.model.manager.user.StandardUserManager;
 import me.lucko.luckperms.common.model.manager.user.UserManager;
+import me.lucko.luckperms.common.node.matcher.StandardNodeMatchers;
 import me.lucko.luckperms.common.node.types.Inheritance;
+import me.lucko.luckperms.common.node.types.Meta;
 import me.lucko.luckperms.common.node.types.Permission;
+import me.lucko.luckperms.common.node.types.Prefix;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.bootstrap.LuckPermsBootstrap;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.StoredUser;
+import me.lucko.luckperms.common.storage.misc.UserLoginResult;
 import net.luckperms.api.actionlog.Action;
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.model.PlayerSaveResult.Outcome;
@@ -62,6 +76,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -98,9 +113,12 @@ public abstract class AbstractStorageTest {
         lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
         lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
         lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
+        lenient().when(this.plugin.getExpiryIndex()).thenReturn(new ExpiryIndex());
         lenient().when(this.bootstrap.getScheduler()).thenReturn(mock(SchedulerAdapter.class));
         lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION)).thenReturn(PrimaryGroupHolder.AllParentsByWeight::new);
         lenient().when(this.configuration.get(ConfigKeys.PRIMARY_GROUP_CALCULATION_METHOD)).thenReturn("parents-by-weight");
+        lenient().when(this.configuration.get(ConfigKeys.DEBUG_LOGINS)).thenReturn(false);
+        lenient().when(this.configuration.get(ConfigKeys.LOG_APPROXIMATE_COUNT)).thenReturn(false);
         lenient().when(this.bootstrap.getResourceStream(anyString()))
                 .then(answer((String path) -> AbstractStorageTest.class.getClassLoader().getResourceAsStream(path)));
         lenient().when(this.plugin.getEventDispatcher()).thenReturn(mock(EventDispatcher.class));
@@ -231,6 +249,65 @@ public abstract class AbstractStorageTest {
         assertEquals(300, page.getContent().size());
     }
 
+    @Test
+    public void testActionLogSequentialPages() throws Exception {
+        Instant baseTime = Instant.now();
+
+        for (int i = 0; i < 40; i++) {
+            this.storage.logAction(LoggedAction.build()
+                    .source(UUID.randomUUID())
+                    .sourceName("Test Source")
+                    .targetType(Action.Target.Type.GROUP)
+                    .targetName(i % 2 == 0 ? "test_group" : "dummy")
+                    .description("sequential test " + i)
+                    .timestamp(baseTime.plusSeconds(i / 4)) // several entries share a timestamp
+                    .build());
+        }
+
+        for (FilterList<Action> filter : ImmutableList.of(ActionFilters.all(), ActionFilters.group("test_group"), ActionFilters.search("sequential"))) {
+            List<LoggedAction> all = this.storage.getLogPage(filter, null).getContent();
+
+            // fetch the pages in order, so that later pages are able to seek past the previous one
+            List<LoggedAction> paged = new ArrayList<>();
+            for (int pageNumber = 1; pageNumber <= 7; pageNumber++) {
+                LogPage page = this.storage.getLogPage(filter, new PageParameters(7, pageNumber));
+                assertEquals(all.size(), page.getTotalEntries());
+                paged.addAll(page.getContent());
+            }
+
+            assertEquals(all, paged);
+        }
+    }
+
+    @Test
+    public void testActionLogPagesAfterNewAction() throws Exception {
+        Instant baseTime = Instant.now();
+        Function<Integer, LoggedAction> action = i -> LoggedAction.build()
+                .source(UUID.randomUUID())
+                .sourceName("Test Source")
+                .targetType(Action.Target.Type.GROUP)
+                .targetName("test_group")
+                .description("paging test " + i)
+                .timestamp(baseTime.plusSeconds(i))
+                .build();
+
+        for (int i = 0; i < 20; i++) {
+            this.storage.logAction(action.apply(i));
+        }
+
+        FilterList<Action> filter = ActionFilters.all();
+        LogPage first = this.storage.getLogPage(filter, new PageParameters(5, 1));
+        assertEquals(this.storage.getLogPage(filter, null).getContent().subList(0, 5), first.getContent());
+
+        // a new entry moves every entry along by one, so the end of the first page can't be used for the second
+        this.storage.logAction(action.apply(100));
+
+        List<LoggedAction> all = this.storage.getLogPage(filter, null).getContent();
+        LogPage second = this.storage.getLogPage(filter, new PageParameters(5, 2));
+        assertEquals(all.subList(5, 10), second.getContent());
+        assertEquals(21, second.getTotalEntries());
+    }
+
     @Test
     public void testSavePlayerData() throws Exception {
         UUID uniqueId = UUID.randomUUID();
@@ -402,6 +479,43 @@ public abstract class AbstractStorageTest {
         assertEquals(editedNodes, user.normalData().asSet());
     }
 
+    @Test
+    public void testLoginUser() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+
+        UUID uniqueId = UUID.randomUUID();
+        PermissionNode examplePermission = Permission.builder()
+                .permission("test.1")
+                .withContext("server", "test")
+                .build();
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+
+        // first login
+        UserLoginResult r1 = this.storage.loginUser(uniqueId, "Player1");
+        assertEquals(ImmutableSet.of(Outcome.CLEAN_INSERT), r1.getSaveResult().getOutcomes());
+        assertEquals(ImmutableSet.of(defaultGroupNode), r1.getUser().normalData().asSet());
+
+        r1.getUser().setNode(DataType.NORMAL, examplePermission, true);
+        this.storage.saveUser(r1.getUser());
+        userManager.retainAll(List.of());
+
+        // login again with a new username, the saved data should be loaded
+        UserLoginResult r2 = this.storage.loginUser(uniqueId, "Player2");
+        assertEquals(ImmutableSet.of(Outcome.USERNAME_UPDATED), r2.getSaveResult().getOutcomes());
+        assertTrue("Player1".equalsIgnoreCase(r2.getSaveResult().getPreviousUsername()));
+        assertEquals(ImmutableSet.of(defaultGroupNode, examplePermission), r2.getUser().normalData().asSet());
+
+        // another uuid logs in with the same username
+        UUID newUniqueId = UUID.randomUUID();
+        UserLoginResult r3 = this.storage.loginUser(newUniqueId, "Player2");
+        assertEquals(ImmutableSet.of(Outcome.CLEAN_INSERT, Outcome.OTHER_UNIQUE_IDS_PRESENT_FOR_USERNAME), r3.getSaveResult().getOutcomes());
+        assertEquals(ImmutableSet.of(uniqueId), r3.getSaveResult().getOtherUniqueIds());
+        assertEquals(newUniqueId, this.storage.getPlayerUniqueId("Player2"));
+    }
+
     @Test
     public void testBulkLoadUsers() throws Exception {
         StandardUserManager userManager = new StandardUserManager(this.plugin);
@@ -440,4 +554,238 @@ public abstract class AbstractStorageTest {
         assertEquals(2, user.normalData().asList().size());
     }
 
+    @Test
+    public void testSearchNodes() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+        StandardGroupManager groupManager = new StandardGroupManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getGroupManager()).thenReturn((GroupManager) groupManager);
+
+        Node node1 = Permission.builder().permission("search.test.1").build();
+        Node node2 = Permission.builder().permission("search.test.2").withContext("server", "test").build();
+        Node node3 = Permission.builder().permission("other.test").build();
+
+        UUID uniqueId = UUID.randomUUID();
+        this.storage.savePlayerData(uniqueId, "Player1");
+        User user = this.storage.loadUser(uniqueId, "Player1");
+        user.setNode(DataType.NORMAL, node1, true);
+        user.setNode(DataType.NORMAL, node3, true);
+        this.storage.saveUser(user);
+
+        Group group = this.storage.createAndLoadGroup("test");
+        group.normalData().add(node2);
+        this.storage.saveGroup(group);
+
+        assertEquals(
+                ImmutableList.of(NodeEntry.of(uniqueId, node1)),
+                this.storage.searchUserNodes(StandardNodeMatchers.key("search.test.1"))
+        );
+        assertEquals(
+                ImmutableList.of(NodeEntry.of(uniqueId, node1)),
+                this.storage.searchUserNodes(StandardNodeMatchers.keyStartsWith("search."))
+        );
+        assertEquals(
+                ImmutableList.of(NodeEntry.of("test", node2)),
+                this.storage.searchGroupNodes(StandardNodeMatchers.keyStartsWith("search."))
+        );
+        assertEquals(ImmutableList.of(), this.storage.searchGroupNodes(StandardNodeMatchers.key("other.test")));
+
+        // the results should reflect subsequent changes
+        user.unsetNode(DataType.NORMAL, node1);
+        this.storage.saveUser(user);
+        assertEquals(ImmutableList.of(), this.storage.searchUserNodes(StandardNodeMatchers.keyStartsWith("search.")));
+        assertEquals(
+                ImmutableList.of(NodeEntry.of(uniqueId, node3)),
+                this.storage.searchUserNodes(StandardNodeMatchers.key("other.test"))
+        );
+    }
+
+    @Test
+    public void testApplyBulkUpdate() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+        StandardGroupManager groupManager = new StandardGroupManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getGroupManager()).thenReturn((GroupManager) groupManager);
+
+        Node node1 = Permission.builder().permission("bulk.test.1").build();
+        Node node2 = Permission.builder().permission("bulk.test.2").withContext("server", "test").build();
+        Node node3 = Permission.builder().permission("other.test").withContext("world", "test").build();
+
+        UUID uniqueId = UUID.randomUUID();
+        this.storage.savePlayerData(uniqueId, "Player1");
+        User user = this.storage.loadUser(uniqueId, "Player1");
+        user.setNode(DataType.NORMAL, node1, true);
+        user.setNode(DataType.NORMAL, node2, true);
+        user.setNode(DataType.NORMAL, node3, true);
+        this.storage.saveUser(user);
+
+        Group group = this.storage.createAndLoadGroup("test");
+        group.normalData().add(node1);
+        this.storage.saveGroup(group);
+
+        BulkUpdate rename = BulkUpdateBuilder.create()
+                .action(UpdateAction.of(BulkUpdateField.PERMISSION, "bulk.renamed"))
+                .filter(BulkUpdateField.PERMISSION, Comparison.EQUAL, "bulk.test.1")
+                .trackStatistics(true)
+                .build();
+        this.storage.applyBulkUpdate(rename);
+
+        assertEquals(2, rename.getStatistics().getAffectedNodes());
+        assertEquals(1, rename.getStatistics().getAffectedUsers());
+        assertEquals(1, rename.getStatistics().getAffectedGroups());
+
+        BulkUpdate delete = BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "bulk.%")
+                .filter(BulkUpdateField.SERVER, Comparison.NOT_EQUAL, "global")
+                .build();
+        this.storage.applyBulkUpdate(delete);
+
+        Node renamed = Permission.builder().permission("bulk.renamed").build();
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+
+        User loadedUser = this.storage.loadUser(uniqueId, "Player1");
+        assertEquals(ImmutableSet.of(defaultGroupNode, renamed, node3), loadedUser.normalData().asSet());
+
+        groupManager.unload("test");
+        Group loadedGroup = this.storage.loadGroup("test").orElse(null);
+        assertNotNull(loadedGroup);
+        assertEquals(ImmutableSet.of(renamed), loadedGroup.normalData().asSet());
+    }
+
+    @Test
+    public void testApplyBulkUpdateTransformedNodes() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+        StandardGroupManager groupManager = new StandardGroupManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+        //noinspection unchecked,rawtypes
+        lenient().when(this.plugin.getGroupManager()).thenReturn((GroupManager) groupManager);
+
+        // inheritance, prefix and meta nodes aren't stored under their full key by every storage type
+        Node inheritance = Inheritance.builder("admin").build();
+        Node prefix = Prefix.builder("&c[Admin]", 100).build();
+        Node meta = Meta.builder("foo", "bar").build();
+        Node permission = Permission.builder().permission("test.permission").build();
+
+        UUID uniqueId = UUID.randomUUID();
+        this.storage.savePlayerData(uniqueId, "Player1");
+        User user = this.storage.loadUser(uniqueId, "Player1");
+        user.setNode(DataType.NORMAL, inheritance, true);
+        user.setNode(DataType.NORMAL, prefix, true);
+        user.setNode(DataType.NORMAL, meta, true);
+        user.setNode(DataType.NORMAL, permission, true);
+        this.storage.saveUser(user);
+
+        Group group = this.storage.createAndLoadGroup("test");
+        group.normalData().add(inheritance);
+        group.normalData().add(prefix);
+        this.storage.saveGroup(group);
+
+        this.storage.applyBulkUpdate(BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(BulkUpdateField.PERMISSION, Comparison.EQUAL, "group.admin")
+                .build());
+        this.storage.applyBulkUpdate(BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "prefix.%")
+                .build());
+
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+
+        User loadedUser = this.storage.loadUser(uniqueId, "Player1");
+        assertEquals(ImmutableSet.of(defaultGroupNode, meta, permission), loadedUser.normalData().asSet());
+
+        groupManager.unload("test");
+        Group loadedGroup = this.storage.loadGroup("test").orElse(null);
+        assertNotNull(loadedGroup);
+        assertEquals(ImmutableSet.of(), loadedGroup.normalData().asSet());
+    }
+
+    @Test
+    public void testIterateUsers() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+
+        PermissionNode examplePermission = Permission.builder()
+                .permission("test.1")
+                .withContext("server", "test")
+                .build();
+
+        Map<UUID, String> users = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            UUID uuid = UUID.randomUUID();
+            String username = "User" + i;
+            users.put(uuid, username);
+
+            this.storage.savePlayerData(uuid, username);
+
+            User user = this.storage.loadUser(uuid, username);
+            user.setNode(DataType.NORMAL, examplePermission, true);
+            this.storage.saveUser(user);
+        }
+
+        userManager.retainAll(List.of());
+
+        Map<UUID, StoredUser> iterated = new HashMap<>();
+        this.storage.iterateUsers(user -> assertNull(iterated.put(user.getUniqueId(), user)));
+
+        assertTrue(iterated.keySet().containsAll(users.keySet()));
+        for (Map.Entry<UUID, String> entry : users.entrySet()) {
+            StoredUser user = iterated.get(entry.getKey());
+            assertTrue(entry.getValue().equalsIgnoreCase(user.getUsername()));
+            assertTrue(user.getNodes().contains(examplePermission));
+        }
+    }
+
+    @Test
+    public void testSaveUsers() throws Exception {
+        StandardUserManager userManager = new StandardUserManager(this.plugin);
+
+        //noinspection unchecked,rawtypes
+        when(this.plugin.getUserManager()).thenReturn((UserManager) userManager);
+
+        PermissionNode examplePermission = Permission.builder()
+                .permission("test.1")
+                .withContext("server", "test")
+                .build();
+        InheritanceNode defaultGroupNode = Inheritance.builder(GroupManager.DEFAULT_GROUP_NAME).build();
+
+        List<StoredUser> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(StoredUser.of(UUID.randomUUID(), "user" + i, null, ImmutableSet.of(examplePermission)));
+        }
+        this.storage.saveUsers(users);
+
+        Map<UUID, User> loaded = this.storage.loadUsers(users.stream().map(StoredUser::getUniqueId).collect(Collectors.toSet()));
+        for (StoredUser user : users) {
+            assertEquals(ImmutableSet.of(defaultGroupNode, examplePermission), loaded.get(user.getUniqueId()).normalData().asSet());
+        }
+        userManager.retainAll(List.of());
+
+        // saving a user without any nodes removes their data
+        UUID removed = users.get(0).getUniqueId();
+        this.storage.saveUsers(ImmutableList.of(StoredUser.of(removed, "user0", null, ImmutableSet.of())));
+
+        User user = this.storage.loadUser(removed, null);
+        assertEquals(ImmutableSet.of(defaultGroupNode), user.normalData().asSet());
+        userManager.retainAll(List.of());
+
+        // saving a user without a username keeps the stored name
+        UUID unnamed = users.get(1).getUniqueId();
+        this.storage.saveUsers(ImmutableList.of(StoredUser.of(unnamed, null, null, ImmutableSet.of(examplePermission))));
+
+        user = this.storage.loadUser(unnamed, null);
+        assertTrue(user.getUsername().map("user1"::equalsIgnoreCase).orElse(false));
+    }
+
 }
@@ -0,0 +1,157 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolderIdentifier;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HolderSaveBufferTest {
+
+    private static final PermissionHolderIdentifier GROUP_A = new PermissionHolderIdentifier(HolderType.GROUP, "a");
+    private static final PermissionHolderIdentifier GROUP_B = new PermissionHolderIdentifier(HolderType.GROUP, "b");
+
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    private HolderSaveBuffer createBuffer() {
+        SchedulerAdapter scheduler = mock(SchedulerAdapter.class);
+        when(scheduler.asyncLater(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS))).then(invocation -> {
+            this.scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+        return new HolderSaveBuffer(scheduler, 100);
+    }
+
+    @Test
+    public void testCoalesce() {
+        HolderSaveBuffer buffer = createBuffer();
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+
+        CompletableFuture<Void> f1 = buffer.save(GROUP_A, first::incrementAndGet);
+        CompletableFuture<Void> f2 = buffer.save(GROUP_A, second::incrementAndGet);
+        CompletableFuture<Void> f3 = buffer.save(GROUP_B, second::incrementAndGet);
+
+        assertSame(f1, f2);
+        assertEquals(2, this.scheduled.size());
+        assertFalse(f1.isDone());
+
+        this.scheduled.forEach(Runnable::run);
+
+        assertTrue(f1.isDone());
+        assertTrue(f3.isDone());
+        assertEquals(0, first.get());
+        assertEquals(2, second.get());
+
+        // a later save is written separately
+        CompletableFuture<Void> f4 = buffer.save(GROUP_A, first::incrementAndGet);
+        assertFalse(f4.isDone());
+        assertEquals(3, this.scheduled.size());
+    }
+
+    @Test
+    public void testFlush() {
+        HolderSaveBuffer buffer = createBuffer();
+        AtomicInteger count = new AtomicInteger();
+
+        CompletableFuture<Void> f1 = buffer.save(GROUP_A, count::incrementAndGet);
+        CompletableFuture<Void> f2 = buffer.save(GROUP_B, count::incrementAndGet);
+
+        buffer.flush(GROUP_A);
+        assertTrue(f1.isDone());
+        assertFalse(f2.isDone());
+        assertEquals(1, count.get());
+
+        buffer.flushAll();
+        assertTrue(f2.isDone());
+        assertEquals(2, count.get());
+
+        // the scheduled tasks have nothing left to write
+        this.scheduled.forEach(Runnable::run);
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void testFlushWaitsForInFlight() throws Exception {
+        HolderSaveBuffer buffer = createBuffer();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> future = buffer.save(GROUP_A, () -> {
+            started.countDown();
+            release.await();
+        });
+        Thread writer = new Thread(this.scheduled.get(0));
+        writer.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // the save is no longer pending, but is still being written
+        CompletableFuture<Void> flush = buffer.flush(GROUP_A);
+        CompletableFuture<Void> flushAll = buffer.flushAll();
+        assertFalse(flush.isDone());
+        assertFalse(flushAll.isDone());
+
+        release.countDown();
+        flush.get(10, TimeUnit.SECONDS);
+        flushAll.get(10, TimeUnit.SECONDS);
+        assertTrue(future.isDone());
+        writer.join();
+
+        // nothing is left in flight once the write has completed
+        assertTrue(buffer.flush(GROUP_A).isDone());
+    }
+
+    @Test
+    public void testFailure() {
+        HolderSaveBuffer buffer = createBuffer();
+
+        CompletableFuture<Void> future = buffer.save(GROUP_A, () -> {
+            throw new Exception("test");
+        });
+        this.scheduled.forEach(Runnable::run);
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+}
@@ -28,7 +28,9 @@ package me.lucko.luckperms.common.storage;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.rest.RestStorage;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.output.Slf4jLogConsumer;
@@ -56,6 +58,20 @@ public class RestStorageTest extends AbstractStorageTest {
         return new RestStorage(plugin, "http://" + host + ":" + port + "/", null);
     }
 
+    @Override
+    @Test
+    @Disabled("bulk updates are not supported by the REST storage")
+    public void testApplyBulkUpdate() {
+
+    }
+
+    @Override
+    @Test
+    @Disabled("bulk updates are not supported by the REST storage")
+    public void testApplyBulkUpdateTransformedNodes() {
+
+    }
+
     @Override
     protected void cleanupResources() {
         this.container.stop();
@@ -0,0 +1,96 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateBuilder;
+import me.lucko.luckperms.common.bulkupdate.BulkUpdateField;
+import me.lucko.luckperms.common.bulkupdate.action.DeleteAction;
+import me.lucko.luckperms.common.filter.Comparison;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkUpdateTextFilterTest {
+
+    private static BulkUpdateTextFilter create(BulkUpdateField field, Comparison comparison, String value) {
+        BulkUpdate update = BulkUpdateBuilder.create()
+                .action(DeleteAction.create())
+                .filter(field, comparison, value)
+                .build();
+        return BulkUpdateTextFilter.create(update);
+    }
+
+    @Test
+    public void testEqual() {
+        BulkUpdateTextFilter filter = create(BulkUpdateField.PERMISSION, Comparison.EQUAL, "Foo.Bar");
+        assertNotNull(filter);
+
+        assertTrue(filter.mightMatch("permissions:\n- foo.bar\n"));
+        assertTrue(filter.mightMatch("{\"permissions\": [\"FOO.BAR\"]}"));
+        assertFalse(filter.mightMatch("permissions:\n- foo.baz\n"));
+    }
+
+    @Test
+    public void testSimilar() {
+        BulkUpdateTextFilter filter = create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "foo.%.bar_baz");
+        assertNotNull(filter);
+
+        assertTrue(filter.mightMatch("permissions:\n- foo.test.bar-baz\n"));
+        assertFalse(filter.mightMatch("permissions:\n- foo.test.bar\n"));
+        assertFalse(filter.mightMatch("permissions:\n- test.bar-baz\n"));
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.NOT_EQUAL, "foo"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.NOT_SIMILAR, "foo%"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "colou?r"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "%"));
+        assertNull(create(BulkUpdateField.SERVER, Comparison.EQUAL, "foo"));
+    }
+
+    @Test
+    public void testTransformedKeys() {
+        // these keys aren't written to the file in full, e.g. inheritance nodes are stored as just the group name
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.EQUAL, "group.admin"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.EQUAL, "Group.Admin"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "prefix.%"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "suffix.100.%"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "meta.foo.%"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "%.admin"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "gr%"));
+        assertNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "_roup.admin"));
+
+        // a regular permission is still checked
+        assertNotNull(create(BulkUpdateField.PERMISSION, Comparison.EQUAL, "groups.list"));
+        assertNotNull(create(BulkUpdateField.PERMISSION, Comparison.SIMILAR, "essentials.%"));
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.implementation.file;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import me.lucko.luckperms.common.filter.Comparison;
+import me.lucko.luckperms.common.node.matcher.StandardNodeMatchers;
+import me.lucko.luckperms.common.node.types.Permission;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NodeSearchIndexTest {
+
+    private static BasicFileAttributes writeFile(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes());
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    public void testLookup(@TempDir Path directory) throws IOException {
+        NodeSearchIndex index = new NodeSearchIndex();
+        index.update("a", writeFile(directory.resolve("a"), "a"), ImmutableList.of(
+                Permission.builder().permission("foo.bar").build(),
+                Permission.builder().permission("foo.baz").build()
+        ));
+        index.update("b", writeFile(directory.resolve("b"), "b"), ImmutableList.of(
+                Permission.builder().permission("foo.bar").build(),
+                Permission.builder().permission("hello").build()
+        ));
+
+        assertEquals(ImmutableSet.of("a", "b"), index.lookup(StandardNodeMatchers.key("foo.bar").getConstraint()));
+        assertEquals(ImmutableSet.of("a", "b"), index.lookup(StandardNodeMatchers.key("FOO.BAR").getConstraint()));
+        assertEquals(ImmutableSet.of("a"), index.lookup(StandardNodeMatchers.key("foo.baz").getConstraint()));
+        assertEquals(ImmutableSet.of("a", "b"), index.lookup(StandardNodeMatchers.keyStartsWith("foo.").getConstraint()));
+        assertEquals(ImmutableSet.of("a"), index.lookup(StandardNodeMatchers.key("foo.b_z", Comparison.SIMILAR).getConstraint()));
+        assertEquals(ImmutableSet.of("b"), index.lookup(StandardNodeMatchers.key("%ell%", Comparison.SIMILAR).getConstraint()));
+        assertEquals(ImmutableSet.of("a"), index.lookup(StandardNodeMatchers.key("foo.bar", Comparison.NOT_EQUAL).getConstraint()));
+        assertEquals(ImmutableSet.of(), index.lookup(StandardNodeMatchers.key("nothing").getConstraint()));
+
+        index.remove("a");
+        assertEquals(ImmutableSet.of("b"), index.lookup(StandardNodeMatchers.keyStartsWith("foo.").getConstraint()));
+        assertEquals(ImmutableSet.of(), index.lookup(StandardNodeMatchers.key("foo.baz").getConstraint()));
+
+        index.retainAll(ImmutableSet.of());
+        assertEquals(ImmutableSet.of(), index.lookup(StandardNodeMatchers.key("foo.bar").getConstraint()));
+    }
+
+    @Test
+    public void testIsCurrent(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("a");
+        NodeSearchIndex index = new NodeSearchIndex();
+        index.update("a", writeFile(file, "a"), ImmutableList.of(Permission.builder().permission("foo").build()));
+
+        assertTrue(index.isCurrent("a", Files.readAttributes(file, BasicFileAttributes.class)));
+        assertFalse(index.isCurrent("b", Files.readAttributes(file, BasicFileAttributes.class)));
+
+        // modified outside of the index
+        Files.write(file, "changed".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        assertFalse(index.isCurrent("a", Files.readAttributes(file, BasicFileAttributes.class)));
+    }
+
+    @Test
+    public void testSaveAndLoad(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("a");
+        BasicFileAttributes attributes = writeFile(file, "a");
+
+        NodeSearchIndex index = new NodeSearchIndex();
+        index.update("a", attributes, ImmutableList.of(
+                Permission.builder().permission("foo.bar").build(),
+                Permission.builder().permission("foo.baz").build()
+        ));
+        index.save(directory.resolve("index.json"));
+
+        NodeSearchIndex loaded = new NodeSearchIndex();
+        loaded.load(directory.resolve("index.json"));
+        assertTrue(loaded.isCurrent("a", attributes));
+        assertEquals(ImmutableSet.of("a"), loaded.lookup(StandardNodeMatchers.key("foo.baz").getConstraint()));
+    }
+
+}
@@ -32,10 +32,12 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SchemaReaderTest {
@@ -57,12 +59,18 @@ public class SchemaReaderTest {
         assertEquals(ImmutableList.of(
                 "CREATE TABLE `{prefix}user_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `uuid` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`))",
                 "CREATE INDEX ON `{prefix}user_permissions` (`uuid`)",
+                "CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}group_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`))",
                 "CREATE INDEX ON `{prefix}group_permissions` (`name`)",
+                "CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}players` ( `uuid` VARCHAR(36) NOT NULL, `username` VARCHAR(16) NOT NULL, `primary_group` VARCHAR(36) NOT NULL, PRIMARY KEY (`uuid`))",
                 "CREATE INDEX ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))",
                 "CREATE TABLE `{prefix}actions` ( `id` INT AUTO_INCREMENT NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL, PRIMARY KEY (`id`))",
+                "CREATE INDEX `{prefix}actions_time_id` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_name` ON `{prefix}actions` (`acted_name`, `time`, `id`)",
                 "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))"
         ), readStatements("h2"));
     }
@@ -72,12 +80,18 @@ public class SchemaReaderTest {
         assertEquals(ImmutableList.of(
                 "CREATE TABLE `{prefix}user_permissions` ( `id` INTEGER PRIMARY KEY NOT NULL, `uuid` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL)",
                 "CREATE INDEX `{prefix}user_permissions_uuid` ON `{prefix}user_permissions` (`uuid`)",
+                "CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}group_permissions` ( `id` INTEGER PRIMARY KEY NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL)",
                 "CREATE INDEX `{prefix}group_permissions_name` ON `{prefix}group_permissions` (`name`)",
+                "CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`)",
                 "CREATE TABLE `{prefix}players` ( `uuid` VARCHAR(36) NOT NULL, `username` VARCHAR(16) NOT NULL, `primary_group` VARCHAR(36) NOT NULL, PRIMARY KEY (`uuid`))",
                 "CREATE INDEX `{prefix}players_username` ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))",
                 "CREATE TABLE `{prefix}actions` ( `id` INTEGER PRIMARY KEY NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL)",
+                "CREATE INDEX `{prefix}actions_time_id` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_name` ON `{prefix}actions` (`acted_name`, `time`, `id`)",
                 "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`))"
         ), readStatements("sqlite"));
     }
@@ -87,12 +101,18 @@ public class SchemaReaderTest {
         ImmutableList<String> expected = ImmutableList.of(
                 "CREATE TABLE `{prefix}user_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `uuid` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE INDEX `{prefix}user_permissions_uuid` ON `{prefix}user_permissions` (`uuid`)",
+                "CREATE INDEX `{prefix}user_permissions_permission` ON `{prefix}user_permissions` (`permission`(191))",
                 "CREATE TABLE `{prefix}group_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE INDEX `{prefix}group_permissions_name` ON `{prefix}group_permissions` (`name`)",
+                "CREATE INDEX `{prefix}group_permissions_permission` ON `{prefix}group_permissions` (`permission`(191))",
                 "CREATE TABLE `{prefix}players` ( `uuid` VARCHAR(36) NOT NULL, `username` VARCHAR(16) NOT NULL, `primary_group` VARCHAR(36) NOT NULL, PRIMARY KEY (`uuid`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE INDEX `{prefix}players_username` ON `{prefix}players` (`username`)",
                 "CREATE TABLE `{prefix}groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4",
                 "CREATE TABLE `{prefix}actions` ( `id` INT AUTO_INCREMENT NOT NULL, `time` BIGINT NOT NULL, `actor_uuid` VARCHAR(36) NOT NULL, `actor_name` VARCHAR(100) NOT NULL, `type` CHAR(1) NOT NULL, `acted_uuid` VARCHAR(36) NOT NULL, `acted_name` VARCHAR(36) NOT NULL, `action` VARCHAR(300) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
+                "CREATE INDEX `{prefix}actions_time_id` ON `{prefix}actions` (`time`, `id`)",
+                "CREATE INDEX `{prefix}actions_actor_uuid` ON `{prefix}actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_uuid` ON `{prefix}actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `{prefix}actions_acted_name` ON `{prefix}actions` (`acted_name`, `time`, `id`)",
                 "CREATE TABLE `{prefix}tracks` ( `name` VARCHAR(36) NOT NULL, `groups` TEXT NOT NULL, PRIMARY KEY (`name`)) DEFAULT CHARSET = utf8mb4"
         );
         assertEquals(expected, readStatements("mysql"));
@@ -104,12 +124,18 @@ public class SchemaReaderTest {
         assertEquals(ImmutableList.of(
                 "CREATE TABLE \"{prefix}user_permissions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"uuid\" VARCHAR(36) NOT NULL, \"permission\" VARCHAR(200) NOT NULL, \"value\" BOOL NOT NULL, \"server\" VARCHAR(36) NOT NULL, \"world\" VARCHAR(64) NOT NULL, \"expiry\" BIGINT NOT NULL, \"contexts\" VARCHAR(200) NOT NULL)",
                 "CREATE INDEX \"{prefix}user_permissions_uuid\" ON \"{prefix}user_permissions\" (\"uuid\")",
+                "CREATE INDEX \"{prefix}user_permissions_permission\" ON \"{prefix}user_permissions\" (\"permission\" varchar_pattern_ops)",
                 "CREATE TABLE \"{prefix}group_permissions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"name\" VARCHAR(36) NOT NULL, \"permission\" VARCHAR(200) NOT NULL, \"value\" BOOL NOT NULL, \"server\" VARCHAR(36) NOT NULL, \"world\" VARCHAR(64) NOT NULL, \"expiry\" BIGINT NOT NULL, \"contexts\" VARCHAR(200) NOT NULL)",
                 "CREATE INDEX \"{prefix}group_permissions_name\" ON \"{prefix}group_permissions\" (\"name\")",
+                "CREATE INDEX \"{prefix}group_permissions_permission\" ON \"{prefix}group_permissions\" (\"permission\" varchar_pattern_ops)",
                 "CREATE TABLE \"{prefix}players\" ( \"uuid\" VARCHAR(36) PRIMARY KEY NOT NULL, \"username\" VARCHAR(16) NOT NULL, \"primary_group\" VARCHAR(36) NOT NULL)",
                 "CREATE INDEX \"{prefix}players_username\" ON \"{prefix}players\" (\"username\")",
                 "CREATE TABLE \"{prefix}groups\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL)",
                 "CREATE TABLE \"{prefix}actions\" ( \"id\" SERIAL PRIMARY KEY NOT NULL, \"time\" BIGINT NOT NULL, \"actor_uuid\" VARCHAR(36) NOT NULL, \"actor_name\" VARCHAR(100) NOT NULL, \"type\" CHAR(1) NOT NULL, \"acted_uuid\" VARCHAR(36) NOT NULL, \"acted_name\" VARCHAR(36) NOT NULL, \"action\" VARCHAR(300) NOT NULL)",
+                "CREATE INDEX \"{prefix}actions_time_id\" ON \"{prefix}actions\" (\"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_actor_uuid\" ON \"{prefix}actions\" (\"actor_uuid\", \"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_acted_uuid\" ON \"{prefix}actions\" (\"acted_uuid\", \"time\", \"id\")",
+                "CREATE INDEX \"{prefix}actions_acted_name\" ON \"{prefix}actions\" (\"acted_name\", \"time\", \"id\")",
                 "CREATE TABLE \"{prefix}tracks\" ( \"name\" VARCHAR(36) PRIMARY KEY NOT NULL, \"groups\" TEXT NOT NULL)"
         ), readStatements("postgresql"));
     }
@@ -165,8 +191,56 @@ public class SchemaReaderTest {
         ));
         assertEquals(ImmutableList.of(
                 "CREATE TABLE `luckperms_group_permissions` ( `id` INT AUTO_INCREMENT NOT NULL, `name` VARCHAR(36) NOT NULL, `permission` VARCHAR(200) NOT NULL, `value` BOOL NOT NULL, `server` VARCHAR(36) NOT NULL, `world` VARCHAR(64) NOT NULL, `expiry` BIGINT NOT NULL, `contexts` VARCHAR(200) NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4",
-                "CREATE INDEX `luckperms_group_permissions_name` ON `luckperms_group_permissions` (`name`)"
+                "CREATE INDEX `luckperms_group_permissions_name` ON `luckperms_group_permissions` (`name`)",
+                "CREATE INDEX `luckperms_group_permissions_permission` ON `luckperms_group_permissions` (`permission`(191))"
         ), filtered);
     }
 
+    @Test
+    public void testFilterIndexStatements() throws IOException {
+        StatementProcessor processor = s -> s.replace("{prefix}", "luckperms_");
+        List<String> statements = readStatements("mysql").stream().map(processor::process).collect(Collectors.toList());
+        List<String> allTables = ImmutableList.of(
+                "luckperms_user_permissions",
+                "luckperms_group_permissions",
+                "luckperms_players",
+                "luckperms_groups",
+                "luckperms_actions",
+                "luckperms_tracks"
+        );
+        List<String> allIndexes = statements.stream()
+                .map(SchemaReader::indexFromStatement)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // no tables exist, nothing to migrate
+        assertEquals(ImmutableList.of(), SchemaReader.filterIndexStatements(statements, ImmutableList.of(), ImmutableList.of()));
+
+        // all tables & indexes exist, nothing to migrate
+        assertEquals(ImmutableList.of(), SchemaReader.filterIndexStatements(statements, allTables, allIndexes));
+
+        // tables exist but were created before the permission & actions indexes were added
+        List<String> filtered = SchemaReader.filterIndexStatements(statements, allTables, ImmutableList.of(
+                "luckperms_user_permissions_uuid",
+                "luckperms_group_permissions_name",
+                "luckperms_players_username"
+        ));
+        assertEquals(ImmutableList.of(
+                "CREATE INDEX `luckperms_user_permissions_permission` ON `luckperms_user_permissions` (`permission`(191))",
+                "CREATE INDEX `luckperms_group_permissions_permission` ON `luckperms_group_permissions` (`permission`(191))",
+                "CREATE INDEX `luckperms_actions_time_id` ON `luckperms_actions` (`time`, `id`)",
+                "CREATE INDEX `luckperms_actions_actor_uuid` ON `luckperms_actions` (`actor_uuid`, `time`, `id`)",
+                "CREATE INDEX `luckperms_actions_acted_uuid` ON `luckperms_actions` (`acted_uuid`, `time`, `id`)",
+                "CREATE INDEX `luckperms_actions_acted_name` ON `luckperms_actions` (`acted_name`, `time`, `id`)"
+        ), filtered);
+    }
+
+    @Test
+    public void testIndexFromStatement() {
+        assertEquals("luckperms_actions_time_id", SchemaReader.indexFromStatement("CREATE INDEX `luckperms_actions_time_id` ON `luckperms_actions` (`time`, `id`)"));
+        assertEquals("luckperms_actions_time_id", SchemaReader.indexFromStatement("CREATE INDEX \"luckperms_actions_time_id\" ON \"luckperms_actions\" (\"time\", \"id\")"));
+        assertNull(SchemaReader.indexFromStatement("CREATE INDEX ON `luckperms_players` (`username`)"));
+        assertNull(SchemaReader.indexFromStatement("CREATE TABLE `luckperms_groups` ( `name` VARCHAR(36) NOT NULL, PRIMARY KEY (`name`))"));
+    }
+
 }
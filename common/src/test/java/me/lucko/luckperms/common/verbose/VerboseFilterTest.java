@@ -70,7 +70,7 @@ public class VerboseFilterTest {
                 VerboseCheckTarget.of(VerboseCheckTarget.USER_TYPE, "Player1"),
                 QueryOptionsImpl.DEFAULT_CONTEXTUAL,
                 System.currentTimeMillis(),
-                new Throwable(),
+                new Throwable()::getStackTrace,
                 "test",
                 "luckperms.user.parent.info",
                 TristateResult.forMonitoredResult(Tristate.TRUE)
@@ -81,7 +81,7 @@ public class VerboseFilterTest {
                 VerboseCheckTarget.of(VerboseCheckTarget.USER_TYPE, "aaaaaaa"),
                 QueryOptionsImpl.DEFAULT_CONTEXTUAL,
                 System.currentTimeMillis(),
-                new Throwable(),
+                new Throwable()::getStackTrace,
                 "test",
                 "aaaaaaaaa",
                 TristateResult.forMonitoredResult(Tristate.FALSE)
@@ -113,7 +113,7 @@ public class VerboseFilterTest {
                 VerboseCheckTarget.of(VerboseCheckTarget.USER_TYPE, "Player1"),
                 QueryOptionsImpl.DEFAULT_CONTEXTUAL,
                 System.currentTimeMillis(),
-                new Throwable(),
+                new Throwable()::getStackTrace,
                 "test",
                 "nametags.nametag",
                 StringResult.of("ADMIN")
@@ -124,7 +124,7 @@ public class VerboseFilterTest {
                 VerboseCheckTarget.of(VerboseCheckTarget.USER_TYPE, "aaaaaaa"),
                 QueryOptionsImpl.DEFAULT_CONTEXTUAL,
                 System.currentTimeMillis(),
-                new Throwable(),
+                new Throwable()::getStackTrace,
                 "test",
                 "aaaaaaaaa",
                 StringResult.of("aaaaaa")
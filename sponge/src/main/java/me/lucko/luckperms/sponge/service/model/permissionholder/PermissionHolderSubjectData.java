@@ -359,8 +359,9 @@ public class PermissionHolderSubjectData implements LPSubjectData {
     private CompletableFuture<Void> save(PermissionHolder t) {
         // if the holder is a group, invalidate caches.
         if (t.getType() == HolderType.GROUP) {
-            this.service.getPlugin().getGroupManager().invalidateAllGroupCaches();
-            this.service.getPlugin().getUserManager().invalidateAllUserCaches();
+            String groupName = t.getIdentifier().getName();
+            this.service.getPlugin().getGroupManager().invalidateDependentGroupCaches(groupName);
+            this.service.getPlugin().getUserManager().invalidateDependentUserCaches(groupName);
         }
 
         // no further action required for transient types
@@ -75,7 +75,7 @@ public class LuckPermsApplication implements AutoCloseable {
         List<String> arguments = Arrays.asList(args);
         if (arguments.contains("--docker")) {
             this.dockerCommandSocket = DockerCommandSocket.createAndStart("/opt/luckperms/luckperms.sock", terminal);
-            this.heartbeatHttpServer = HeartbeatHttpServer.createAndStart(3001, () -> this.luckPermsApi.runHealthCheck());
+            this.heartbeatHttpServer = HeartbeatHttpServer.createAndStart(3001, () -> this.luckPermsApi.runHealthCheck(), () -> this.luckPermsApi.getMetrics().exportPrometheusText());
         }
 
         terminal.start(); // blocking
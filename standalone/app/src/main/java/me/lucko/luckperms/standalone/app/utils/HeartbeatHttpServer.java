@@ -42,7 +42,8 @@ import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 
 /**
- * Provides a tiny http server indicating the current status of the app
+ * Provides a tiny http server indicating the current status of the app,
+ * and exposing metrics in the Prometheus text format
  */
 public class HeartbeatHttpServer implements HttpHandler, AutoCloseable {
     private static final Logger LOGGER = LogManager.getLogger(HeartbeatHttpServer.class);
@@ -53,11 +54,11 @@ public class HeartbeatHttpServer implements HttpHandler, AutoCloseable {
             .build()
     );
 
-    public static HeartbeatHttpServer createAndStart(int port, Supplier<Health> healthReporter) {
+    public static HeartbeatHttpServer createAndStart(int port, Supplier<Health> healthReporter, Supplier<String> metricsReporter) {
         HeartbeatHttpServer socket = null;
 
         try {
-            socket = new HeartbeatHttpServer(healthReporter, port);
+            socket = new HeartbeatHttpServer(healthReporter, metricsReporter, port);
             LOGGER.info("Started healthcheck HTTP server on :" + port);
         } catch (Exception e) {
             LOGGER.error("Error starting Heartbeat HTTP server", e);
@@ -67,12 +68,15 @@ public class HeartbeatHttpServer implements HttpHandler, AutoCloseable {
     }
 
     private final Supplier<Health> healthReporter;
+    private final Supplier<String> metricsReporter;
     private final HttpServer server;
 
-    public HeartbeatHttpServer(Supplier<Health> healthReporter, int port) throws IOException {
+    public HeartbeatHttpServer(Supplier<Health> healthReporter, Supplier<String> metricsReporter, int port) throws IOException {
         this.healthReporter = healthReporter;
+        this.metricsReporter = metricsReporter;
         this.server = HttpServer.create(new InetSocketAddress(port), 50);
         this.server.createContext("/health", this);
+        this.server.createContext("/metrics", this::handleMetrics);
         this.server.setExecutor(EXECUTOR);
         this.server.start();
     }
@@ -88,6 +92,16 @@ public class HeartbeatHttpServer implements HttpHandler, AutoCloseable {
         }
     }
 
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        byte[] response = this.metricsReporter.get().getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(response);
+        }
+    }
+
     @Override
     public void close() {
         this.server.stop(0);